@@ -0,0 +1,86 @@
+package mds.mobile.archive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import mds.mobile.category.Category;
+import mds.mobile.category.CategoryRepository;
+import mds.mobile.security.CurrentUserService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Téléchargement groupé de documents sous forme d'archive ZIP construite à la volée.
+ */
+@RestController
+public class ArchiveController {
+
+    private static final String APPLICATION_ZIP = "application/zip";
+
+    private final CategoryRepository categoryRepository;
+    private final CurrentUserService currentUserService;
+    private final DocumentArchiveWriter archiveWriter;
+    private final ObjectMapper objectMapper;
+
+    public ArchiveController(CategoryRepository categoryRepository, CurrentUserService currentUserService,
+                             DocumentArchiveWriter archiveWriter, ObjectMapper objectMapper) {
+        this.categoryRepository = categoryRepository;
+        this.currentUserService = currentUserService;
+        this.archiveWriter = archiveWriter;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * GET /categories/{id}/archive - Tous les documents d'une catégorie dans un ZIP
+     */
+    @GetMapping("/categories/{id}/archive")
+    public void categoryArchive(@PathVariable Long id, HttpServletResponse response) throws IOException {
+        Category category = categoryRepository.findById(id).orElse(null);
+        if (category == null) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(),
+                    Map.of("error", "not_found", "message", "Catégorie non trouvée"));
+            return;
+        }
+        prepare(category.getNom(), response);
+        archiveWriter.writeCategory(id, response.getOutputStream());
+    }
+
+    /**
+     * GET /users/me/archive - Tous les documents de l'utilisateur connecté dans un ZIP
+     */
+    @GetMapping("/users/me/archive")
+    @PreAuthorize("isAuthenticated()")
+    public void myArchive(HttpServletResponse response) throws IOException {
+        UUID currentUserId = currentUserService.getCurrentUserId();
+        prepare("mes-documents", response);
+        archiveWriter.writeOwner(currentUserId, response.getOutputStream());
+    }
+
+    /**
+     * Le corps est ensuite écrit directement dans la réponse : une fois l'archive commencée, une erreur
+     * de lecture ne peut plus être signalée que par la coupure de la connexion.
+     */
+    private static void prepare(String archiveName, HttpServletResponse response) {
+        response.setContentType(APPLICATION_ZIP);
+        String filename = (archiveName != null && !archiveName.isBlank() ? archiveName : "archive") + ".zip";
+        ContentDisposition.Builder disposition = ContentDisposition.attachment();
+        if (StandardCharsets.US_ASCII.newEncoder().canEncode(filename)) {
+            disposition.filename(filename);
+        } else {
+            disposition.filename(filename, StandardCharsets.UTF_8);
+        }
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition.build().toString());
+    }
+}
@@ -0,0 +1,17 @@
+package mds.mobile.archive;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Document à mettre dans une archive : juste de quoi nommer l'entrée et ouvrir son contenu.
+ */
+public record ArchiveEntry(
+        String titre,
+        String cheminFichier,
+        String typeFichier,
+        long taille,
+        UUID segmentId,
+        Long segmentOffset,
+        LocalDateTime dateModification
+) {}
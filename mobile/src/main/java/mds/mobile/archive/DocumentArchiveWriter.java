@@ -0,0 +1,211 @@
+package mds.mobile.archive;
+
+import jakarta.annotation.PreDestroy;
+import mds.mobile.document.DocumentRepository;
+import mds.mobile.segment.SegmentStore;
+import mds.mobile.storage.StorageUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.stream.Stream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Écrit une archive ZIP des documents directement dans le flux de réponse.
+ *
+ * Aucun fichier temporaire et une mémoire constante : les documents sont lus en flux dans une
+ * transaction en lecture seule (réplica s'il y en a un), chaque objet est recopié du stockage vers le
+ * ZIP par blocs, les tailles et CRC partent dans les descripteurs de données après chaque entrée.
+ * Les {@code prefetch} objets suivants sont ouverts en avance sur des threads virtuels pour masquer
+ * la latence du premier octet du stockage.
+ */
+@Component
+public class DocumentArchiveWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentArchiveWriter.class);
+
+    private final DocumentRepository documentRepository;
+    private final SegmentStore storage;
+    private final int prefetch;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public DocumentArchiveWriter(DocumentRepository documentRepository, SegmentStore storage,
+                                 @Value("${archive.prefetch:4}") int prefetch) {
+        this.documentRepository = documentRepository;
+        this.storage = storage;
+        this.prefetch = Math.max(1, prefetch);
+    }
+
+    @Transactional(readOnly = true)
+    public void writeCategory(Long categoryId, OutputStream out) throws IOException {
+        try (Stream<ArchiveEntry> entries = documentRepository.streamArchiveEntriesByCategorie(categoryId)) {
+            write(entries.iterator(), out);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void writeOwner(UUID ownerId, OutputStream out) throws IOException {
+        try (Stream<ArchiveEntry> entries = documentRepository.streamArchiveEntriesByProprietaire(ownerId)) {
+            write(entries.iterator(), out);
+        }
+    }
+
+    private void write(Iterator<ArchiveEntry> entries, OutputStream out) throws IOException {
+        ArrayDeque<Pending> window = new ArrayDeque<>(prefetch);
+        Set<String> usedNames = new HashSet<>();
+
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            while (true) {
+                while (window.size() < prefetch && entries.hasNext()) {
+                    ArchiveEntry next = entries.next();
+                    window.add(new Pending(next, CompletableFuture.supplyAsync(() -> storage.open(
+                            next.segmentId(), next.segmentOffset(), next.taille(), next.cheminFichier()), executor)));
+                }
+                Pending current = window.poll();
+                if (current == null) {
+                    break;
+                }
+                ArchiveEntry document = current.entry();
+
+                // Fichiers déjà compressés : on évite de payer une seconde compression pour rien
+                zip.setLevel(isAlreadyCompressed(document.typeFichier())
+                        ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+                ZipEntry entry = new ZipEntry(uniqueName(document, usedNames));
+                if (document.dateModification() != null) {
+                    entry.setTimeLocal(document.dateModification());
+                }
+
+                try (InputStream in = await(current.content())) {
+                    zip.putNextEntry(entry);
+                    in.transferTo(zip);
+                    zip.closeEntry();
+                }
+            }
+        } finally {
+            // Client déconnecté ou erreur de lecture : fermer les objets déjà ouverts en avance
+            for (Pending pending : window) {
+                pending.content().thenAccept(DocumentArchiveWriter::closeQuietly);
+            }
+        }
+    }
+
+    private static InputStream await(CompletableFuture<InputStream> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Archive interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof StorageUnavailableException unavailable) {
+                throw unavailable;
+            }
+            throw new IOException("Unable to read object from storage", e.getCause());
+        }
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException e) {
+            log.debug("Unable to close prefetched object: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Nom d'entrée : titre du document, complété par l'extension du fichier d'origine,
+     * suffixé " (n)" en cas de doublon dans l'archive.
+     */
+    static String uniqueName(ArchiveEntry document, Set<String> usedNames) {
+        String original = originalFilename(document.cheminFichier());
+        String name = document.titre() != null && !document.titre().isBlank() ? document.titre().strip() : original;
+        String extension = extension(original);
+        if (!extension.isEmpty() && extension(name).isEmpty()) {
+            name = name + extension;
+        }
+        name = name.replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_");
+
+        String base = name;
+        String suffix = extension(name);
+        if (!suffix.isEmpty()) {
+            base = name.substring(0, name.length() - suffix.length());
+        }
+        String candidate = name;
+        for (int n = 2; !usedNames.add(candidate.toLowerCase(Locale.ROOT)); n++) {
+            candidate = base + " (" + n + ")" + suffix;
+        }
+        return candidate;
+    }
+
+    private static String originalFilename(String objectKey) {
+        // Petit fichier rangé dans un segment : pas de clé, donc pas de nom d'origine
+        if (objectKey == null) {
+            return "document";
+        }
+        String last = objectKey.substring(objectKey.lastIndexOf('/') + 1);
+        // Clés de la forme <user>/<uuid>_<nom d'origine>
+        int separator = last.indexOf('_');
+        return separator >= 0 && separator < last.length() - 1 ? last.substring(separator + 1) : last;
+    }
+
+    private static String extension(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && dot >= name.length() - 8 && name.indexOf(' ', dot) < 0 ? name.substring(dot) : "";
+    }
+
+    static boolean isAlreadyCompressed(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        int parameters = type.indexOf(';');
+        if (parameters >= 0) {
+            type = type.substring(0, parameters).strip();
+        }
+        if (type.startsWith("image/")) {
+            return !type.equals("image/bmp") && !type.equals("image/svg+xml") && !type.equals("image/tiff");
+        }
+        if (type.startsWith("video/")) {
+            return true;
+        }
+        if (type.startsWith("audio/")) {
+            return !type.equals("audio/wav") && !type.equals("audio/x-wav");
+        }
+        return switch (type) {
+            case "application/zip", "application/gzip", "application/x-gzip", "application/x-bzip2",
+                 "application/x-xz", "application/zstd", "application/x-7z-compressed",
+                 "application/vnd.rar", "application/x-rar-compressed", "application/epub+zip",
+                 "application/java-archive" -> true;
+            default -> type.startsWith("application/vnd.openxmlformats-officedocument.")
+                    || type.startsWith("application/vnd.oasis.opendocument.");
+        };
+    }
+
+    /**
+     * Attend les ouvertures d'objets en avance encore en cours à l'arrêt.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.close();
+    }
+
+    private record Pending(ArchiveEntry entry, CompletableFuture<InputStream> content) {}
+}
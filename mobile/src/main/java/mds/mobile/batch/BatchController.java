@@ -0,0 +1,220 @@
+package mds.mobile.batch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import mds.mobile.ratelimit.RateLimitClass;
+import mds.mobile.ratelimit.RateLimitFilter;
+import mds.mobile.ratelimit.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.AuthorizationResult;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * POST /batch - exécute plusieurs lectures en un seul aller-retour (écran d'accueil de l'app).
+ *
+ * Le JWT est vérifié une fois par la chaîne de sécurité pour le lot ; chaque sous-requête GET est
+ * ensuite contrôlée par les règles d'URL de cette chaîne, puis passée au DispatcherServlet sur un thread
+ * virtuel avec le contexte de sécurité du lot. Les sous-requêtes sont indépendantes et tournent en
+ * parallèle, au plus {@code batch.max-concurrency} à la fois pour ménager le pool de connexions.
+ */
+@RestController
+public class BatchController {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchController.class);
+
+    private final DispatcherServlet dispatcherServlet;
+    private final AuthorizationManager<HttpServletRequest> authorizationManager;
+    private final RateLimiter rateLimiter;
+    private final boolean rateLimitEnabled;
+    private final ObjectMapper objectMapper;
+    private final int maxRequests;
+    private final int maxConcurrency;
+    private final long maxResponseBytes;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public BatchController(DispatcherServlet dispatcherServlet, SecurityFilterChain securityFilterChain,
+                           RateLimiter rateLimiter, @Value("${ratelimit.enabled:true}") boolean rateLimitEnabled,
+                           ObjectMapper objectMapper,
+                           @Value("${batch.max-requests:20}") int maxRequests,
+                           @Value("${batch.max-concurrency:4}") int maxConcurrency,
+                           @Value("${batch.max-response-bytes:1048576}") long maxResponseBytes) {
+        this.dispatcherServlet = dispatcherServlet;
+        // Règles d'URL de SecurityConfig, telles que les applique la chaîne de sécurité
+        this.authorizationManager = securityFilterChain.getFilters().stream()
+                .filter(AuthorizationFilter.class::isInstance)
+                .map(filter -> ((AuthorizationFilter) filter).getAuthorizationManager())
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No AuthorizationFilter in the security filter chain"));
+        this.rateLimiter = rateLimiter;
+        this.rateLimitEnabled = rateLimitEnabled;
+        this.objectMapper = objectMapper;
+        this.maxRequests = maxRequests;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.maxResponseBytes = maxResponseBytes;
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<?> batch(@Valid @RequestBody BatchRequest req, HttpServletRequest request,
+                                   HttpServletResponse response) {
+        List<BatchItem> items = req.requests();
+        if (items.size() > maxRequests) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "batch_too_large", "message", "Au plus " + maxRequests + " requêtes par lot"));
+        }
+
+        // Le filtre a débité une requête pour le lot : les autres sous-requêtes le sont ici, avant
+        // exécution, et le lot entier est refusé si le budget ne suffit pas
+        if (rateLimitEnabled) {
+            long waitNanos = rateLimiter.tryAcquire(RateLimitFilter.clientKey(request), RateLimitClass.METADATA,
+                    items.size() - 1L);
+            if (waitNanos > 0) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, Long.toString(RateLimitFilter.retryAfterSeconds(waitNanos)))
+                        .body(Map.of("error", "rate_limited", "message", "Trop de requêtes, réessayez plus tard"));
+            }
+        }
+
+        SecurityContext context = SecurityContextHolder.getContext();
+        Semaphore permits = new Semaphore(maxConcurrency);
+        List<CompletableFuture<BatchItemResult>> pending = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            BatchItem item = items.get(i);
+            String id = item.id() != null ? item.id() : Integer.toString(i);
+            pending.add(CompletableFuture.supplyAsync(() -> {
+                SecurityContextHolder.setContext(context);
+                try {
+                    permits.acquire();
+                    try {
+                        return execute(id, item, request, response, context.getAuthentication());
+                    } finally {
+                        permits.release();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return error(id, HttpStatus.SERVICE_UNAVAILABLE, "interrupted", "Lot interrompu");
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+            }, executor));
+        }
+
+        List<BatchItemResult> results = pending.stream().map(CompletableFuture::join).toList();
+        return ResponseEntity.ok(new BatchResponse(results));
+    }
+
+    private BatchItemResult execute(String id, BatchItem item, HttpServletRequest request,
+                                    HttpServletResponse response, Authentication authentication) {
+        if (item.method() != null && !"GET".equalsIgnoreCase(item.method())) {
+            return error(id, HttpStatus.METHOD_NOT_ALLOWED, "method_not_allowed", "Seules les requêtes GET peuvent être groupées");
+        }
+        String target = item.path();
+        int queryStart = target.indexOf('?');
+        String path = queryStart >= 0 ? target.substring(0, queryStart) : target;
+        String query = queryStart >= 0 ? target.substring(queryStart + 1) : null;
+        if (!path.startsWith("/") || path.contains("..") || path.startsWith("/batch")) {
+            return error(id, HttpStatus.BAD_REQUEST, "invalid_path", "Chemin invalide : " + path);
+        }
+        // Téléchargements : débités en octets par le filtre, hors lot. Refusés avant d'aller chercher l'objet
+        if (RateLimitFilter.classify("GET", path) == RateLimitClass.DOWNLOAD_BYTES) {
+            return error(id, HttpStatus.UNSUPPORTED_MEDIA_TYPE, "unsupported_media_type",
+                    "Seules les réponses JSON peuvent être groupées");
+        }
+
+        BatchSubRequest subRequest = new BatchSubRequest(request, path, query);
+        AuthorizationResult decision = authorizationManager.authorize(() -> authentication, subRequest);
+        if (decision != null && !decision.isGranted()) {
+            boolean anonymous = authentication == null || authentication instanceof AnonymousAuthenticationToken;
+            return anonymous
+                    ? error(id, HttpStatus.UNAUTHORIZED, "unauthorized", "Authentication required")
+                    : error(id, HttpStatus.FORBIDDEN, "forbidden", "Access denied");
+        }
+
+        BatchSubResponse subResponse = new BatchSubResponse(response, maxResponseBytes);
+        try {
+            dispatcherServlet.service(subRequest, subResponse);
+        } catch (Exception e) {
+            if (subResponse.overflowed()) {
+                return error(id, HttpStatus.PAYLOAD_TOO_LARGE, "response_too_large",
+                        "Réponse de plus de " + maxResponseBytes + " octets, à demander hors lot");
+            }
+            log.warn("Batch sub-request GET {} failed", path, e);
+            return error(id, HttpStatus.INTERNAL_SERVER_ERROR, "server_error", "Erreur interne");
+        }
+        if (subResponse.overflowed()) {
+            return error(id, HttpStatus.PAYLOAD_TOO_LARGE, "response_too_large",
+                    "Réponse de plus de " + maxResponseBytes + " octets, à demander hors lot");
+        }
+
+        byte[] body = subResponse.body();
+        HttpStatus status = HttpStatus.resolve(subResponse.getStatus());
+        if (body.length == 0) {
+            // sendError sans corps (404 de Spring MVC, 405...) : corps d'erreur au format de l'API
+            if (status != null && status.isError()) {
+                String message = subResponse.errorMessage() != null ? subResponse.errorMessage() : status.getReasonPhrase();
+                return error(id, status, status.name().toLowerCase(), message);
+            }
+            return new BatchItemResult(id, subResponse.getStatus(), null);
+        }
+        if (!isJson(subResponse.getContentType())) {
+            return error(id, HttpStatus.UNSUPPORTED_MEDIA_TYPE, "unsupported_media_type",
+                    "Seules les réponses JSON peuvent être groupées");
+        }
+        Charset charset = Charset.forName(subResponse.getCharacterEncoding(), StandardCharsets.UTF_8);
+        return new BatchItemResult(id, subResponse.getStatus(), new String(body, charset));
+    }
+
+    /**
+     * Attend les sous-requêtes encore en cours à l'arrêt.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.close();
+    }
+
+    private static boolean isJson(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        return MediaType.APPLICATION_JSON.isCompatibleWith(mediaType) || mediaType.getSubtype().endsWith("+json");
+    }
+
+    private BatchItemResult error(String id, HttpStatus status, String error, String message) {
+        try {
+            return new BatchItemResult(id, status.value(),
+                    objectMapper.writeValueAsString(Map.of("error", error, "message", message)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
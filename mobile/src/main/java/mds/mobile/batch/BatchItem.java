@@ -0,0 +1,12 @@
+package mds.mobile.batch;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record BatchItem(
+        String id, // identifiant libre renvoyé avec la réponse, défaut : position dans le lot
+
+        String method, // GET uniquement, défaut GET
+
+        @NotBlank(message = "path is required")
+        String path // chemin relatif à l'application, avec query string éventuelle
+) {}
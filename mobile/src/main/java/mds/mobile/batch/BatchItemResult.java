@@ -0,0 +1,9 @@
+package mds.mobile.batch;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+public record BatchItemResult(
+        String id,
+        int status,
+        @JsonRawValue String body // corps JSON de la sous-requête, recopié tel quel
+) {}
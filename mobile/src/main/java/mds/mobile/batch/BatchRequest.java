@@ -0,0 +1,11 @@
+package mds.mobile.batch;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+public record BatchRequest(
+        @NotEmpty(message = "requests is required")
+        List<@Valid BatchItem> requests
+) {}
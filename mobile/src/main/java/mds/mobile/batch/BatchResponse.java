@@ -0,0 +1,5 @@
+package mds.mobile.batch;
+
+import java.util.List;
+
+public record BatchResponse(List<BatchItemResult> responses) {}
@@ -0,0 +1,247 @@
+package mds.mobile.batch;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sous-requête GET d'un lot, exécutée sur son propre thread.
+ *
+ * Les attributs de requête sont propres à la sous-requête (Spring MVC y range le handler et les
+ * variables de chemin) : plusieurs sous-requêtes du même lot tournent en parallèle. Seuls quelques
+ * en-têtes du lot sont transmis ; les en-têtes conditionnels et de corps ne concernent que le lot.
+ */
+final class BatchSubRequest extends HttpServletRequestWrapper {
+
+    private static final Set<String> FORWARDED_HEADERS = Set.of(
+            HttpHeaders.AUTHORIZATION.toLowerCase(Locale.ROOT),
+            HttpHeaders.ACCEPT_LANGUAGE.toLowerCase(Locale.ROOT),
+            HttpHeaders.USER_AGENT.toLowerCase(Locale.ROOT));
+
+    private final String path;
+    private final String queryString;
+    private final Map<String, String[]> parameters;
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+    BatchSubRequest(HttpServletRequest batch, String path, String queryString) {
+        super(batch);
+        this.path = path;
+        this.queryString = queryString;
+        this.parameters = parseParameters(queryString);
+    }
+
+    private static Map<String, String[]> parseParameters(String queryString) {
+        if (queryString == null) {
+            return Map.of();
+        }
+        MultiValueMap<String, String> query = UriComponentsBuilder.newInstance().query(queryString).build().getQueryParams();
+        Map<String, String[]> parameters = new LinkedHashMap<>();
+        query.forEach((name, values) -> parameters.put(UriUtils.decode(name, StandardCharsets.UTF_8),
+                values.stream().map(value -> value == null ? "" : UriUtils.decode(value, StandardCharsets.UTF_8))
+                        .toArray(String[]::new)));
+        return Collections.unmodifiableMap(parameters);
+    }
+
+    @Override
+    public String getMethod() {
+        return "GET";
+    }
+
+    @Override
+    public DispatcherType getDispatcherType() {
+        return DispatcherType.REQUEST;
+    }
+
+    @Override
+    public String getRequestURI() {
+        return getContextPath() + path;
+    }
+
+    @Override
+    public StringBuffer getRequestURL() {
+        StringBuffer url = new StringBuffer();
+        url.append(getScheme()).append("://").append(getServerName()).append(':').append(getServerPort());
+        return url.append(getRequestURI());
+    }
+
+    @Override
+    public String getServletPath() {
+        return UriUtils.decode(path, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String getPathInfo() {
+        return null;
+    }
+
+    @Override
+    public String getQueryString() {
+        return queryString;
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = parameters.get(name);
+        return values != null && values.length > 0 ? values[0] : null;
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        return parameters;
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(parameters.keySet());
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        return parameters.get(name);
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(attributes.keySet());
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    @Override
+    public String getHeader(String name) {
+        if (HttpHeaders.ACCEPT.equalsIgnoreCase(name)) {
+            return MediaType.APPLICATION_JSON_VALUE;
+        }
+        return FORWARDED_HEADERS.contains(name.toLowerCase(Locale.ROOT)) ? super.getHeader(name) : null;
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        String value = getHeader(name);
+        return Collections.enumeration(value != null ? List.of(value) : List.of());
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+        List<String> names = new ArrayList<>();
+        names.add(HttpHeaders.ACCEPT);
+        for (Enumeration<String> it = super.getHeaderNames(); it.hasMoreElements(); ) {
+            String name = it.nextElement();
+            if (FORWARDED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                names.add(name);
+            }
+        }
+        return Collections.enumeration(names);
+    }
+
+    @Override
+    public long getDateHeader(String name) {
+        return -1;
+    }
+
+    @Override
+    public int getIntHeader(String name) {
+        String value = getHeader(name);
+        return value != null ? Integer.parseInt(value) : -1;
+    }
+
+    @Override
+    public String getContentType() {
+        return null;
+    }
+
+    @Override
+    public int getContentLength() {
+        return 0;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        return 0;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        return new ServletInputStream() {
+            @Override
+            public boolean isFinished() {
+                return true;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int read() {
+                return -1;
+            }
+        };
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        return new BufferedReader(new StringReader(""));
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+        return false;
+    }
+
+    @Override
+    public AsyncContext startAsync() {
+        throw new IllegalStateException("Async processing is not supported in batch sub-requests");
+    }
+
+    @Override
+    public AsyncContext startAsync(ServletRequest request, ServletResponse response) {
+        throw new IllegalStateException("Async processing is not supported in batch sub-requests");
+    }
+}
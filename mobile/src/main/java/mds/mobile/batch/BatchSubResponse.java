@@ -0,0 +1,299 @@
+package mds.mobile.batch;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Réponse d'une sous-requête de lot, gardée en mémoire.
+ *
+ * Rien n'est délégué à la réponse du lot : statut, en-têtes et corps restent propres à la sous-requête.
+ * Le corps est borné à {@code maxBytes} ; au-delà, l'écriture échoue et {@link #overflowed()} le signale.
+ */
+final class BatchSubResponse extends HttpServletResponseWrapper {
+
+    private final long maxBytes;
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private final HttpHeaders headers = new HttpHeaders();
+    private final ServletOutputStream outputStream = new BoundedOutputStream();
+    private PrintWriter writer;
+    private int status = SC_OK;
+    private String errorMessage;
+    private String characterEncoding = StandardCharsets.UTF_8.name();
+    private Locale locale = Locale.getDefault();
+    private boolean committed;
+    private boolean overflowed;
+
+    BatchSubResponse(HttpServletResponse batch, long maxBytes) {
+        super(batch);
+        this.maxBytes = maxBytes;
+    }
+
+    byte[] body() {
+        if (writer != null) {
+            writer.flush();
+        }
+        return body.toByteArray();
+    }
+
+    boolean overflowed() {
+        return overflowed;
+    }
+
+    String errorMessage() {
+        return errorMessage;
+    }
+
+    @Override
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        if (!committed) {
+            status = sc;
+        }
+    }
+
+    @Override
+    public void sendError(int sc, String msg) {
+        status = sc;
+        errorMessage = msg;
+        committed = true;
+    }
+
+    @Override
+    public void sendError(int sc) {
+        sendError(sc, null);
+    }
+
+    @Override
+    public void sendRedirect(String location) {
+        status = SC_FOUND;
+        headers.set(HttpHeaders.LOCATION, location);
+        committed = true;
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        // Pas de cookies dans un lot : l'API est sans état
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+        return headers.containsKey(name);
+    }
+
+    @Override
+    public String encodeURL(String url) {
+        return url;
+    }
+
+    @Override
+    public String encodeRedirectURL(String url) {
+        return url;
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name)) {
+            setContentType(value);
+        } else {
+            headers.set(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name)) {
+            setContentType(value);
+        } else {
+            headers.add(name, value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        setHeader(name, Integer.toString(value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        addHeader(name, Integer.toString(value));
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        headers.setDate(name, date);
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        setDateHeader(name, date);
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return headers.getFirst(name);
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+        List<String> values = headers.get(name);
+        return values != null ? values : List.of();
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        return new ArrayList<>(headers.keySet());
+    }
+
+    @Override
+    public String getContentType() {
+        return headers.getFirst(HttpHeaders.CONTENT_TYPE);
+    }
+
+    @Override
+    public void setContentType(String type) {
+        if (type == null) {
+            headers.remove(HttpHeaders.CONTENT_TYPE);
+            return;
+        }
+        MediaType mediaType = MediaType.parseMediaType(type);
+        if (mediaType.getCharset() != null) {
+            characterEncoding = mediaType.getCharset().name();
+        }
+        headers.set(HttpHeaders.CONTENT_TYPE, type);
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return characterEncoding;
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+        if (charset != null) {
+            characterEncoding = charset;
+        }
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        headers.setContentLength(len);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, Charset.forName(characterEncoding)));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+        // Tout le corps est déjà gardé en mémoire
+    }
+
+    @Override
+    public int getBufferSize() {
+        return (int) Math.min(Integer.MAX_VALUE, maxBytes);
+    }
+
+    @Override
+    public void flushBuffer() {
+        if (writer != null) {
+            writer.flush();
+        }
+        committed = true;
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    @Override
+    public void reset() {
+        resetBuffer();
+        headers.clear();
+        status = SC_OK;
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (committed) {
+            throw new IllegalStateException("Response already committed");
+        }
+        body.reset();
+    }
+
+    @Override
+    public void setLocale(Locale loc) {
+        locale = loc;
+    }
+
+    @Override
+    public Locale getLocale() {
+        return locale;
+    }
+
+    private final class BoundedOutputStream extends ServletOutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureCapacity(1);
+            body.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensureCapacity(len);
+            body.write(b, off, len);
+        }
+
+        private void ensureCapacity(int len) throws IOException {
+            if (body.size() + (long) len > maxBytes) {
+                overflowed = true;
+                throw new IOException("Batch sub-response exceeds " + maxBytes + " bytes");
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package mds.mobile.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Bus d'invalidation des caches locaux entre les nœuds, sur la base MySQL existante.
+ *
+ * Chaque écriture ajoute, dans sa transaction, une ligne au journal {@code change_log} : pas d'écriture
+ * validée sans sa ligne, ni de ligne pour une écriture annulée. Chaque nœud relit le journal toutes les
+ * {@code cache.invalidation.poll-ms} et évince les clés concernées. Une valeur périmée reste donc
+ * visible au plus un intervalle de scrutation (plus le retard des réplicas si la valeur est rechargée
+ * depuis l'un d'eux, borné par la durée de vie des entrées).
+ *
+ * Les identifiants auto-incrémentés peuvent être validés dans le désordre : un trou dans la séquence
+ * est relu aux passages suivants jusqu'à {@code cache.invalidation.gap-timeout-ms}.
+ */
+@Component
+@Lazy(false)
+public class CacheInvalidationBus {
+
+    public static final String CATEGORY = "category";
+    public static final String DOCUMENT = "document";
+    public static final String USER = "user";
+    public static final String ALL = "*";
+
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+    private static final int MAX_TRACKED_GAPS = 10_000;
+
+    private final ChangeLogRepository changeLogRepository;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final int batchSize;
+    private final Duration retention;
+    private final long gapTimeoutNanos;
+    private final long singleFlightWaitMillis;
+
+    private final Map<String, LocalCache<?>> keyedCaches = new ConcurrentHashMap<>();
+    private final Map<String, List<LocalCache<?>>> aggregateCaches = new ConcurrentHashMap<>();
+    private final Map<String, List<Consumer<String>>> listeners = new ConcurrentHashMap<>();
+
+    /** État de la scrutation, protégé par le verrou de {@link #poll()} */
+    private long lastSeenId = -1;
+    private final Map<Long, Long> missingIds = new HashMap<>();
+
+    public CacheInvalidationBus(ChangeLogRepository changeLogRepository,
+                                @Value("${cache.metadata.max-entries:10000}") int maxEntries,
+                                @Value("${cache.metadata.ttl-ms:60000}") long ttlMillis,
+                                @Value("${cache.invalidation.batch-size:500}") int batchSize,
+                                @Value("${cache.invalidation.retention-ms:3600000}") long retentionMillis,
+                                @Value("${cache.invalidation.gap-timeout-ms:10000}") long gapTimeoutMillis,
+                                @Value("${cache.single-flight.max-wait-ms:2000}") long singleFlightWaitMillis) {
+        this.changeLogRepository = changeLogRepository;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.batchSize = batchSize;
+        this.retention = Duration.ofMillis(retentionMillis);
+        this.gapTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(gapTimeoutMillis);
+        this.singleFlightWaitMillis = singleFlightWaitMillis;
+    }
+
+    /**
+     * Cache d'entités indexé par identifiant, évincé clé par clé.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> LocalCache<V> cache(String entityType) {
+        return (LocalCache<V>) keyedCaches.computeIfAbsent(entityType, type -> new LocalCache<>(maxEntries, ttlNanos, singleFlightWaitMillis));
+    }
+
+    /**
+     * Cache de résultats agrégés (listes...), vidé à chaque modification d'une entité du type.
+     */
+    public <V> LocalCache<V> aggregateCache(String entityType) {
+        LocalCache<V> cache = new LocalCache<>(maxEntries, ttlNanos, singleFlightWaitMillis);
+        aggregateCaches.computeIfAbsent(entityType, type -> new CopyOnWriteArrayList<>()).add(cache);
+        return cache;
+    }
+
+    /**
+     * Appelé pour chaque clé du type lue dans le journal, y compris celles publiées par ce nœud
+     * (et {@link #ALL}), sur le thread de scrutation : l'écouteur doit rendre la main rapidement.
+     */
+    public void subscribe(String entityType, Consumer<String> listener) {
+        listeners.computeIfAbsent(entityType, type -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * Publie la clé aux autres nœuds et l'évince localement. À appeler dans la transaction de
+     * l'écriture : la ligne du journal est validée ou annulée avec elle, et l'éviction locale n'a lieu
+     * qu'après la validation (une lecture concurrente ne peut pas remettre en cache l'ancienne valeur).
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(String entityType, Object key) {
+        String entityKey = String.valueOf(key);
+        changeLogRepository.save(new ChangeLogEntry(null, entityType, entityKey, Instant.now()));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(entityType, entityKey);
+            }
+        });
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publishAll(String entityType) {
+        publish(entityType, ALL);
+    }
+
+    @Scheduled(fixedDelayString = "${cache.invalidation.poll-ms:500}")
+    public synchronized void poll() {
+        if (keyedCaches.isEmpty() && aggregateCaches.isEmpty() && listeners.isEmpty()) {
+            return;
+        }
+        try {
+            if (lastSeenId < 0) {
+                lastSeenId = changeLogRepository.findMaxId();
+                // Les caches ont pu se remplir avant que la position dans le journal soit connue
+                keyedCaches.values().forEach(LocalCache::clear);
+                aggregateCaches.values().forEach(caches -> caches.forEach(LocalCache::clear));
+                return;
+            }
+
+            long now = System.nanoTime();
+            missingIds.values().removeIf(noticedAt -> now - noticedAt > gapTimeoutNanos);
+
+            List<ChangeLogEntry> entries = missingIds.isEmpty()
+                    ? changeLogRepository.findByIdGreaterThanOrderByIdAsc(lastSeenId, Limit.of(batchSize))
+                    : changeLogRepository.findNewOrMissing(lastSeenId, missingIds.keySet(), Limit.of(batchSize));
+
+            for (ChangeLogEntry entry : entries) {
+                apply(entry.getEntityType(), entry.getEntityKey());
+                notifyListeners(entry.getEntityType(), entry.getEntityKey());
+                long id = entry.getId();
+                if (missingIds.remove(id) != null || id <= lastSeenId) {
+                    continue;
+                }
+                for (long gap = lastSeenId + 1; gap < id && missingIds.size() < MAX_TRACKED_GAPS; gap++) {
+                    missingIds.put(gap, now);
+                }
+                lastSeenId = id;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Unable to read change log: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cache.invalidation.purge-ms:600000}")
+    public void purge() {
+        try {
+            int deleted = changeLogRepository.deleteOlderThan(Instant.now().minus(retention));
+            if (deleted > 0) {
+                log.debug("Purged {} change log entries", deleted);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Unable to purge change log: {}", e.getMessage());
+        }
+    }
+
+    private void notifyListeners(String entityType, String entityKey) {
+        for (Consumer<String> listener : listeners.getOrDefault(entityType, List.of())) {
+            try {
+                listener.accept(entityKey);
+            } catch (RuntimeException e) {
+                log.warn("Invalidation listener failed for {}:{}: {}", entityType, entityKey, e.getMessage());
+            }
+        }
+    }
+
+    private void apply(String entityType, String entityKey) {
+        LocalCache<?> keyed = keyedCaches.get(entityType);
+        if (keyed != null) {
+            if (ALL.equals(entityKey)) {
+                keyed.clear();
+            } else {
+                keyed.evict(entityKey);
+            }
+        }
+        List<LocalCache<?>> aggregates = aggregateCaches.get(entityType);
+        if (aggregates != null) {
+            aggregates.forEach(LocalCache::clear);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package mds.mobile.cache;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Ligne du journal des modifications : une entité modifiée sur un nœud, à évincer des caches des autres.
+ */
+@Entity
+@Table(name = "change_log", indexes = @Index(name = "idx_change_log_created_at", columnList = "createdAt"))
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeLogEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 32)
+    private String entityType; // category, document, user...
+
+    @Column(nullable = false, length = 64)
+    private String entityKey; // identifiant de l'entité, ou * pour tout le type
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,35 @@
+package mds.mobile.cache;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ChangeLogRepository extends JpaRepository<ChangeLogEntry, Long> {
+
+    // Transactions en écriture : lues sur le primaire, jamais sur un réplica en retard
+    @Transactional
+    @Query("select coalesce(max(c.id), 0) from ChangeLogEntry c")
+    long findMaxId();
+
+    @Transactional
+    List<ChangeLogEntry> findByIdGreaterThanOrderByIdAsc(long id, Limit limit);
+
+    @Transactional
+    @Query("select c from ChangeLogEntry c where c.id > :lastId or c.id in :missingIds order by c.id")
+    List<ChangeLogEntry> findNewOrMissing(@Param("lastId") long lastId,
+                                          @Param("missingIds") Collection<Long> missingIds, Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("delete from ChangeLogEntry c where c.createdAt < :before")
+    int deleteOlderThan(@Param("before") Instant before);
+}
@@ -0,0 +1,89 @@
+package mds.mobile.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Cache mémoire borné (LRU + durée de vie) dont les entrées sont évincées par le {@link CacheInvalidationBus}.
+ *
+ * Un chargement concurrent d'une invalidation n'est pas mis en cache : chaque éviction incrémente
+ * une génération, et une valeur lue avant l'éviction est écartée au moment de l'insérer.
+ * Les absences simultanées d'une même clé (document partagé dans un groupe...) ne déclenchent qu'un
+ * chargement, partagé par tous les appelants via {@link SingleFlight} ; la génération retenue est celle
+ * du début de ce chargement partagé, pas celle de l'arrivée de chaque appelant, pour qu'un appelant
+ * arrivé après une éviction ne mette pas en cache la valeur d'un chargement parti avant.
+ */
+public final class LocalCache<V> {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry<V>> entries;
+    private final SingleFlight<String, Loaded<V>> loads;
+    private long generation;
+
+    LocalCache(int maxEntries, long ttlNanos, long singleFlightWaitMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlNanos;
+        this.loads = new SingleFlight<>(singleFlightWaitMillis);
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                return size() > LocalCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Valeur en cache, sinon chargée par {@code loader} ; les absences ne sont pas mises en cache.
+     */
+    public Optional<V> get(Object key, Supplier<Optional<V>> loader) {
+        String cacheKey = String.valueOf(key);
+        synchronized (this) {
+            Entry<V> entry = entries.get(cacheKey);
+            if (entry != null && entry.expiresAt() - System.nanoTime() > 0) {
+                return Optional.of(entry.value());
+            }
+        }
+
+        Loaded<V> loaded = loads.execute(cacheKey, () -> load(loader));
+        if (loaded.value().isPresent()) {
+            synchronized (this) {
+                if (generation == loaded.generation()) {
+                    entries.put(cacheKey, new Entry<>(loaded.value().get(), System.nanoTime() + ttlNanos));
+                }
+            }
+        }
+        return loaded.value();
+    }
+
+    /**
+     * Chargement qui retient la génération de son départ, partagée avec les appelants qui le rejoignent.
+     */
+    private Loaded<V> load(Supplier<Optional<V>> loader) {
+        long loadedAtGeneration;
+        synchronized (this) {
+            loadedAtGeneration = generation;
+        }
+        return new Loaded<>(loader.get(), loadedAtGeneration);
+    }
+
+    synchronized void evict(String key) {
+        generation++;
+        entries.remove(key);
+    }
+
+    synchronized void clear() {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private record Entry<V>(V value, long expiresAt) {}
+
+    private record Loaded<V>(Optional<V> value, long generation) {}
+}
@@ -0,0 +1,86 @@
+package mds.mobile.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Regroupement des chargements concurrents d'une même clé : le premier appelant charge, les appelants
+ * arrivés pendant le chargement attendent et partagent son résultat (ou son exception).
+ *
+ * Rien n'est conservé après le chargement : ce n'est pas un cache, seulement une protection contre
+ * les rafales de requêtes identiques. Un appelant n'attend pas plus de {@code maxWaitMillis} (0 : sans
+ * limite) ; au-delà il charge lui-même, pour ne jamais rester bloqué derrière un chargement qui attend
+ * lui-même une ressource (connexion du pool...) détenue par les appelants en attente.
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final long maxWaitNanos;
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+
+    public SingleFlight(long maxWaitMillis) {
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            return await(existing, loader);
+        }
+        try {
+            loads.increment();
+            V value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private V await(CompletableFuture<V> existing, Supplier<V> loader) {
+        try {
+            V value = maxWaitNanos > 0 ? existing.get(maxWaitNanos, TimeUnit.NANOSECONDS) : existing.get();
+            shared.increment();
+            return value;
+        } catch (TimeoutException e) {
+            loads.increment();
+            return loader.get();
+        } catch (ExecutionException e) {
+            shared.increment();
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an in-flight load", e);
+        }
+    }
+
+    /**
+     * Nombre de chargements effectivement lancés.
+     */
+    public long loads() {
+        return loads.sum();
+    }
+
+    /**
+     * Nombre d'appels servis par le chargement d'un autre appelant.
+     */
+    public long shared() {
+        return shared.sum();
+    }
+}
@@ -1,10 +1,16 @@
 package mds.mobile.category;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
 @Entity
-@Table(name = "categories")
+@Table(name = "categories",
+        uniqueConstraints = @UniqueConstraint(name = "uk_categories_parent_key_nom", columnNames = {"parentKey", "nom"}),
+        indexes = {
+                @Index(name = "idx_categories_parent_id", columnList = "parentId"),
+                @Index(name = "idx_categories_chemin", columnList = "chemin")
+        })
 @Getter
 @Setter
 @NoArgsConstructor
@@ -15,7 +21,20 @@ public class Category {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false, unique = true, length = 150)
-    private String nom;
+    @Column(nullable = false, length = 150)
+    private String nom; // unique parmi les catégories de même parent
+
+    private Long parentId; // null pour une catégorie racine
+
+    // Calculé par la base : parentId, 0 pour les racines. Les NULL sont distincts dans un index unique,
+    // l'unicité du nom porte donc sur cette colonne pour valoir aussi entre racines
+    @JsonIgnore
+    @Column(insertable = false, updatable = false,
+            columnDefinition = "BIGINT GENERATED ALWAYS AS (COALESCE(parent_id, 0))")
+    private Long parentKey;
+
+    // Chemin matérialisé des ids depuis la racine, ex. "/3/17/42/" : le sous-arbre est un préfixe
+    @Column(length = 512)
+    private String chemin;
 }
 
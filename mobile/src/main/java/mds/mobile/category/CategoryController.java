@@ -1,22 +1,43 @@
 package mds.mobile.category;
 
+import mds.mobile.cache.CacheInvalidationBus;
+import mds.mobile.cache.LocalCache;
+import mds.mobile.document.Document;
+import mds.mobile.document.DocumentRepository;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/categories")
 public class CategoryController {
 
     private final CategoryRepository categoryRepository;
+    private final CategoryTreeService treeService;
+    private final DocumentRepository documentRepository;
+    private final CacheInvalidationBus invalidationBus;
+    private final LocalCache<Category> categories;
+    private final LocalCache<List<Category>> categoryList;
+    private final TransactionTemplate transactionTemplate;
 
-    public CategoryController(CategoryRepository categoryRepository) {
+    public CategoryController(CategoryRepository categoryRepository, CategoryTreeService treeService,
+                              DocumentRepository documentRepository, CacheInvalidationBus invalidationBus,
+                              PlatformTransactionManager transactionManager) {
         this.categoryRepository = categoryRepository;
+        this.treeService = treeService;
+        this.documentRepository = documentRepository;
+        this.invalidationBus = invalidationBus;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.categories = invalidationBus.cache(CacheInvalidationBus.CATEGORY);
+        this.categoryList = invalidationBus.aggregateCache(CacheInvalidationBus.CATEGORY);
     }
 
     /**
@@ -24,7 +45,8 @@ public class CategoryController {
      */
     @GetMapping
     public ResponseEntity<List<Category>> getAll() {
-        return ResponseEntity.ok(categoryRepository.findAll());
+        return ResponseEntity.ok(categoryList.get(CacheInvalidationBus.ALL,
+                () -> Optional.of(categoryRepository.findAll())).orElseThrow());
     }
 
     /**
@@ -32,12 +54,26 @@ public class CategoryController {
      */
     @GetMapping("/{id}")
     public ResponseEntity<?> getOne(@PathVariable Long id) {
-        return categoryRepository.findById(id)
+        return categories.get(id, () -> categoryRepository.findById(id))
                 .<ResponseEntity<?>>map(ResponseEntity::ok)
                 .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(Map.of("error", "not_found", "message", "Catégorie non trouvée")));
     }
 
+    /**
+     * GET /categories/{id}/documents - Documents de la catégorie et de toutes ses sous-catégories
+     */
+    @GetMapping("/{id}/documents")
+    public ResponseEntity<?> getDocuments(@PathVariable Long id) {
+        Category category = categories.get(id, () -> categoryRepository.findById(id)).orElse(null);
+        if (category == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "not_found", "message", "Catégorie non trouvée"));
+        }
+        List<Document> documents = documentRepository.findInCategorySubtree(category.getChemin());
+        return ResponseEntity.ok(documents);
+    }
+
     /**
      * POST /categories - Crée une nouvelle catégorie
      */
@@ -49,13 +85,17 @@ public class CategoryController {
                     .body(Map.of("error", "invalid_request", "message", "Nom de catégorie requis"));
         }
 
-        Category category = Category.builder().nom(req.nom().trim()).build();
+        String nom = req.nom().trim();
+        if (categoryRepository.existsByParentIdAndNom(req.parentId(), nom)) {
+            return categoryExists();
+        }
         try {
-            Category saved = categoryRepository.save(category);
-            return ResponseEntity.status(HttpStatus.CREATED).body(saved);
+            return treeService.create(nom, req.parentId())
+                    .<ResponseEntity<?>>map(saved -> ResponseEntity.status(HttpStatus.CREATED).body(saved))
+                    .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                            .body(Map.of("error", "not_found", "message", "Catégorie parente non trouvée")));
         } catch (DataIntegrityViolationException e) {
-            return ResponseEntity.status(HttpStatus.CONFLICT)
-                    .body(Map.of("error", "category_exists", "message", "Une catégorie avec ce nom existe déjà"));
+            return categoryExists();
         }
     }
 
@@ -71,32 +111,76 @@ public class CategoryController {
                         return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                                 .body(Map.of("error", "invalid_request", "message", "Nom de catégorie requis"));
                     }
-                    category.setNom(req.nom().trim());
+                    String nom = req.nom().trim();
+                    if (categoryRepository.existsByParentIdAndNomAndIdNot(category.getParentId(), nom, id)) {
+                        return categoryExists();
+                    }
+                    category.setNom(nom);
                     try {
-                        Category saved = categoryRepository.save(category);
+                        Category saved = transactionTemplate.execute(status -> {
+                            Category updated = categoryRepository.saveAndFlush(category);
+                            invalidationBus.publish(CacheInvalidationBus.CATEGORY, id);
+                            // Les documents en cache embarquent leur catégorie
+                            invalidationBus.publishAll(CacheInvalidationBus.DOCUMENT);
+                            return updated;
+                        });
                         return ResponseEntity.ok(saved);
                     } catch (DataIntegrityViolationException e) {
-                        return ResponseEntity.status(HttpStatus.CONFLICT)
-                                .body(Map.of("error", "category_exists", "message", "Une catégorie avec ce nom existe déjà"));
+                        return categoryExists();
                     }
                 })
                 .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(Map.of("error", "not_found", "message", "Catégorie non trouvée")));
     }
 
+    /**
+     * PUT /categories/{id}/parent - Déplace une catégorie et sa sous-arborescence (parentId null : racine)
+     */
+    @PutMapping("/{id}/parent")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> move(@PathVariable Long id, @RequestBody CategoryMoveRequest req) {
+        Long parentId = req != null ? req.parentId() : null;
+        Category category = categoryRepository.findById(id).orElse(null);
+        if (category == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "not_found", "message", "Catégorie non trouvée"));
+        }
+        if (categoryRepository.existsByParentIdAndNomAndIdNot(parentId, category.getNom(), id)) {
+            return categoryExists();
+        }
+        try {
+            return treeService.move(id, parentId)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                            .body(Map.of("error", "not_found", "message", "Catégorie parente non trouvée")));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "invalid_move", "message", e.getMessage()));
+        } catch (DataIntegrityViolationException e) {
+            return categoryExists();
+        }
+    }
+
     /**
      * DELETE /categories/{id} - Supprime une catégorie
      */
     @DeleteMapping("/{id}")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<?> delete(@PathVariable Long id) {
-        return categoryRepository.findById(id)
-                .map(category -> {
-                    categoryRepository.delete(category);
-                    return ResponseEntity.ok(Map.of("message", "Catégorie supprimée avec succès"));
-                })
-                .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND)
-                        .body(Map.of("error", "not_found", "message", "Catégorie non trouvée")));
+        try {
+            if (!treeService.delete(id)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "not_found", "message", "Catégorie non trouvée"));
+            }
+            return ResponseEntity.ok(Map.of("message", "Catégorie supprimée avec succès"));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "category_not_empty", "message", e.getMessage()));
+        }
     }
-}
 
+    private static ResponseEntity<?> categoryExists() {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "category_exists", "message", "Une catégorie avec ce nom existe déjà à cet endroit"));
+    }
+}
@@ -1,4 +1,4 @@
 package mds.mobile.category;
 
-public record CategoryCreateRequest(String nom) {}
+public record CategoryCreateRequest(String nom, Long parentId) {}
 
@@ -0,0 +1,3 @@
+package mds.mobile.category;
+
+public record CategoryMoveRequest(Long parentId) {}
@@ -0,0 +1,30 @@
+package mds.mobile.category;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Donne un chemin matérialisé aux catégories qui n'en ont pas encore (créées avant l'arborescence).
+ */
+@Component
+public class CategoryPathBackfill implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryPathBackfill.class);
+
+    private final CategoryRepository categoryRepository;
+
+    public CategoryPathBackfill(CategoryRepository categoryRepository) {
+        this.categoryRepository = categoryRepository;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int updated = categoryRepository.initMissingPaths();
+        if (updated > 0) {
+            log.info("Initialized materialized path of {} root categories", updated);
+        }
+    }
+}
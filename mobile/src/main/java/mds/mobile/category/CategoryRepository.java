@@ -1,9 +1,59 @@
 package mds.mobile.category;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Long> {
-}
 
+    // parentId null : comparé aux catégories racines
+    boolean existsByParentIdAndNom(Long parentId, String nom);
+
+    boolean existsByParentIdAndNomAndIdNot(Long parentId, String nom, Long id);
+
+    boolean existsByParentId(Long parentId);
+
+    @Query("select c.id from Category c where c.chemin like concat(:chemin, '%')")
+    List<Long> findSubtreeIds(@Param("chemin") String chemin);
+
+    @Query("select c.chemin from Category c where c.id = :id")
+    Optional<String> findChemin(@Param("id") Long id);
+
+    /**
+     * Verrouille les catégories d'un déplacement ou d'une création, pour que les chemins lus restent
+     * valables jusqu'à la fin de la transaction.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Category c where c.id in :ids order by c.id")
+    List<Category> lockAll(@Param("ids") Collection<Long> ids);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Category c set c.parentId = :parentId where c.id = :id")
+    int reparent(@Param("id") Long id, @Param("parentId") Long parentId);
+
+    /**
+     * Remplace le préfixe {@code from} par {@code to} dans le chemin de toute la sous-arborescence,
+     * en une seule requête sur l'index des chemins.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("""
+            update Category c set c.chemin = concat(:to, substring(c.chemin, :fromLength + 1))
+            where c.chemin like concat(:from, '%')""")
+    int rewritePaths(@Param("from") String from, @Param("to") String to, @Param("fromLength") int fromLength);
+
+    // Catégories créées avant les chemins matérialisés : rattachées à la racine
+    @Transactional
+    @Modifying
+    @Query("update Category c set c.chemin = concat('/', cast(c.id as String), '/') where c.chemin is null")
+    int initMissingPaths();
+}
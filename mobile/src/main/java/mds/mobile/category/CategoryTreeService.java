@@ -0,0 +1,146 @@
+package mds.mobile.category;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import mds.mobile.cache.CacheInvalidationBus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Arborescence des catégories en chemins matérialisés ({@code chemin} = ids depuis la racine, ex. "/3/17/").
+ *
+ * La sous-arborescence d'une catégorie est l'ensemble des chemins qui commencent par le sien : une
+ * seule requête par préfixe sur l'index, sans parcours récursif. Un déplacement réécrit ce préfixe
+ * pour toute la sous-arborescence en une requête.
+ */
+@Service
+public class CategoryTreeService {
+
+    private final CategoryRepository categoryRepository;
+    private final CacheInvalidationBus invalidationBus;
+    private final EntityManager entityManager;
+
+    public CategoryTreeService(CategoryRepository categoryRepository, CacheInvalidationBus invalidationBus,
+                               EntityManager entityManager) {
+        this.categoryRepository = categoryRepository;
+        this.invalidationBus = invalidationBus;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * @return vide si le parent n'existe pas
+     */
+    @Transactional
+    public Optional<Category> create(String nom, Long parentId) {
+        String parentPath = "/";
+        if (parentId != null) {
+            List<Category> locked = categoryRepository.lockAll(List.of(parentId));
+            if (locked.isEmpty()) {
+                return Optional.empty();
+            }
+            parentPath = locked.get(0).getChemin();
+        }
+        Category saved = categoryRepository.saveAndFlush(Category.builder().nom(nom).parentId(parentId).build());
+        // L'id n'est connu qu'après l'insertion
+        saved.setChemin(parentPath + saved.getId() + "/");
+        invalidationBus.publish(CacheInvalidationBus.CATEGORY, saved.getId());
+        return Optional.of(categoryRepository.save(saved));
+    }
+
+    /**
+     * Rattache la catégorie à {@code parentId} (null : racine) avec toute sa sous-arborescence.
+     *
+     * Verrouille la catégorie, le nouveau parent et tous ses ancêtres, par id croissant : deux
+     * déplacements croisés (A sous un descendant de B, B sous un descendant de A) se disputent alors
+     * au moins une ligne et le second voit les chemins réécrits par le premier.
+     *
+     * @return vide si la catégorie ou le parent n'existe pas
+     * @throws IllegalArgumentException si le parent est la catégorie elle-même ou l'un de ses descendants
+     */
+    @Transactional
+    public Optional<Category> move(Long id, Long parentId) {
+        Set<Long> ids = new TreeSet<>(List.of(id));
+        if (parentId != null) {
+            ids.add(parentId);
+            categoryRepository.findChemin(parentId).ifPresent(chemin -> ids.addAll(pathIds(chemin)));
+        }
+        Map<Long, Category> locked = lock(ids);
+        Category category = locked.get(id);
+        Category parent = parentId != null ? locked.get(parentId) : null;
+        if (category == null || (parentId != null && parent == null)) {
+            return Optional.empty();
+        }
+        // Le parent a pu être déplacé entre la lecture de son chemin et le verrou : on complète avec ses
+        // ancêtres actuels, stables puisque le parent est maintenant verrouillé
+        List<Long> ancestors = parent != null ? pathIds(parent.getChemin()) : List.of();
+        if (!locked.keySet().containsAll(ancestors)) {
+            Set<Long> missing = new TreeSet<>(ancestors);
+            missing.removeAll(locked.keySet());
+            locked.putAll(lock(missing));
+        }
+        if (parent != null && parent.getChemin().startsWith(category.getChemin())) {
+            throw new IllegalArgumentException("Une catégorie ne peut pas être déplacée sous elle-même");
+        }
+
+        String from = category.getChemin();
+        String to = (parent != null ? parent.getChemin() : "/") + id + "/";
+        categoryRepository.reparent(id, parentId);
+        if (!from.equals(to)) {
+            categoryRepository.rewritePaths(from, to, from.length());
+        }
+        // Les chemins de toute la sous-arborescence ont changé, et les documents embarquent leur catégorie
+        invalidationBus.publishAll(CacheInvalidationBus.CATEGORY);
+        invalidationBus.publishAll(CacheInvalidationBus.DOCUMENT);
+        return categoryRepository.findById(id);
+    }
+
+    /**
+     * Supprime une catégorie sans sous-catégories.
+     *
+     * La ligne est verrouillée avant la recherche d'enfants : une création ou un déplacement sous cette
+     * catégorie verrouille aussi son parent, il attend donc la suppression (et ne trouve plus de parent)
+     * ou l'a précédée et son enfant est vu ici.
+     *
+     * @return false si la catégorie n'existe pas
+     * @throws IllegalStateException si la catégorie a des sous-catégories
+     */
+    @Transactional
+    public boolean delete(Long id) {
+        Category category = lock(Set.of(id)).get(id);
+        if (category == null) {
+            return false;
+        }
+        if (categoryRepository.existsByParentId(id)) {
+            throw new IllegalStateException("La catégorie contient des sous-catégories");
+        }
+        categoryRepository.delete(category);
+        invalidationBus.publish(CacheInvalidationBus.CATEGORY, id);
+        return true;
+    }
+
+    /**
+     * Verrouille les catégories dans l'ordre des ids et relit leur état sous le verrou : une entité déjà
+     * chargée dans le contexte de persistance (open-in-view) garderait sinon le chemin lu avant.
+     */
+    private Map<Long, Category> lock(Set<Long> ids) {
+        Map<Long, Category> locked = new HashMap<>();
+        for (Category category : categoryRepository.lockAll(ids)) {
+            entityManager.refresh(category, LockModeType.PESSIMISTIC_WRITE);
+            locked.put(category.getId(), category);
+        }
+        return locked;
+    }
+
+    // "/3/17/" -> [3, 17]
+    private static List<Long> pathIds(String chemin) {
+        return Arrays.stream(chemin.split("/")).filter(part -> !part.isEmpty()).map(Long::valueOf).toList();
+    }
+}
@@ -0,0 +1,103 @@
+package mds.mobile.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DataSource applicative : un pool primaire (spring.datasource.*) et zéro ou plusieurs pools réplicas
+ * (datasource.replicas.urls, séparés par des virgules). Sans réplica, tout passe par le primaire.
+ *
+ * Chaque pool Hikari publie ses métriques sous {@code hikaricp.connections.*} avec le tag {@code pool}.
+ * Tous les pools ouvrent leurs connexions avec {@code useCursorFetch=true} : sous MySQL, une requête
+ * avec fetch size (lectures en flux) lit alors par curseur côté serveur au lieu de tout charger.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    @Value("${spring.datasource.driver-class-name}")
+    private String driverClassName;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int primaryPoolSize;
+
+    @Value("${datasource.replicas.urls:}")
+    private List<String> replicaUrls;
+
+    @Value("${datasource.replicas.username:${spring.datasource.username}}")
+    private String replicaUsername;
+
+    @Value("${datasource.replicas.password:${spring.datasource.password}}")
+    private String replicaPassword;
+
+    @Value("${datasource.replicas.maximum-pool-size:10}")
+    private int replicaPoolSize;
+
+    @Value("${datasource.replicas.max-lag-seconds:5}")
+    private long maxLagSeconds;
+
+    @Value("${datasource.read-your-writes-ms:5000}")
+    private long readYourWritesMillis;
+
+    @Bean
+    @Lazy(false)
+    public ReadWriteRoutingDataSource routingDataSource(MeterRegistry meterRegistry) {
+        HikariDataSource primary = pool("primary", url, username, password, primaryPoolSize, false, meterRegistry);
+
+        List<ReplicaPool> replicas = new ArrayList<>();
+        for (String replicaUrl : replicaUrls) {
+            if (replicaUrl.isBlank()) {
+                continue;
+            }
+            String name = "replica-" + replicas.size();
+            replicas.add(new ReplicaPool(name,
+                    pool(name, replicaUrl.trim(), replicaUsername, replicaPassword, replicaPoolSize, true, meterRegistry)));
+        }
+
+        return new ReadWriteRoutingDataSource(primary, replicas, maxLagSeconds, readYourWritesMillis, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    /**
+     * Pool démarré à la première connexion demandée (comme le pool auto-configuré par Spring Boot) :
+     * ni le démarrage ni un réplica indisponible ne bloquent l'application.
+     */
+    private HikariDataSource pool(String name, String jdbcUrl, String user, String pass, int maxSize,
+                                  boolean readOnly, MeterRegistry meterRegistry) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl(jdbcUrl);
+        pool.setUsername(user);
+        pool.setPassword(pass);
+        pool.setDriverClassName(driverClassName);
+        pool.setMaximumPoolSize(maxSize);
+        pool.setReadOnly(readOnly);
+        pool.setMetricRegistry(meterRegistry);
+        // Propriété du driver : vaut pour les réplicas sans être répétée dans chaque url
+        pool.addDataSourceProperty("useCursorFetch", "true");
+        return pool;
+    }
+}
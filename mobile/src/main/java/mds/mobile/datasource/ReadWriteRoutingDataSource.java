@@ -0,0 +1,165 @@
+package mds.mobile.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Route les transactions en lecture seule vers un réplica et tout le reste vers le primaire.
+ *
+ * Un réplica n'est choisi que si son retard mesuré reste sous la tolérance configurée.
+ * Après un commit en écriture, l'utilisateur concerné lit sur le primaire pendant la fenêtre
+ * "read-your-writes", pour ne jamais relire un état antérieur à sa propre écriture.
+ *
+ * Doit être enveloppé dans un {@code LazyConnectionDataSourceProxy} : le flag read-only
+ * de la transaction n'est connu qu'après son ouverture.
+ */
+public final class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    static final String PRIMARY = "primary";
+
+    private final HikariDataSource primary;
+    private final List<ReplicaPool> replicas;
+    private final long maxLagSeconds;
+    private final long stickyNanos;
+    private final Map<String, Long> stickyUntil = new ConcurrentHashMap<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private final Counter writes;
+    private final Counter primaryReads;
+    private final Map<String, Counter> replicaReads = new HashMap<>();
+
+    public ReadWriteRoutingDataSource(HikariDataSource primary, List<ReplicaPool> replicas,
+                                      long maxLagSeconds, long readYourWritesMillis, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.maxLagSeconds = maxLagSeconds;
+        this.stickyNanos = TimeUnit.MILLISECONDS.toNanos(readYourWritesMillis);
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (ReplicaPool replica : this.replicas) {
+            targets.put(replica.name(), replica.dataSource());
+            replicaReads.put(replica.name(), routingCounter(meterRegistry, replica.name(), "read"));
+            Gauge.builder("datasource.replica.lag", replica, ReplicaPool::lagSeconds)
+                    .tag("pool", replica.name())
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+
+        this.writes = routingCounter(meterRegistry, PRIMARY, "write");
+        this.primaryReads = routingCounter(meterRegistry, PRIMARY, "read");
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String user = currentUser();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            stickToPrimaryAfterCommit(user);
+            writes.increment();
+            return PRIMARY;
+        }
+
+        if (user != null && isSticky(user)) {
+            primaryReads.increment();
+            return PRIMARY;
+        }
+
+        ReplicaPool replica = pickReplica();
+        if (replica == null) {
+            primaryReads.increment();
+            return PRIMARY;
+        }
+        replicaReads.get(replica.name()).increment();
+        return replica.name();
+    }
+
+    /**
+     * Round-robin sur les réplicas dont le retard est dans la tolérance, {@code null} si aucun.
+     */
+    private ReplicaPool pickReplica() {
+        int size = replicas.size();
+        if (size == 0) {
+            return null;
+        }
+        int start = Math.floorMod(nextReplica.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            ReplicaPool candidate = replicas.get((start + i) % size);
+            if (candidate.lagSeconds() <= maxLagSeconds) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private boolean isSticky(String user) {
+        Long until = stickyUntil.get(user);
+        return until != null && until - System.nanoTime() > 0;
+    }
+
+    private void stickToPrimaryAfterCommit(String user) {
+        if (user == null || stickyNanos <= 0 || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                stickyUntil.put(user, System.nanoTime() + stickyNanos);
+            }
+        });
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return String.valueOf(authentication.getPrincipal());
+    }
+
+    private static Counter routingCounter(MeterRegistry meterRegistry, String pool, String access) {
+        return Counter.builder("datasource.routing")
+                .tag("pool", pool)
+                .tag("access", access)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Mesure le retard de chaque réplica et purge les fenêtres read-your-writes expirées.
+     */
+    @Scheduled(fixedDelayString = "${datasource.replicas.lag-check-ms:2000}")
+    public void refreshReplicaState() {
+        for (ReplicaPool replica : replicas) {
+            replica.refreshLag();
+        }
+        long now = System.nanoTime();
+        stickyUntil.values().removeIf(until -> until - now <= 0);
+    }
+
+    @Override
+    public void destroy() {
+        for (ReplicaPool replica : replicas) {
+            replica.dataSource().close();
+        }
+        primary.close();
+    }
+}
@@ -0,0 +1,56 @@
+package mds.mobile.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Pool de connexions vers un réplica MySQL, avec son dernier retard de réplication mesuré.
+ */
+class ReplicaPool {
+
+    private final String name;
+    private final HikariDataSource dataSource;
+    private volatile long lagSeconds = Long.MAX_VALUE;
+
+    ReplicaPool(String name, HikariDataSource dataSource) {
+        this.name = name;
+        this.dataSource = dataSource;
+    }
+
+    String name() {
+        return name;
+    }
+
+    HikariDataSource dataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Retard en secondes ; {@code Long.MAX_VALUE} si le réplica est injoignable ou si la réplication est arrêtée.
+     */
+    long lagSeconds() {
+        return lagSeconds;
+    }
+
+    /**
+     * Relit {@code Seconds_Behind_Source}. Un serveur sans statut de réplication (ex. : le primaire
+     * lui-même en développement) est considéré à jour.
+     */
+    void refreshLag() {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SHOW REPLICA STATUS")) {
+            if (!rs.next()) {
+                lagSeconds = 0;
+                return;
+            }
+            long lag = rs.getLong("Seconds_Behind_Source");
+            lagSeconds = rs.wasNull() ? Long.MAX_VALUE : lag;
+        } catch (Exception e) {
+            lagSeconds = Long.MAX_VALUE;
+        }
+    }
+}
@@ -1,17 +1,21 @@
 package mds.mobile.document;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 import mds.mobile.user.User;
 import mds.mobile.category.Category; // added import
+import org.hibernate.annotations.BatchSize;
 
 import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.UUID;
 
 @Entity
 @Getter
 @Setter
-@Table(name = "documents")
+@Table(name = "documents", indexes = @Index(name = "idx_documents_segment_id", columnList = "segmentId"))
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
@@ -22,16 +26,37 @@ public class Document {
 
     private String titre; // Titre du document
     private String description; // Description du contenu
-    private String cheminFichier; // Chemin où le fichier est stocké (local ou cloud)
+    private String cheminFichier; // Chemin où le fichier est stocké (local ou cloud), null si rangé dans un segment
     private String typeFichier; // Extension ou type MIME du fichier (pdf, docx, png...)
     private long taille; // Taille du fichier en octets
 
+    // Petits fichiers rangés dans un segment : déplacés uniquement par la compaction (requête dédiée)
+    @JsonIgnore
+    @Column(updatable = false)
+    private UUID segmentId; // null si le fichier est un objet à part entière (cheminFichier)
+
+    @JsonIgnore
+    @Column(updatable = false)
+    private Long segmentOffset; // position du fichier dans le segment, longueur = taille
+
     @ManyToOne
     private User proprietaire; // L'utilisateur qui a posté le document
 
     @ManyToOne
     private Category categorie; // Catégorie du document
 
+    // Tags libres (minuscules) ; les recherches passent par l'index en mémoire (TagIndex)
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "document_tags", joinColumns = @JoinColumn(name = "document_id"))
+    @Column(name = "tag", length = 50, nullable = false)
+    @BatchSize(size = 100)
+    @Builder.Default
+    private Set<String> tags = new HashSet<>();
+
+    // Incrémenté en différé par DownloadCounter (requête dédiée), jamais par l'enregistrement de l'entité
+    @Column(updatable = false)
+    private long telechargements; // Nombre total de téléchargements
+
     private LocalDateTime dateDepot; // Date de dépôt
     private LocalDateTime dateModification; // Date de dernière modification
 }
@@ -1,23 +1,50 @@
 package mds.mobile.document;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import mds.mobile.cache.CacheInvalidationBus;
+import mds.mobile.cache.LocalCache;
+import mds.mobile.download.DownloadCounter;
+import mds.mobile.download.PopularDocument;
+import mds.mobile.job.JobQueue;
 import mds.mobile.security.CurrentUserService;
 import mds.mobile.category.CategoryRepository;
 import mds.mobile.category.Category;
-import mds.mobile.storage.MinioStorageService;
+import mds.mobile.segment.SegmentLocation;
+import mds.mobile.segment.SegmentStore;
+import mds.mobile.storage.ObjectDeleteJob;
+import mds.mobile.storage.ObjectDiskCache;
+import mds.mobile.storage.StorageBackend;
+import mds.mobile.storage.StorageExceptionHandler;
+import mds.mobile.storage.StorageUnavailableException;
+import mds.mobile.storage.ZeroCopyFileBody;
+import mds.mobile.tag.TagIndex;
+import mds.mobile.tag.TagQuery;
+import mds.mobile.tag.TagSearchResult;
 import mds.mobile.user.User;
 import mds.mobile.user.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @RestController
@@ -27,15 +54,35 @@ public class DocumentController {
     private final DocumentRepository documentRepository;
     private final CurrentUserService currentUserService;
     private final CategoryRepository categoryRepository;
-    private final MinioStorageService storageService;
+    private final StorageBackend storageService;
     private final UserRepository userRepository;
+    private final ObjectDiskCache objectCache;
+    private final CacheInvalidationBus invalidationBus;
+    private final LocalCache<Document> documents;
+    private final SegmentStore segmentStore;
+    private final DocumentExporter exporter;
+    private final TagIndex tagIndex;
+    private final DownloadCounter downloadCounter;
+    private final JobQueue jobQueue;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxSearchResults;
 
-    public DocumentController(DocumentRepository documentRepository, CurrentUserService currentUserService, CategoryRepository categoryRepository, MinioStorageService storageService, UserRepository userRepository) {
+    public DocumentController(DocumentRepository documentRepository, CurrentUserService currentUserService, CategoryRepository categoryRepository, StorageBackend storageService, UserRepository userRepository, ObjectDiskCache objectCache, CacheInvalidationBus invalidationBus, SegmentStore segmentStore, DocumentExporter exporter, TagIndex tagIndex, DownloadCounter downloadCounter, JobQueue jobQueue, PlatformTransactionManager transactionManager, @Value("${tags.search.max-results:1000}") int maxSearchResults) {
         this.documentRepository = documentRepository;
         this.currentUserService = currentUserService;
         this.categoryRepository = categoryRepository;
         this.storageService = storageService;
         this.userRepository = userRepository;
+        this.objectCache = objectCache;
+        this.invalidationBus = invalidationBus;
+        this.documents = invalidationBus.cache(CacheInvalidationBus.DOCUMENT);
+        this.segmentStore = segmentStore;
+        this.exporter = exporter;
+        this.tagIndex = tagIndex;
+        this.downloadCounter = downloadCounter;
+        this.jobQueue = jobQueue;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxSearchResults = maxSearchResults;
     }
 
     /**
@@ -47,12 +94,85 @@ public class DocumentController {
         return ResponseEntity.ok(documents);
     }
 
+    /**
+     * GET /documents/export - Catalogue complet en NDJSON (une ligne JSON par document), pour le back-office.
+     * Le corps est écrit en flux : une erreur en cours d'export coupe la connexion.
+     */
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    @PreAuthorize("isAuthenticated()")
+    public void export(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        exporter.export(response.getOutputStream());
+    }
+
+    /**
+     * GET /documents/search - Recherche par tags, évaluée sur l'index en mémoire :
+     * {@code tags} (tous), {@code anyTags} (au moins un), {@code excludeTags} (aucun), filtrable par
+     * propriétaire et par catégorie (sous-catégories comprises). Ex. "facture ET 2026 ET NON archive" :
+     * {@code ?tags=facture,2026&excludeTags=archive}
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam(required = false) List<String> tags,
+                                    @RequestParam(required = false) List<String> anyTags,
+                                    @RequestParam(required = false) List<String> excludeTags,
+                                    @RequestParam(required = false) UUID proprietaireId,
+                                    @RequestParam(required = false) Long categorieId,
+                                    @RequestParam(defaultValue = "100") int limit) {
+        if (!tagIndex.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "index_unavailable", "message", "Index des tags en cours de construction"));
+        }
+        List<Long> categoryIds = null;
+        if (categorieId != null) {
+            Category categorie = categoryRepository.findById(categorieId).orElse(null);
+            if (categorie == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(Map.of("error", "invalid_category", "message", "Catégorie introuvable"));
+            }
+            categoryIds = categoryRepository.findSubtreeIds(categorie.getChemin());
+        }
+        TagQuery query;
+        try {
+            query = new TagQuery(TagIndex.normalize(tags), TagIndex.normalize(anyTags), TagIndex.normalize(excludeTags),
+                    proprietaireId, categoryIds, Math.max(0, Math.min(limit, maxSearchResults)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "invalid_tag", "message", e.getMessage()));
+        }
+
+        TagSearchResult result = tagIndex.search(query);
+        // Seule la page de résultats est lue en base, remise dans l'ordre de l'index
+        Map<UUID, Integer> positions = new HashMap<>();
+        for (int i = 0; i < result.ids().size(); i++) {
+            positions.put(result.ids().get(i), i);
+        }
+        List<Document> found = documentRepository.findAllById(result.ids()).stream()
+                .sorted(Comparator.comparing(document -> positions.get(document.getId())))
+                .toList();
+        return ResponseEntity.ok(new DocumentSearchResponse(result.total(), found));
+    }
+
+    /**
+     * GET /documents/popular - Documents les plus téléchargés des derniers jours, servis depuis la mémoire
+     */
+    @GetMapping("/popular")
+    public ResponseEntity<List<DocumentPopularity>> popular(@RequestParam(defaultValue = "20") int limit) {
+        List<DocumentPopularity> popular = new ArrayList<>();
+        for (PopularDocument entry : downloadCounter.popular(limit)) {
+            // Document supprimé depuis le dernier calcul du classement : ignoré
+            documents.get(entry.documentId(), () -> documentRepository.findById(entry.documentId()))
+                    .ifPresent(document -> popular.add(new DocumentPopularity(document, entry.hits())));
+        }
+        return ResponseEntity.ok(popular);
+    }
+
     /**
      * GET /documents/{id} - Récupère un document par id
      */
     @GetMapping("/{id}")
     public ResponseEntity<?> getOne(@PathVariable UUID id) {
-        return documentRepository.findById(id)
+        return documents.get(id, () -> documentRepository.findById(id))
                 .<ResponseEntity<?>>map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(Map.of("error", "not_found", "message", "Document non trouvé")));
@@ -62,24 +182,47 @@ public class DocumentController {
      * GET /documents/{id}/file - Récupère le fichier (stream) pour affichage/téléchargement
      */
     @GetMapping("/{id}/file")
-    public ResponseEntity<?> getFile(@PathVariable UUID id) {
-        return documentRepository.findById(id)
+    public ResponseEntity<?> getFile(@PathVariable UUID id, HttpServletRequest request) {
+        return documents.get(id, () -> documentRepository.findById(id))
                 .map(doc -> {
+                    // Les requêtes Range suivantes d'une même lecture (vidéo, reprise) ne comptent pas
+                    String range = request.getHeader(HttpHeaders.RANGE);
+                    if (range == null || range.startsWith("bytes=0-")) {
+                        downloadCounter.record(id);
+                    }
+                    if (doc.getSegmentId() != null) {
+                        return getPackedFile(doc, request);
+                    }
                     try {
                         var stat = storageService.stat(doc.getCheminFichier());
-                        var stream = storageService.getObject(doc.getCheminFichier());
-                        var resource = new InputStreamResource(stream);
 
                         String contentType = stat.contentType();
                         if (contentType == null || contentType.isBlank()) {
                             contentType = MediaType.APPLICATION_OCTET_STREAM_VALUE;
                         }
 
-                        return ResponseEntity.ok()
+                        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
                                 .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + (doc.getTitre() != null ? doc.getTitre() : "fichier") + "\"")
                                 .contentType(MediaType.parseMediaType(contentType))
-                                .contentLength(stat.size())
-                                .body(resource);
+                                .contentLength(stat.size());
+
+                        // Backend local : le fichier est envoyé directement depuis le disque
+                        Path local = storageService.localPath(doc.getCheminFichier()).orElse(null);
+                        if (local != null) {
+                            return response.body(ZeroCopyFileBody.of(request, local, stat.size()));
+                        }
+
+                        // Objet chaud : servi depuis le disque local, sans aller-retour vers MinIO
+                        Path cached = objectCache.getOrLoad(doc.getCheminFichier(), stat.etag(), stat.size(),
+                                () -> storageService.getObject(doc.getCheminFichier()));
+                        if (cached != null) {
+                            return response.body(ZeroCopyFileBody.of(request, cached, stat.size()));
+                        }
+
+                        var stream = storageService.getObject(doc.getCheminFichier());
+                        return response.body(new InputStreamResource(stream));
+                    } catch (StorageUnavailableException e) {
+                        return StorageExceptionHandler.unavailable(e);
                     } catch (Exception e) {
                         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                                 .body(Map.of("error", "read_failed", "message", e.getMessage()));
@@ -90,7 +233,36 @@ public class DocumentController {
     }
 
     /**
-     * POST /documents - Crée un document avec upload du fichier vers MinIO (auth requis)
+     * Petit fichier rangé dans un segment : une lecture positionnée, sans stat (taille et type sont sur la ligne)
+     */
+    private ResponseEntity<?> getPackedFile(Document doc, HttpServletRequest request) {
+        try {
+            String contentType = doc.getTypeFichier();
+            if (contentType == null || contentType.isBlank()) {
+                contentType = MediaType.APPLICATION_OCTET_STREAM_VALUE;
+            }
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + (doc.getTitre() != null ? doc.getTitre() : "fichier") + "\"")
+                    .contentType(MediaType.parseMediaType(contentType))
+                    .contentLength(doc.getTaille());
+
+            Path local = segmentStore.localPath(doc.getSegmentId()).orElse(null);
+            if (local != null) {
+                return response.body(ZeroCopyFileBody.of(request, local, doc.getSegmentOffset(), doc.getTaille()));
+            }
+            var stream = segmentStore.open(doc.getSegmentId(), doc.getSegmentOffset(), doc.getTaille());
+            return response.body(new InputStreamResource(stream));
+        } catch (StorageUnavailableException e) {
+            return StorageExceptionHandler.unavailable(e);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "read_failed", "message", e.getMessage()));
+        }
+    }
+
+    /**
+     * POST /documents - Crée un document avec upload du fichier vers le stockage (auth requis)
      */
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @PreAuthorize("isAuthenticated()")
@@ -98,12 +270,20 @@ public class DocumentController {
             @RequestPart("file") MultipartFile file,
             @RequestParam(required = false) String titre,
             @RequestParam(required = false) String description,
-            @RequestParam(required = false) Long categorieId
+            @RequestParam(required = false) Long categorieId,
+            @RequestParam(required = false) List<String> tags
     ) {
         if (file == null || file.isEmpty()) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("error", "invalid_file", "message", "Aucun fichier fourni ou fichier vide"));
         }
+        Set<String> normalizedTags;
+        try {
+            normalizedTags = TagIndex.normalize(tags);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "invalid_tag", "message", e.getMessage()));
+        }
 
         UUID currentUserId = currentUserService.getCurrentUserId();
         User proprietaire = userRepository.findById(currentUserId).orElse(null);
@@ -124,7 +304,14 @@ public class DocumentController {
         try {
             String sanitizedOriginal = file.getOriginalFilename() != null ? file.getOriginalFilename().replace("\\", "_").replace("/", "_") : "file";
             String objectName = currentUserId + "/" + UUID.randomUUID() + "_" + sanitizedOriginal;
-            String objectKey = storageService.upload(file, objectName);
+            // Petits fichiers : regroupés dans un segment plutôt qu'un objet chacun, sans objet propre
+            String objectKey = null;
+            SegmentLocation location = null;
+            if (segmentStore.accepts(file.getSize())) {
+                location = segmentStore.append(file.getBytes());
+            } else {
+                objectKey = storageService.upload(file, objectName);
+            }
 
             Document doc = Document.builder()
                     .titre(titre)
@@ -132,14 +319,25 @@ public class DocumentController {
                     .cheminFichier(objectKey)
                     .typeFichier(file.getContentType())
                     .taille(file.getSize())
+                    .segmentId(location != null ? location.segmentId() : null)
+                    .segmentOffset(location != null ? location.offset() : null)
                     .proprietaire(proprietaire)
                     .categorie(categorie)
+                    .tags(new HashSet<>(normalizedTags))
                     .dateDepot(LocalDateTime.now())
                     .dateModification(LocalDateTime.now())
                     .build();
 
-            Document saved = documentRepository.save(doc);
+            Document saved = transactionTemplate.execute(status -> {
+                Document inserted = documentRepository.save(doc);
+                // Indexé par les autres nœuds à la lecture du journal
+                invalidationBus.publish(CacheInvalidationBus.DOCUMENT, inserted.getId());
+                return inserted;
+            });
+            tagIndex.index(saved);
             return ResponseEntity.status(HttpStatus.CREATED).body(saved);
+        } catch (StorageUnavailableException e) {
+            return StorageExceptionHandler.unavailable(e);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "upload_failed", "message", e.getMessage()));
@@ -162,6 +360,17 @@ public class DocumentController {
                                 .body(Map.of("error", "forbidden", "message", "Vous n'êtes pas le propriétaire de ce document"));
                     }
 
+                    // Tags validés avant toute modification : un refus laisse le document intact
+                    Set<String> tags = null;
+                    if (request.tags() != null) {
+                        try {
+                            tags = TagIndex.normalize(request.tags());
+                        } catch (IllegalArgumentException e) {
+                            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                                    .body(Map.of("error", "invalid_tag", "message", e.getMessage()));
+                        }
+                    }
+
                     // Mettre à jour les champs
                     if (request.titre() != null) {
                         document.setTitre(request.titre());
@@ -177,10 +386,19 @@ public class DocumentController {
                         }
                         document.setCategorie(categorie);
                     }
+                    if (tags != null) {
+                        document.getTags().clear();
+                        document.getTags().addAll(tags);
+                    }
 
                     document.setDateModification(LocalDateTime.now());
 
-                    Document updatedDocument = documentRepository.save(document);
+                    Document updatedDocument = transactionTemplate.execute(status -> {
+                        Document updated = documentRepository.save(document);
+                        invalidationBus.publish(CacheInvalidationBus.DOCUMENT, id);
+                        return updated;
+                    });
+                    tagIndex.index(updatedDocument);
                     return ResponseEntity.ok(updatedDocument);
                 })
                 .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -203,8 +421,17 @@ public class DocumentController {
                                 .body(Map.of("error", "forbidden", "message", "Vous n'êtes pas le propriétaire de ce document"));
                     }
 
-                    // Supprimer le document
-                    documentRepository.delete(document);
+                    // Supprimer le document ; l'objet est supprimé en arrière-plan, la tâche n'existe que si
+                    // la suppression est validée
+                    transactionTemplate.executeWithoutResult(status -> {
+                        documentRepository.delete(document);
+                        // Petit fichier rangé dans un segment : l'espace est repris par la compaction
+                        if (document.getSegmentId() == null) {
+                            jobQueue.enqueue(ObjectDeleteJob.TYPE, document.getCheminFichier());
+                        }
+                        invalidationBus.publish(CacheInvalidationBus.DOCUMENT, id);
+                    });
+                    tagIndex.remove(id);
                     return ResponseEntity.ok(Map.of("message", "Document supprimé avec succès"));
                 })
                 .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -0,0 +1,20 @@
+package mds.mobile.document;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Ligne de l'export NDJSON : métadonnées d'un document, propriétaire et catégorie réduits à leur id.
+ */
+public record DocumentExportRow(
+        UUID id,
+        String titre,
+        String description,
+        String cheminFichier,
+        String typeFichier,
+        long taille,
+        UUID proprietaireId,
+        Long categorieId,
+        LocalDateTime dateDepot,
+        LocalDateTime dateModification
+) {}
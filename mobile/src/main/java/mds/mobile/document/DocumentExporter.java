@@ -0,0 +1,58 @@
+package mds.mobile.document;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Export NDJSON du catalogue de documents : une ligne JSON par document, écrite au fil de la lecture.
+ *
+ * La mémoire utilisée ne dépend pas du nombre de documents : les lignes arrivent par paquets du curseur
+ * JDBC et sont sérialisées aussitôt ; la réponse est vidée toutes les {@code documents.export.flush-rows}
+ * lignes. La transaction en lecture seule part sur un réplica quand il y en a un.
+ */
+@Service
+public class DocumentExporter {
+
+    private final DocumentRepository documentRepository;
+    private final ObjectWriter writer;
+    private final int flushRows;
+
+    public DocumentExporter(DocumentRepository documentRepository, ObjectMapper objectMapper,
+                            @Value("${documents.export.flush-rows:500}") int flushRows) {
+        this.documentRepository = documentRepository;
+        this.writer = objectMapper.writerFor(DocumentExportRow.class)
+                .withRootValueSeparator("")
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.flushRows = Math.max(1, flushRows);
+    }
+
+    /**
+     * @return le nombre de documents exportés
+     */
+    @Transactional(readOnly = true)
+    public long export(OutputStream out) throws IOException {
+        long count = 0;
+        try (Stream<DocumentExportRow> rows = documentRepository.streamExportRows();
+             JsonGenerator generator = writer.createGenerator(out)) {
+            for (Iterator<DocumentExportRow> it = rows.iterator(); it.hasNext(); ) {
+                writer.writeValue(generator, it.next());
+                generator.writeRaw('\n');
+                if (++count % flushRows == 0) {
+                    generator.flush();
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,6 @@
+package mds.mobile.document;
+
+/**
+ * @param telechargementsPeriode téléchargements sur la fenêtre de popularité ({@code downloads.popular.days})
+ */
+public record DocumentPopularity(Document document, long telechargementsPeriode) {}
@@ -1,9 +1,112 @@
 package mds.mobile.document;
 
+import jakarta.persistence.QueryHint;
+import mds.mobile.archive.ArchiveEntry;
+import mds.mobile.segment.SegmentUsage;
+import mds.mobile.tag.TagIndexRow;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
-public interface DocumentRepository extends JpaRepository<Document, UUID> { }
\ No newline at end of file
+public interface DocumentRepository extends JpaRepository<Document, UUID> {
+
+    /**
+     * Contenu d'une archive, lu en flux comme l'export : projection sans entités et curseur JDBC.
+     * A consommer dans une transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            select new mds.mobile.archive.ArchiveEntry(d.titre, d.cheminFichier, d.typeFichier, d.taille,
+                d.segmentId, d.segmentOffset, d.dateModification)
+            from Document d where d.categorie.id = :categorieId order by d.dateDepot asc""")
+    Stream<ArchiveEntry> streamArchiveEntriesByCategorie(@Param("categorieId") Long categorieId);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            select new mds.mobile.archive.ArchiveEntry(d.titre, d.cheminFichier, d.typeFichier, d.taille,
+                d.segmentId, d.segmentOffset, d.dateModification)
+            from Document d where d.proprietaire.id = :proprietaireId order by d.dateDepot asc""")
+    Stream<ArchiveEntry> streamArchiveEntriesByProprietaire(@Param("proprietaireId") UUID proprietaireId);
+
+    /**
+     * Documents d'une catégorie et de toutes ses sous-catégories : préfixe de chemin sur l'index des catégories.
+     */
+    @Query("""
+            select d from Document d join d.categorie c
+            where c.chemin like concat(:chemin, '%') order by d.dateDepot asc""")
+    List<Document> findInCategorySubtree(@Param("chemin") String chemin);
+
+    /**
+     * Export complet, lu en flux : projection sans entités (rien ne s'accumule dans le contexte de
+     * persistance) et curseur JDBC par paquets de {@code fetch_size} lignes (curseur côté serveur sous
+     * MySQL, activé sur chaque pool par {@code DataSourceConfig}). A consommer dans une transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            select new mds.mobile.document.DocumentExportRow(d.id, d.titre, d.description, d.cheminFichier,
+                d.typeFichier, d.taille, p.id, c.id, d.dateDepot, d.dateModification)
+            from Document d left join d.proprietaire p left join d.categorie c""")
+    Stream<DocumentExportRow> streamExportRows();
+
+    // Chargement de l'index des tags : une ligne par tag, triées par date de dépôt puis par document
+    // pour les regrouper (les ordinaux suivent l'ordre de dépôt, comme les autres listes)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            select new mds.mobile.tag.TagIndexRow(d.id, p.id, c.id, t)
+            from Document d left join d.proprietaire p left join d.categorie c left join d.tags t
+            order by d.dateDepot, d.id""")
+    Stream<TagIndexRow> streamTagIndexRows();
+
+    @Query("""
+            select new mds.mobile.tag.TagIndexRow(d.id, p.id, c.id, t)
+            from Document d left join d.proprietaire p left join d.categorie c left join d.tags t
+            where d.id in :ids order by d.id""")
+    List<TagIndexRow> findTagIndexRows(@Param("ids") Collection<UUID> ids);
+
+    // Compaction des segments : lectures sur le primaire
+    @Transactional
+    @Query("""
+            select new mds.mobile.segment.SegmentUsage(d.segmentId, sum(d.taille))
+            from Document d where d.segmentId is not null group by d.segmentId""")
+    List<SegmentUsage> findSegmentUsage();
+
+    @Transactional
+    List<Document> findBySegmentIdOrderBySegmentOffsetAsc(UUID segmentId);
+
+    @Transactional
+    long countBySegmentId(UUID segmentId);
+
+    /**
+     * Déplace un document compacté, seulement s'il est toujours dans le segment d'origine.
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            update Document d set d.segmentId = :toSegment, d.segmentOffset = :offset
+            where d.id = :id and d.segmentId = :fromSegment""")
+    int relocate(@Param("id") UUID id, @Param("fromSegment") UUID fromSegment,
+                 @Param("toSegment") UUID toSegment, @Param("offset") long offset);
+}
@@ -0,0 +1,8 @@
+package mds.mobile.document;
+
+import java.util.List;
+
+/**
+ * @param total nombre total de documents correspondants, {@code documents} n'en contient que les premiers
+ */
+public record DocumentSearchResponse(long total, List<Document> documents) {}
@@ -1,7 +1,10 @@
 package mds.mobile.document;
 
+import java.util.Set;
+
 public record DocumentUpdateRequest(
     String titre,
     String description,
-    Long categorieId
+    Long categorieId,
+    Set<String> tags // null : inchangés, vide : tous retirés
 ) {}
@@ -0,0 +1,193 @@
+package mds.mobile.download;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compteurs de téléchargements des documents, écrits en base en différé.
+ *
+ * Un téléchargement incrémente un {@link LongAdder} en mémoire (cellules réparties entre les threads,
+ * sans verrou ni contention sur un document très demandé). Toutes les {@code downloads.flush-ms}, les
+ * deltas accumulés sont ajoutés au compteur total des documents et aux cumuls journaliers, en une
+ * requête par paquet de {@code downloads.flush-batch-size} documents. Un arrêt brutal perd au plus
+ * un intervalle ; un échec d'écriture est retenté au passage suivant.
+ *
+ * Le classement des plus téléchargés ({@code downloads.popular.days} derniers jours, tous nœuds
+ * confondus) est recalculé depuis les cumuls journaliers et servi depuis la mémoire, borné à
+ * {@code downloads.popular.size} documents.
+ */
+@Component
+@Lazy(false)
+public class DownloadCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(DownloadCounter.class);
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final DownloadDayRepository downloadDayRepository;
+    private final int flushBatchSize;
+    private final int popularSize;
+    private final int popularDays;
+    private final int retentionDays;
+
+    private final Map<UUID, Counter> counters = new ConcurrentHashMap<>();
+    /** Compteurs retirés de la table au passage précédent : un incrément tardif y est encore relevé */
+    private List<Counter> draining = List.of();
+    private volatile List<PopularDocument> popular = List.of();
+
+    public DownloadCounter(EntityManager entityManager, PlatformTransactionManager transactionManager,
+                           DownloadDayRepository downloadDayRepository,
+                           @Value("${downloads.flush-batch-size:500}") int flushBatchSize,
+                           @Value("${downloads.popular.size:100}") int popularSize,
+                           @Value("${downloads.popular.days:7}") int popularDays,
+                           @Value("${downloads.retention-days:8}") int retentionDays) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.downloadDayRepository = downloadDayRepository;
+        this.flushBatchSize = Math.max(1, flushBatchSize);
+        this.popularSize = popularSize;
+        this.popularDays = popularDays;
+        this.retentionDays = Math.max(retentionDays, popularDays);
+    }
+
+    public void record(UUID documentId) {
+        Counter counter = counters.get(documentId);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(documentId, Counter::new);
+        }
+        counter.hits.increment();
+    }
+
+    /**
+     * @return au plus {@code limit} documents, du plus au moins téléchargé
+     */
+    public List<PopularDocument> popular(int limit) {
+        List<PopularDocument> current = popular;
+        return current.subList(0, Math.max(0, Math.min(limit, current.size())));
+    }
+
+    @Scheduled(fixedDelayString = "${downloads.flush-ms:5000}")
+    public synchronized void flush() {
+        List<Counter> pending = new ArrayList<>();
+        List<Counter> idle = new ArrayList<>();
+        for (Counter counter : counters.values()) {
+            if (counter.delta() > 0) {
+                pending.add(counter);
+            } else {
+                idle.add(counter);
+            }
+        }
+        for (Counter counter : draining) {
+            if (counter.delta() > 0) {
+                pending.add(counter);
+            }
+        }
+
+        LocalDate today = LocalDate.now();
+        for (int from = 0; from < pending.size(); from += flushBatchSize) {
+            List<Counter> batch = pending.subList(from, Math.min(from + flushBatchSize, pending.size()));
+            long[] deltas = batch.stream().mapToLong(Counter::delta).toArray();
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(batch, deltas, today));
+            } catch (RuntimeException e) {
+                // Les deltas restent dans les compteurs et seront réécrits au prochain passage
+                log.warn("Unable to flush {} download counters: {}", batch.size(), e.getMessage());
+                return;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).flushed += deltas[i];
+            }
+        }
+
+        // Retrait en deux temps : un thread qui vient de lire le compteur l'incrémente encore dans
+        // l'intervalle, l'incrément est relevé par le passage suivant.
+        List<Counter> retired = new ArrayList<>(idle.size());
+        for (Counter counter : idle) {
+            if (counters.remove(counter.documentId, counter)) {
+                retired.add(counter);
+            }
+        }
+        draining = retired;
+    }
+
+    private void write(List<Counter> batch, long[] deltas, LocalDate today) {
+        StringBuilder update = new StringBuilder("update Document d set d.telechargements = d.telechargements + case d.id");
+        StringBuilder insert = new StringBuilder("insert into DownloadDay (documentId, jour, hits) values ");
+        for (int i = 0; i < batch.size(); i++) {
+            update.append(" when :id").append(i).append(" then :n").append(i);
+            insert.append(i > 0 ? ", " : "").append("(:id").append(i).append(", :jour, :n").append(i).append(')');
+        }
+        update.append(" else 0L end where d.id in (:ids)");
+        insert.append(" on conflict (documentId, jour) do update set hits = hits + excluded.hits");
+
+        Query updateQuery = entityManager.createQuery(update.toString());
+        Query insertQuery = entityManager.createQuery(insert.toString());
+        List<UUID> ids = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            UUID documentId = batch.get(i).documentId;
+            ids.add(documentId);
+            updateQuery.setParameter("id" + i, documentId).setParameter("n" + i, deltas[i]);
+            insertQuery.setParameter("id" + i, documentId).setParameter("n" + i, deltas[i]);
+        }
+        updateQuery.setParameter("ids", ids).executeUpdate();
+        insertQuery.setParameter("jour", today).executeUpdate();
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${downloads.popular.refresh-ms:60000}")
+    public void refreshPopular() {
+        try {
+            LocalDate since = LocalDate.now().minusDays(popularDays - 1L);
+            popular = List.copyOf(downloadDayRepository.findMostDownloaded(since, Limit.of(popularSize)));
+        } catch (RuntimeException e) {
+            log.warn("Unable to refresh popular documents: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${downloads.purge-ms:3600000}")
+    public void purge() {
+        try {
+            downloadDayRepository.deleteOlderThan(LocalDate.now().minusDays(retentionDays));
+        } catch (RuntimeException e) {
+            log.warn("Unable to purge download days: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private static final class Counter {
+
+        private final UUID documentId;
+        private final LongAdder hits = new LongAdder();
+        /** Part de {@link #hits} déjà écrite en base, modifiée sous le verrou de {@link #flush()} */
+        private long flushed;
+
+        private Counter(UUID documentId) {
+            this.documentId = documentId;
+        }
+
+        private long delta() {
+            return hits.sum() - flushed;
+        }
+    }
+}
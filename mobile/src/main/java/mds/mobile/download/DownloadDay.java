@@ -0,0 +1,34 @@
+package mds.mobile.download;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Téléchargements d'un document sur une journée, cumulés par tous les nœuds.
+ */
+@Entity
+@IdClass(DownloadDayId.class)
+@Table(name = "document_download_days", indexes = @Index(name = "idx_document_download_days_jour", columnList = "jour"))
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DownloadDay {
+    @Id
+    private UUID documentId;
+
+    @Id
+    private LocalDate jour;
+
+    @Column(nullable = false)
+    private long hits;
+}
@@ -0,0 +1,22 @@
+package mds.mobile.download;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.UUID;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class DownloadDayId implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private UUID documentId;
+    private LocalDate jour;
+}
@@ -0,0 +1,28 @@
+package mds.mobile.download;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DownloadDayRepository extends JpaRepository<DownloadDay, DownloadDayId> {
+
+    @Transactional(readOnly = true)
+    @Query("""
+            select new mds.mobile.download.PopularDocument(d.documentId, sum(d.hits))
+            from DownloadDay d where d.jour >= :since
+            group by d.documentId order by sum(d.hits) desc""")
+    List<PopularDocument> findMostDownloaded(@Param("since") LocalDate since, Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("delete from DownloadDay d where d.jour < :before")
+    int deleteOlderThan(@Param("before") LocalDate before);
+}
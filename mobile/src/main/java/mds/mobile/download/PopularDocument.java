@@ -0,0 +1,8 @@
+package mds.mobile.download;
+
+import java.util.UUID;
+
+/**
+ * Téléchargements d'un document sur la fenêtre de popularité.
+ */
+public record PopularDocument(UUID documentId, long hits) {}
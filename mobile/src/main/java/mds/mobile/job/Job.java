@@ -0,0 +1,54 @@
+package mds.mobile.job;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Tâche différée de la file {@code jobs}, supprimée dès qu'elle a réussi.
+ */
+@Entity
+@Table(name = "jobs", indexes = {
+        @Index(name = "idx_jobs_status_run_at", columnList = "status, runAt"),
+        @Index(name = "idx_jobs_status_locked_until", columnList = "status, lockedUntil")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Job {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 32)
+    private String type; // voir JobHandler.type()
+
+    @Column(nullable = false, length = 1024)
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private JobStatus status;
+
+    // Incrémenté à chaque prise en charge : sert aussi de jeton, un nœud dont le bail a expiré
+    // ne peut plus modifier la tâche reprise par un autre
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private Instant runAt; // pas avant cette date (report après un échec)
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    @Column(length = 128)
+    private String lockedBy;
+
+    private Instant lockedUntil;
+
+    @Column(length = 1000)
+    private String lastError;
+}
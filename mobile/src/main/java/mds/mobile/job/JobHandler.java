@@ -0,0 +1,19 @@
+package mds.mobile.job;
+
+/**
+ * Traitement d'un type de tâche de la file. Les implémentations sont des beans Spring, retrouvés
+ * par {@link JobWorker} d'après {@link #type()}.
+ *
+ * Une tâche peut être exécutée plus d'une fois (nœud arrêté avant d'avoir acquitté, bail expiré) :
+ * le traitement doit être idempotent.
+ */
+public interface JobHandler {
+
+    String type();
+
+    /**
+     * Une exception entraîne une nouvelle tentative, puis l'abandon de la tâche après
+     * {@code jobs.max-attempts} échecs.
+     */
+    void run(String payload) throws Exception;
+}
@@ -0,0 +1,36 @@
+package mds.mobile.job;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+/**
+ * Ajout de tâches à la file persistante {@code jobs}, exécutées en arrière-plan par {@link JobWorker}.
+ */
+@Component
+public class JobQueue {
+
+    private final JobRepository jobRepository;
+
+    public JobQueue(JobRepository jobRepository) {
+        this.jobRepository = jobRepository;
+    }
+
+    /**
+     * À appeler dans la transaction de l'écriture qui motive la tâche : la tâche n'est visible des
+     * workers qu'à sa validation, et disparaît avec elle en cas d'annulation.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String type, String payload) {
+        Instant now = Instant.now();
+        jobRepository.save(Job.builder()
+                .type(type)
+                .payload(payload)
+                .status(JobStatus.PENDING)
+                .runAt(now)
+                .createdAt(now)
+                .build());
+    }
+}
@@ -0,0 +1,75 @@
+package mds.mobile.job;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.LockOptions;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface JobRepository extends JpaRepository<Job, Long> {
+
+    /**
+     * Tâches exécutables, verrouillées jusqu'à la fin de la transaction. Délai de verrou
+     * {@link LockOptions#SKIP_LOCKED} : {@code FOR UPDATE SKIP LOCKED} sous MySQL 8, les lignes déjà
+     * verrouillées par un autre nœud sont sautées au lieu d'être attendues.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_LOCK_TIMEOUT, value = "" + LockOptions.SKIP_LOCKED))
+    @Query("select j from Job j where j.status = :status and j.runAt <= :now order by j.runAt, j.id")
+    List<Job> findClaimable(@Param("status") JobStatus status, @Param("now") Instant now, Limit limit);
+
+    // Les acquittements portent le numéro de tentative : sans effet si la tâche a été reprise entre-temps
+
+    @Transactional
+    @Modifying
+    @Query("delete from Job j where j.id = :id and j.attempts = :attempts")
+    int complete(@Param("id") Long id, @Param("attempts") int attempts);
+
+    @Transactional
+    @Modifying
+    @Query("""
+            update Job j set j.status = :status, j.runAt = :runAt, j.lastError = :error,
+                j.lockedBy = null, j.lockedUntil = null
+            where j.id = :id and j.attempts = :attempts""")
+    int release(@Param("id") Long id, @Param("attempts") int attempts, @Param("status") JobStatus status,
+                @Param("runAt") Instant runAt, @Param("error") String error);
+
+    /**
+     * Tâches d'un nœud arrêté en cours d'exécution (bail expiré) : remises en file, ou abandonnées si
+     * elles ont épuisé leurs tentatives.
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            update Job j set j.status = case when j.attempts >= :maxAttempts then :dead else :pending end,
+                j.lastError = 'lease expired', j.lockedBy = null, j.lockedUntil = null
+            where j.status = :running and j.lockedUntil < :now""")
+    int recoverExpired(@Param("now") Instant now, @Param("maxAttempts") int maxAttempts,
+                       @Param("running") JobStatus running, @Param("pending") JobStatus pending,
+                       @Param("dead") JobStatus dead);
+
+    @Transactional
+    @Query("select new mds.mobile.job.JobStatusCount(j.status, count(j)) from Job j group by j.status")
+    List<JobStatusCount> countByStatus();
+
+    @Transactional
+    @Query("select min(j.runAt) from Job j where j.status = :status and j.runAt <= :now")
+    Instant findOldestRunAt(@Param("status") JobStatus status, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Job j where j.status = :status and j.createdAt < :before")
+    int deleteOlderThan(@Param("status") JobStatus status, @Param("before") Instant before);
+}
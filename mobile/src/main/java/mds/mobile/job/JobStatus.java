@@ -0,0 +1,7 @@
+package mds.mobile.job;
+
+public enum JobStatus {
+    PENDING, // en attente, exécutable à partir de runAt
+    RUNNING, // prise en charge par un nœud jusqu'à lockedUntil
+    DEAD     // abandonnée après jobs.max-attempts échecs, conservée pour analyse
+}
@@ -0,0 +1,3 @@
+package mds.mobile.job;
+
+public record JobStatusCount(JobStatus status, long count) {}
@@ -0,0 +1,272 @@
+package mds.mobile.job;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Exécution des tâches de la file {@code jobs} sur un pool borné de {@code jobs.workers} threads.
+ *
+ * Toutes les {@code jobs.poll-ms}, le nœud réserve au plus autant de tâches qu'il a de workers libres
+ * ({@code SELECT ... FOR UPDATE SKIP LOCKED} : plusieurs nœuds se partagent la file sans s'attendre),
+ * les passe à RUNNING avec un bail de {@code jobs.lease-ms}, puis valide aussitôt : aucun verrou n'est
+ * tenu pendant l'exécution. Une tâche réussie est supprimée ; un échec la reporte de
+ * {@code jobs.backoff.initial-ms} doublé à chaque tentative (borné par {@code jobs.backoff.max-ms},
+ * avec une part aléatoire), jusqu'à {@code jobs.max-attempts} tentatives, après quoi elle passe à DEAD.
+ * Les tâches d'un nœud arrêté sont remises en file à l'expiration de leur bail.
+ *
+ * Profondeur de la file par état dans {@code jobs.queue.depth}, âge de la plus ancienne tâche
+ * exécutable non prise en charge dans {@code jobs.queue.lag}, exécutions dans {@code jobs.run}.
+ */
+@Component
+@Lazy(false)
+public class JobWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(JobWorker.class);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final JobRepository jobRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, JobHandler> handlers;
+    private final MeterRegistry meterRegistry;
+    private final int workers;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final long backoffInitialMillis;
+    private final long backoffMaxMillis;
+    private final Duration deadRetention;
+    private final long shutdownWaitMillis;
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+
+    private final ExecutorService executor;
+    private final AtomicInteger active = new AtomicInteger();
+    private final Map<JobStatus, AtomicLong> depth = new EnumMap<>(JobStatus.class);
+    private final AtomicLong lagMillis = new AtomicLong();
+    private volatile boolean stopping;
+
+    public JobWorker(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                     List<JobHandler> handlers, MeterRegistry meterRegistry,
+                     @Value("${jobs.workers:4}") int workers,
+                     @Value("${jobs.lease-ms:300000}") long leaseMillis,
+                     @Value("${jobs.max-attempts:8}") int maxAttempts,
+                     @Value("${jobs.backoff.initial-ms:1000}") long backoffInitialMillis,
+                     @Value("${jobs.backoff.max-ms:600000}") long backoffMaxMillis,
+                     @Value("${jobs.dead-retention-ms:604800000}") long deadRetentionMillis,
+                     @Value("${jobs.shutdown-wait-ms:10000}") long shutdownWaitMillis) {
+        this.jobRepository = jobRepository;
+        // Transactions en écriture : la réservation se fait sur le primaire
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.handlers = handlers.stream().collect(Collectors.toMap(JobHandler::type, Function.identity()));
+        this.meterRegistry = meterRegistry;
+        this.workers = Math.max(1, workers);
+        this.lease = Duration.ofMillis(leaseMillis);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffInitialMillis = Math.max(1, backoffInitialMillis);
+        this.backoffMaxMillis = Math.max(this.backoffInitialMillis, backoffMaxMillis);
+        this.deadRetention = Duration.ofMillis(deadRetentionMillis);
+        this.shutdownWaitMillis = shutdownWaitMillis;
+        this.executor = Executors.newFixedThreadPool(this.workers, Thread.ofPlatform().name("job-worker-", 1).factory());
+
+        for (JobStatus status : JobStatus.values()) {
+            AtomicLong count = new AtomicLong();
+            depth.put(status, count);
+            Gauge.builder("jobs.queue.depth", count, AtomicLong::get)
+                    .description("Tâches de la file, par état")
+                    .tag("status", status.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+        TimeGauge.builder("jobs.queue.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Attente de la plus ancienne tâche exécutable non prise en charge")
+                .register(meterRegistry);
+        Gauge.builder("jobs.workers.active", active, AtomicInteger::get)
+                .description("Tâches en cours d'exécution sur ce nœud")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${jobs.poll-ms:1000}")
+    public void poll() {
+        int free = workers - active.get();
+        if (stopping || free <= 0) {
+            return;
+        }
+        List<Job> claimed;
+        try {
+            claimed = transactionTemplate.execute(status -> claim(free));
+        } catch (RuntimeException e) {
+            log.warn("Unable to claim jobs: {}", e.getMessage());
+            return;
+        }
+        for (Job job : claimed) {
+            active.incrementAndGet();
+            try {
+                executor.execute(() -> {
+                    try {
+                        run(job);
+                    } finally {
+                        active.decrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Arrêt en cours : la tâche est rendue sans attendre l'expiration du bail
+                active.decrementAndGet();
+                release(job, JobStatus.PENDING, Instant.now(), "node shutting down", "release");
+            }
+        }
+    }
+
+    private List<Job> claim(int limit) {
+        Instant now = Instant.now();
+        List<Job> jobs = jobRepository.findClaimable(JobStatus.PENDING, now, Limit.of(limit));
+        for (Job job : jobs) {
+            job.setStatus(JobStatus.RUNNING);
+            job.setAttempts(job.getAttempts() + 1);
+            job.setLockedBy(nodeId);
+            job.setLockedUntil(now.plus(lease));
+        }
+        return jobs;
+    }
+
+    private void run(Job job) {
+        long start = System.nanoTime();
+        String outcome;
+        try {
+            JobHandler handler = handlers.get(job.getType());
+            if (handler == null) {
+                // Tâche ajoutée par une version plus récente (déploiement en cours) : reportée comme un
+                // échec, un nœud à jour la prendra
+                throw new IllegalStateException("No handler for job type " + job.getType());
+            }
+            handler.run(job.getPayload());
+            outcome = "success";
+            try {
+                jobRepository.complete(job.getId(), job.getAttempts());
+            } catch (RuntimeException e) {
+                // La tâche sera réexécutée à l'expiration du bail
+                log.warn("Unable to acknowledge job {}: {}", job.getId(), e.getMessage());
+            }
+        } catch (Exception e) {
+            if (job.getAttempts() >= maxAttempts) {
+                outcome = "dead";
+                log.error("Job {} ({}) failed {} times, giving up: {}", job.getId(), job.getType(), job.getAttempts(), e.toString());
+                release(job, JobStatus.DEAD, Instant.now(), e.toString(), outcome);
+            } else {
+                outcome = "retry";
+                Instant retryAt = Instant.now().plusMillis(backoffMillis(job.getAttempts()));
+                log.warn("Job {} ({}) failed, attempt {}/{}, retrying at {}: {}",
+                        job.getId(), job.getType(), job.getAttempts(), maxAttempts, retryAt, e.toString());
+                release(job, JobStatus.PENDING, retryAt, e.toString(), outcome);
+            }
+        }
+        Timer.builder("jobs.run")
+                .description("Exécutions des tâches de la file")
+                .tag("type", job.getType())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void release(Job job, JobStatus status, Instant runAt, String error, String outcome) {
+        try {
+            String truncated = error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+            jobRepository.release(job.getId(), job.getAttempts(), status, runAt, truncated);
+        } catch (RuntimeException e) {
+            log.warn("Unable to record {} for job {}: {}", outcome, job.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Délai doublé à chaque tentative, tiré entre la moitié et la totalité du palier pour que les
+     * tâches échouées ensemble (stockage indisponible...) ne reviennent pas toutes au même instant.
+     */
+    private long backoffMillis(int attempts) {
+        long ceiling = backoffInitialMillis << Math.min(attempts - 1, 30);
+        ceiling = ceiling <= 0 ? backoffMaxMillis : Math.min(ceiling, backoffMaxMillis);
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+
+    @Scheduled(fixedDelayString = "${jobs.recover-ms:60000}")
+    public void recoverExpired() {
+        try {
+            int recovered = jobRepository.recoverExpired(Instant.now(), maxAttempts,
+                    JobStatus.RUNNING, JobStatus.PENDING, JobStatus.DEAD);
+            if (recovered > 0) {
+                log.warn("Recovered {} jobs with an expired lease", recovered);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Unable to recover expired jobs: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${jobs.metrics-ms:10000}")
+    public void refreshMetrics() {
+        try {
+            Map<JobStatus, Long> counts = new EnumMap<>(JobStatus.class);
+            for (JobStatusCount count : jobRepository.countByStatus()) {
+                counts.put(count.status(), count.count());
+            }
+            depth.forEach((status, gauge) -> gauge.set(counts.getOrDefault(status, 0L)));
+            Instant now = Instant.now();
+            Instant oldest = jobRepository.findOldestRunAt(JobStatus.PENDING, now);
+            lagMillis.set(oldest == null ? 0 : Duration.between(oldest, now).toMillis());
+        } catch (RuntimeException e) {
+            log.warn("Unable to refresh job queue metrics: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jobs.purge-ms:3600000}")
+    public void purge() {
+        try {
+            int deleted = jobRepository.deleteOlderThan(JobStatus.DEAD, Instant.now().minus(deadRetention));
+            if (deleted > 0) {
+                log.info("Purged {} dead jobs", deleted);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Unable to purge dead jobs: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Laisse finir les tâches en cours ; celles qui dépassent {@code jobs.shutdown-wait-ms} sont
+     * interrompues et reprises à l'expiration de leur bail.
+     */
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(shutdownWaitMillis, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package mds.mobile.logging;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Access log structuré : méthode, route, statut, utilisateur, octets et durée de chaque requête.
+ *
+ * Les événements partent sur le logger {@code ACCESS_LOG}, branché dans logback-spring.xml sur un
+ * appender asynchrone à file bornée : le thread de requête ne fait jamais d'I/O de log.
+ * Les succès sont échantillonnés ({@code accesslog.success-sample-rate}), les erreurs (>= 400 ou exception)
+ * sont toujours journalisées.
+ */
+@Component
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    private static final Logger accessLog = LoggerFactory.getLogger("ACCESS_LOG");
+
+    private final boolean enabled;
+    private final double successSampleRate;
+
+    public AccessLogFilter(@Value("${accesslog.enabled:true}") boolean enabled,
+                           @Value("${accesslog.success-sample-rate:0.1}") double successSampleRate) {
+        this.enabled = enabled;
+        this.successSampleRate = successSampleRate;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        long start = System.nanoTime();
+        ByteCountingResponse countingResponse = new ByteCountingResponse(response);
+        Throwable failure = null;
+        try {
+            filterChain.doFilter(request, countingResponse);
+        } catch (IOException | ServletException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            int status = failure != null ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+            boolean error = status >= 400;
+            if (error || ThreadLocalRandom.current().nextDouble() < successSampleRate) {
+                log(request, countingResponse, status, System.nanoTime() - start, failure);
+            }
+        }
+    }
+
+    private static void log(HttpServletRequest request, ByteCountingResponse response, int status,
+                            long durationNanos, Throwable failure) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        var event = (status >= 500 ? accessLog.atWarn() : accessLog.atInfo())
+                .addKeyValue("method", request.getMethod())
+                .addKeyValue("route", pattern != null ? pattern : request.getRequestURI())
+                .addKeyValue("status", status)
+                .addKeyValue("user", currentUser())
+                .addKeyValue("bytes", response.responseBytes())
+                .addKeyValue("duration_ms", TimeUnit.NANOSECONDS.toMicros(durationNanos) / 1000.0);
+        if (failure != null) {
+            event = event.addKeyValue("exception", failure.getClass().getName());
+        }
+        event.log("access");
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return "-";
+        }
+        return String.valueOf(authentication.getPrincipal());
+    }
+}
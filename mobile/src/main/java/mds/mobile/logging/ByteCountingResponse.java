@@ -0,0 +1,130 @@
+package mds.mobile.logging;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+
+/**
+ * Compte les octets écrits dans le flux binaire de la réponse, sans les bufferiser.
+ *
+ * Les réponses écrites via {@code getWriter()} ou en sendfile (corps vide, fichier envoyé par le connecteur)
+ * sont mesurées par le Content-Length fixé au passage : Tomcat sort ce header de sa table, il n'est plus
+ * relisible par {@code getHeader}.
+ */
+public class ByteCountingResponse extends HttpServletResponseWrapper {
+
+    private long bytesWritten;
+    private long contentLength = -1;
+    private ServletOutputStream countingStream;
+
+    public ByteCountingResponse(HttpServletResponse response) {
+        super(response);
+    }
+
+    public long bytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Taille de la réponse : le Content-Length fixé s'il y en a un, sinon les octets écrits dans le flux.
+     */
+    public long responseBytes() {
+        return contentLength >= 0 ? contentLength : bytesWritten;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        super.setContentLength(len);
+        contentLength = len;
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        super.setContentLengthLong(len);
+        contentLength = len;
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        super.setHeader(name, value);
+        recordContentLength(name, value);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        super.addHeader(name, value);
+        recordContentLength(name, value);
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        super.setIntHeader(name, value);
+        recordContentLength(name, Integer.toString(value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        super.addIntHeader(name, value);
+        recordContentLength(name, Integer.toString(value));
+    }
+
+    private void recordContentLength(String name, String value) {
+        if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            return;
+        }
+        if (value == null) {
+            contentLength = -1;
+            return;
+        }
+        try {
+            contentLength = Long.parseLong(value.trim());
+        } catch (NumberFormatException ignored) {
+            // header non numérique : on retombe sur le compteur
+        }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (countingStream == null) {
+            ServletOutputStream delegate = super.getOutputStream();
+            countingStream = new ServletOutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    delegate.write(b);
+                    bytesWritten++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    delegate.write(b, off, len);
+                    bytesWritten += len;
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    delegate.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    delegate.close();
+                }
+
+                @Override
+                public boolean isReady() {
+                    return delegate.isReady();
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    delegate.setWriteListener(writeListener);
+                }
+            };
+        }
+        return countingStream;
+    }
+}
@@ -0,0 +1,62 @@
+package mds.mobile.logging;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Logs SQL/sécurité à la demande : une requête portant {@code X-Debug-Log: <logging.debug-header.token>}
+ * est journalisée en DEBUG (voir {@link DebugLogTurboFilter}). Désactivé si aucun token n'est configuré.
+ *
+ * Placé avant la chaîne Spring Security pour couvrir aussi ses propres logs.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class DebugLogFilter extends OncePerRequestFilter {
+
+    static final String HEADER = "X-Debug-Log";
+
+    private final byte[] token;
+
+    public DebugLogFilter(@Value("${logging.debug-header.token:}") String token) {
+        this.token = token.isBlank() ? null : token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return token == null || request.getHeader(HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        byte[] provided = request.getHeader(HEADER).getBytes(StandardCharsets.UTF_8);
+        if (!MessageDigest.isEqual(token, provided)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        MDC.put(DebugLogTurboFilter.MDC_KEY, "true");
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            MDC.remove(DebugLogTurboFilter.MDC_KEY);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package mds.mobile.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+/**
+ * Active les logs verbeux SQL et Spring Security pour la seule requête qui porte le header de debug.
+ *
+ * {@link DebugLogFilter} place une clé dans le MDC ; quand elle est présente, les événements DEBUG/TRACE
+ * des loggers ciblés passent même si leur niveau configuré est plus élevé. Sans la clé, le filtre est neutre
+ * et le coût se limite à une lecture de MDC pour ces loggers.
+ */
+public class DebugLogTurboFilter extends TurboFilter {
+
+    static final String MDC_KEY = "debug-log";
+
+    private static final String[] VERBOSE_LOGGERS = {
+            "org.hibernate.SQL",
+            "org.hibernate.orm.jdbc.bind",
+            "org.springframework.security"
+    };
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level.isGreaterOrEqual(Level.INFO) || !isVerboseLogger(logger.getName())) {
+            return FilterReply.NEUTRAL;
+        }
+        return MDC.get(MDC_KEY) != null ? FilterReply.ACCEPT : FilterReply.NEUTRAL;
+    }
+
+    private static boolean isVerboseLogger(String name) {
+        for (String prefix : VERBOSE_LOGGERS) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,20 @@
+package mds.mobile.ratelimit;
+
+/**
+ * Débit et rafale d'un seau, pré-calculés en nanosecondes par unité.
+ */
+record BucketSpec(double nanosPerUnit, long toleranceNanos) {
+
+    static BucketSpec of(double unitsPerSecond, double burst) {
+        if (unitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate limit must have a positive rate and a burst of at least 1");
+        }
+        double nanosPerUnit = 1_000_000_000d / unitsPerSecond;
+        // Un seau plein laisse passer "burst" unités d'un coup
+        return new BucketSpec(nanosPerUnit, (long) (burst * nanosPerUnit));
+    }
+
+    long costNanos(long cost) {
+        return (long) Math.ceil(cost * nanosPerUnit);
+    }
+}
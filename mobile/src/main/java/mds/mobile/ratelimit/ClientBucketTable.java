@@ -0,0 +1,86 @@
+package mds.mobile.ratelimit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table des seaux par client, découpée en stripes de taille bornée.
+ *
+ * La lecture d'un client existant est un simple {@code get} sans verrou. Quand une stripe est
+ * pleine, on évince ses seaux inactifs ; si elle l'est encore, les nouveaux clients de cette
+ * stripe partagent un seau de débordement plutôt que de faire grossir la mémoire.
+ */
+final class ClientBucketTable {
+
+    private final List<ConcurrentHashMap<String, ClientBuckets>> stripes;
+    private final ClientBuckets[] overflow;
+    private final int maxPerStripe;
+    private final int mask;
+
+    ClientBucketTable(int stripeCount, int maxClients) {
+        int n = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ArrayList<>(n);
+        this.overflow = new ClientBuckets[n];
+        this.maxPerStripe = Math.max(1, maxClients / n);
+        this.mask = n - 1;
+        for (int i = 0; i < n; i++) {
+            stripes.add(new ConcurrentHashMap<>());
+            overflow[i] = new ClientBuckets();
+        }
+    }
+
+    ClientBuckets get(String key, long now) {
+        int index = stripeIndex(key);
+        ConcurrentHashMap<String, ClientBuckets> stripe = stripes.get(index);
+        ClientBuckets buckets = stripe.get(key);
+        if (buckets != null) {
+            return buckets;
+        }
+        if (stripe.size() >= maxPerStripe) {
+            evictIdle(stripe, now);
+            if (stripe.size() >= maxPerStripe) {
+                return overflow[index];
+            }
+        }
+        ClientBuckets created = new ClientBuckets();
+        ClientBuckets existing = stripe.putIfAbsent(key, created);
+        return existing != null ? existing : created;
+    }
+
+    /**
+     * Supprime les seaux pleins de toutes les stripes.
+     * @return le nombre de clients évincés
+     */
+    int evictIdle(long now) {
+        int evicted = 0;
+        for (ConcurrentHashMap<String, ClientBuckets> stripe : stripes) {
+            evicted += evictIdle(stripe, now);
+        }
+        return evicted;
+    }
+
+    int size() {
+        int size = 0;
+        for (ConcurrentHashMap<String, ClientBuckets> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private static int evictIdle(ConcurrentHashMap<String, ClientBuckets> stripe, long now) {
+        int evicted = 0;
+        for (var entry : stripe.entrySet()) {
+            // remove(key, value) : ne retire que l'instance vue inactive
+            if (entry.getValue().isIdle(now) && stripe.remove(entry.getKey(), entry.getValue())) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    private int stripeIndex(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
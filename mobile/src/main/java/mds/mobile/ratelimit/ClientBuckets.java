@@ -0,0 +1,59 @@
+package mds.mobile.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Seaux à jetons d'un client, un par {@link RateLimitClass}.
+ *
+ * Chaque seau est implémenté en GCRA : son seul état est le "theoretical arrival time" (TAT)
+ * en nanosecondes, mis à jour par CAS. Un seau dont le TAT est dans le passé est plein,
+ * il est donc équivalent à un seau neuf et peut être supprimé sans perte d'information.
+ */
+final class ClientBuckets {
+
+    private final AtomicLongArray tat = new AtomicLongArray(RateLimitClass.values().length);
+
+    /**
+     * Tente de consommer {@code cost} unités.
+     * @return 0 si autorisé, sinon le délai en nanosecondes avant que la requête puisse passer
+     */
+    long tryAcquire(RateLimitClass limitClass, BucketSpec spec, long cost, long now) {
+        int i = limitClass.ordinal();
+        long increment = spec.costNanos(cost);
+        while (true) {
+            long current = tat.get(i);
+            long newTat = Math.max(current, now) + increment;
+            long excess = newTat - now - spec.toleranceNanos();
+            if (excess > 0) {
+                return excess;
+            }
+            if (tat.compareAndSet(i, current, newTat)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Débite {@code cost} unités sans contrôle (le seau peut passer en dette),
+     * utilisé pour les octets téléchargés dont la taille n'est connue qu'après la réponse.
+     */
+    void charge(RateLimitClass limitClass, BucketSpec spec, long cost, long now) {
+        int i = limitClass.ordinal();
+        long increment = spec.costNanos(cost);
+        while (true) {
+            long current = tat.get(i);
+            if (tat.compareAndSet(i, current, Math.max(current, now) + increment)) {
+                return;
+            }
+        }
+    }
+
+    boolean isIdle(long now) {
+        for (int i = 0; i < tat.length(); i++) {
+            if (tat.get(i) > now) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,11 @@
+package mds.mobile.ratelimit;
+
+/**
+ * Familles de budget appliquées à chaque client.
+ * L'ordinal sert d'index dans les cellules de {@link ClientBuckets}.
+ */
+public enum RateLimitClass {
+    METADATA,
+    UPLOAD,
+    DOWNLOAD_BYTES
+}
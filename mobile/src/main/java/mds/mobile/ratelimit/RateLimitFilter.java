@@ -0,0 +1,128 @@
+package mds.mobile.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import mds.mobile.logging.ByteCountingResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtre placé après {@code JwtAuthenticationFilter} : applique les budgets du {@link RateLimiter}
+ * par utilisateur authentifié, ou par IP pour les requêtes anonymes.
+ * Répond 429 avec un header {@code Retry-After} quand le budget est épuisé.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+
+    public RateLimitFilter(RateLimiter rateLimiter, ObjectMapper objectMapper,
+                           @Value("${ratelimit.enabled:true}") boolean enabled) {
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        String clientKey = clientKey(request);
+        RateLimitClass limitClass = classify(request);
+
+        // Pour les téléchargements on vérifie seulement que le client n'est pas en dette :
+        // les octets sont débités une fois la taille de la réponse connue.
+        long cost = limitClass == RateLimitClass.DOWNLOAD_BYTES ? 0 : 1;
+        long waitNanos = rateLimiter.tryAcquire(clientKey, limitClass, cost);
+        if (waitNanos > 0) {
+            reject(response, waitNanos);
+            return;
+        }
+
+        if (limitClass != RateLimitClass.DOWNLOAD_BYTES) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // Fichiers (sendfile compris) : Content-Length fixé par le contrôleur. Archives ZIP et export NDJSON écrits
+        // en flux, sans Content-Length : on compte alors les octets envoyés
+        ByteCountingResponse countingResponse = new ByteCountingResponse(response);
+        filterChain.doFilter(request, countingResponse);
+        rateLimiter.charge(clientKey, limitClass, countingResponse.responseBytes());
+    }
+
+    private static RateLimitClass classify(HttpServletRequest request) {
+        return classify(request.getMethod(), request.getRequestURI());
+    }
+
+    /**
+     * Budget dont relève une requête : octets téléchargés pour les fichiers, archives et l'export,
+     * envois pour le dépôt de documents, métadonnées pour tout le reste.
+     */
+    public static RateLimitClass classify(String method, String path) {
+        if ("GET".equals(method) && (path.startsWith("/documents/") && path.endsWith("/file") || path.endsWith("/archive") || "/documents/export".equals(path))) {
+            return RateLimitClass.DOWNLOAD_BYTES;
+        }
+        if ("POST".equals(method) && ("/documents".equals(path) || "/documents/".equals(path))) {
+            return RateLimitClass.UPLOAD;
+        }
+        return RateLimitClass.METADATA;
+    }
+
+    /**
+     * Clé de budget du client : l'utilisateur authentifié, sinon l'adresse IP.
+     */
+    public static String clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getPrincipal();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    /**
+     * Valeur du header {@code Retry-After} : le délai d'attente arrondi à la seconde supérieure.
+     */
+    public static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+    }
+
+    private void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds(waitNanos)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+
+        Map<String, String> error = Map.of(
+                "error", "rate_limited",
+                "message", "Trop de requêtes, réessayez plus tard"
+        );
+        response.getWriter().write(objectMapper.writeValueAsString(error));
+    }
+}
@@ -0,0 +1,71 @@
+package mds.mobile.ratelimit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limiteur de débit par client (utilisateur ou IP) avec un budget distinct par {@link RateLimitClass}.
+ */
+@Component
+@Lazy(false)
+public class RateLimiter {
+
+    private final ClientBucketTable table;
+    private final BucketSpec[] specs = new BucketSpec[RateLimitClass.values().length];
+    private final long origin = System.nanoTime();
+
+    public RateLimiter(
+            @Value("${ratelimit.stripes:64}") int stripes,
+            @Value("${ratelimit.max-clients:100000}") int maxClients,
+            @Value("${ratelimit.metadata.per-second:20}") double metadataPerSecond,
+            @Value("${ratelimit.metadata.burst:50}") double metadataBurst,
+            @Value("${ratelimit.upload.per-second:0.5}") double uploadPerSecond,
+            @Value("${ratelimit.upload.burst:5}") double uploadBurst,
+            @Value("${ratelimit.download.bytes-per-second:5242880}") double downloadBytesPerSecond,
+            @Value("${ratelimit.download.burst-bytes:52428800}") double downloadBurstBytes
+    ) {
+        this.table = new ClientBucketTable(stripes, maxClients);
+        specs[RateLimitClass.METADATA.ordinal()] = BucketSpec.of(metadataPerSecond, metadataBurst);
+        specs[RateLimitClass.UPLOAD.ordinal()] = BucketSpec.of(uploadPerSecond, uploadBurst);
+        specs[RateLimitClass.DOWNLOAD_BYTES.ordinal()] = BucketSpec.of(downloadBytesPerSecond, downloadBurstBytes);
+    }
+
+    /**
+     * Consomme {@code cost} unités du budget du client.
+     * @return 0 si la requête est autorisée, sinon le délai d'attente en nanosecondes
+     */
+    public long tryAcquire(String clientKey, RateLimitClass limitClass, long cost) {
+        long now = now();
+        return table.get(clientKey, now).tryAcquire(limitClass, specs[limitClass.ordinal()], cost, now);
+    }
+
+    /**
+     * Débite a posteriori un coût connu seulement après la réponse (octets téléchargés).
+     */
+    public void charge(String clientKey, RateLimitClass limitClass, long cost) {
+        if (cost <= 0) {
+            return;
+        }
+        long now = now();
+        table.get(clientKey, now).charge(limitClass, specs[limitClass.ordinal()], cost, now);
+    }
+
+    public int trackedClients() {
+        return table.size();
+    }
+
+    /**
+     * Un seau plein est équivalent à un seau neuf : l'éviction des clients inactifs est sans effet
+     * sur les limites et garde la mémoire proportionnelle aux clients actifs.
+     */
+    @Scheduled(fixedDelayString = "${ratelimit.idle-sweep-ms:60000}")
+    public void evictIdleClients() {
+        table.evictIdle(now());
+    }
+
+    private long now() {
+        return System.nanoTime() - origin;
+    }
+}
@@ -1,9 +1,13 @@
 package mds.mobile.security;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import mds.mobile.timing.Phase;
+import mds.mobile.timing.RequestTimings;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -15,6 +19,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.util.ArrayList;
 
 @Component
@@ -23,9 +28,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
     private final JwtService jwtService;
+    private final TokenRevocationList revocationList;
 
-    public JwtAuthenticationFilter(JwtService jwtService) {
+    public JwtAuthenticationFilter(JwtService jwtService, TokenRevocationList revocationList) {
         this.jwtService = jwtService;
+        this.revocationList = revocationList;
     }
 
     @Override
@@ -52,14 +59,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             log.debug("Attempting JWT auth for path {} tokenLength={} ", request.getRequestURI(), jwt.length());
         }
 
+        long authStart = RequestTimings.start();
         try {
-            userId = jwtService.extractUserId(jwt);
+            // Une seule vérification de signature : extraction et validation sur les mêmes claims
+            Claims claims = jwtService.parseClaims(jwt);
+            userId = claims.getSubject();
             if (log.isDebugEnabled()) {
                 log.debug("Extracted userId {} from token", userId);
             }
 
             if (userId != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                if (jwtService.validateToken(jwt)) {
+                Instant issuedAt = claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null;
+                if (!revocationList.isRevoked(claims.getId(), userId, issuedAt)) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userId,
                             null,
@@ -71,11 +82,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                         log.debug("Authentication successful for userId {} on path {}", userId, request.getRequestURI());
                     }
                 } else if (log.isDebugEnabled()) {
-                    log.debug("Token validation failed (expired or invalid) for path {}", request.getRequestURI());
+                    log.debug("Revoked token for userId {} on path {}", userId, request.getRequestURI());
                 }
             }
+        } catch (ExpiredJwtException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Token expired for path {}", request.getRequestURI());
+            }
         } catch (Exception e) {
             log.error("JWT processing error on path {}: {}", request.getRequestURI(), e.getMessage());
+        } finally {
+            RequestTimings.stop(Phase.AUTH, "jwt", authStart);
         }
 
         filterChain.doFilter(request, response);
@@ -21,7 +21,7 @@ public class JwtService {
     @Value("${jwt.secret:mySecretKeyThatIsAtLeast256BitsLongForHS256Algorithm}")
     private String secret;
 
-    @Value("${jwt.expiration:86400000}") // 24 heures par défaut
+    @Value("${jwt.expiration:900000}") // 15 minutes par défaut, prolongées par les refresh tokens
     private Long expiration;
 
     private SecretKey getSigningKey() {
@@ -42,6 +42,18 @@ public class JwtService {
         return claimsResolver.apply(claims);
     }
 
+    /**
+     * Vérifie la signature et l'expiration en une seule passe.
+     * @throws io.jsonwebtoken.JwtException si le token est invalide ou expiré
+     */
+    public Claims parseClaims(String token) {
+        return extractAllClaims(token);
+    }
+
+    public long getExpirationMillis() {
+        return expiration;
+    }
+
     private Claims extractAllClaims(String token) {
         return Jwts.parser()
                 .verifyWith(getSigningKey())
@@ -50,10 +62,6 @@ public class JwtService {
                 .getPayload();
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
     public String generateToken(UUID userId, String email) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("email", email);
@@ -67,18 +75,11 @@ public class JwtService {
         return Jwts.builder()
                 .claims(claims)
                 .subject(subject)
+                .id(UUID.randomUUID().toString()) // jti : permet de révoquer ce token précis
                 .issuedAt(now)
                 .expiration(expiryDate)
                 .signWith(getSigningKey(), SignatureAlgorithm.HS256)
                 .compact();
     }
-
-    public Boolean validateToken(String token) {
-        try {
-            return !isTokenExpired(token);
-        } catch (Exception e) {
-            return false;
-        }
-    }
 }
 
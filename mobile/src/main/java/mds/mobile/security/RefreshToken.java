@@ -0,0 +1,41 @@
+package mds.mobile.security;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Refresh token stocké côté serveur (haché : la valeur claire n'est connue que du client).
+ * Chaque rotation crée un nouveau token dans la même famille et consomme le précédent.
+ */
+@Entity
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "idx_refresh_tokens_family", columnList = "familyId"),
+        @Index(name = "idx_refresh_tokens_user", columnList = "userId")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RefreshToken {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 64)
+    private String tokenHash; // SHA-256 hexadécimal de la valeur remise au client
+
+    @Column(nullable = false)
+    private UUID userId;
+
+    @Column(nullable = false)
+    private UUID familyId; // Tous les tokens issus d'une même connexion
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    private Instant usedAt; // Renseigné à la rotation ou à la révocation
+}
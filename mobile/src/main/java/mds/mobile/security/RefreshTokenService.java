@@ -0,0 +1,113 @@
+package mds.mobile.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Refresh tokens opaques à rotation : chaque utilisation consomme le token et en remet un nouveau.
+ *
+ * Présenter un token déjà consommé signifie qu'il a été copié : toute la famille (la connexion
+ * d'origine) est alors révoquée, le voleur comme l'utilisateur légitime doivent se reconnecter.
+ */
+@Service
+@Lazy(false)
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final long refreshExpirationMillis;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               @Value("${jwt.refresh-expiration:2592000000}") long refreshExpirationMillis) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.refreshExpirationMillis = refreshExpirationMillis;
+    }
+
+    /**
+     * Ouvre une nouvelle famille de refresh tokens (connexion ou inscription).
+     */
+    @Transactional
+    public String issue(UUID userId) {
+        return create(userId, UUID.randomUUID());
+    }
+
+    /**
+     * @return l'utilisateur et le nouveau refresh token, vide si le token présenté n'est pas utilisable
+     */
+    @Transactional(noRollbackFor = RuntimeException.class)
+    public Optional<Rotation> rotate(String presentedToken) {
+        Optional<RefreshToken> found = refreshTokenRepository.findByTokenHash(hash(presentedToken));
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        RefreshToken current = found.get();
+        Instant now = Instant.now();
+        if (current.getUsedAt() != null) {
+            refreshTokenRepository.revokeFamily(current.getFamilyId(), now);
+            return Optional.empty();
+        }
+        if (current.getExpiresAt().isBefore(now)) {
+            return Optional.empty();
+        }
+        current.setUsedAt(now);
+        return Optional.of(new Rotation(current.getUserId(), create(current.getUserId(), current.getFamilyId())));
+    }
+
+    /**
+     * Révoque la famille du token présenté (déconnexion de cet appareil).
+     */
+    @Transactional
+    public void revoke(String presentedToken) {
+        refreshTokenRepository.findByTokenHash(hash(presentedToken))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId(), Instant.now()));
+    }
+
+    @Transactional
+    public void revokeAllForUser(UUID userId) {
+        refreshTokenRepository.revokeAllForUser(userId, Instant.now());
+    }
+
+    @Scheduled(fixedDelayString = "${security.revocation.purge-ms:600000}")
+    @Transactional
+    public void purgeExpired() {
+        refreshTokenRepository.deleteExpired(Instant.now());
+    }
+
+    private String create(UUID userId, UUID familyId) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        refreshTokenRepository.save(RefreshToken.builder()
+                .tokenHash(hash(token))
+                .userId(userId)
+                .familyId(familyId)
+                .expiresAt(Instant.now().plusMillis(refreshExpirationMillis))
+                .build());
+        return token;
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    public record Rotation(UUID userId, String refreshToken) {}
+}
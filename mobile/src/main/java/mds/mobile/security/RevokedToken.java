@@ -0,0 +1,30 @@
+package mds.mobile.security;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Révocation d'access tokens encore valides : un token précis ({@code jti:<id>}) ou tous les tokens
+ * d'un utilisateur émis avant {@code notBefore} ({@code user:<id>}).
+ * Une entrée n'est plus utile une fois les tokens visés expirés : elle est alors purgée.
+ */
+@Entity
+@Table(name = "revoked_tokens", indexes = @Index(name = "idx_revoked_tokens_expires_at", columnList = "expiresAt"))
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokedToken {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 80)
+    private String revocationKey;
+
+    private Instant notBefore; // Révocation par utilisateur : tokens émis avant cet instant
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+}
@@ -2,6 +2,8 @@ package mds.mobile.security;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletResponse;
+import mds.mobile.logging.AccessLogFilter;
+import mds.mobile.ratelimit.RateLimitFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -22,9 +24,14 @@ import java.util.Map;
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthFilter;
+    private final AccessLogFilter accessLogFilter;
+    private final RateLimitFilter rateLimitFilter;
 
-    public SecurityConfig(JwtAuthenticationFilter jwtAuthFilter) {
+    public SecurityConfig(JwtAuthenticationFilter jwtAuthFilter, AccessLogFilter accessLogFilter,
+                          RateLimitFilter rateLimitFilter) {
         this.jwtAuthFilter = jwtAuthFilter;
+        this.accessLogFilter = accessLogFilter;
+        this.rateLimitFilter = rateLimitFilter;
     }
 
     @Bean
@@ -33,7 +40,8 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
                         // Endpoints publics explicites
-                        .requestMatchers("/users/register", "/users/login").permitAll()
+                        .requestMatchers("/users/register", "/users/login", "/users/refresh").permitAll()
+                        .requestMatchers("/actuator/health/**").permitAll() // sondes liveness/readiness
                         .requestMatchers("/documents/**").permitAll() // Ajout sans restriction de méthode
                         .requestMatchers(HttpMethod.GET, "/categories/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/documents/**").permitAll() // existant (redondant mais sûr)
@@ -71,7 +79,10 @@ public class SecurityConfig {
                             response.getWriter().write(mapper.writeValueAsString(error));
                         })
                 )
-                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                // L'access log précède le rate limiter pour journaliser aussi les 429
+                .addFilterAfter(accessLogFilter, JwtAuthenticationFilter.class)
+                .addFilterAfter(rateLimitFilter, AccessLogFilter.class);
 
         return http.build();
     }
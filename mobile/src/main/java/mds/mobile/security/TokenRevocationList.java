@@ -0,0 +1,152 @@
+package mds.mobile.security;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Liste des access tokens révoqués, consultée à chaque requête authentifiée.
+ *
+ * Le cas courant (token non révoqué) est tranché par un filtre de Bloom en mémoire : O(1), sans accès
+ * à la base. Un résultat positif, éventuellement faux, est confirmé dans l'ensemble exact, lui aussi en
+ * mémoire. Les deux sont reconstruits depuis la table {@code revoked_tokens} toutes les
+ * {@code security.revocation.refresh-ms}, ce qui propage les révocations des autres nœuds et fait
+ * disparaître les entrées expirées.
+ */
+@Component
+@Lazy(false)
+public class TokenRevocationList {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationList.class);
+    private static final int MIN_EXPECTED_ENTRIES = 1024;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final double falsePositiveRate;
+    private final long localRetentionNanos;
+
+    private volatile Snapshot snapshot;
+    /** Révocations locales ré-appliquées aux reconstructions qui ont pu les manquer */
+    private final Map<String, LocalRevocation> recentLocal = new ConcurrentHashMap<>();
+
+    public TokenRevocationList(RevokedTokenRepository revokedTokenRepository,
+                               @Value("${security.revocation.false-positive-rate:0.01}") double falsePositiveRate,
+                               @Value("${security.revocation.refresh-ms:5000}") long refreshMillis) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.falsePositiveRate = falsePositiveRate;
+        this.localRetentionNanos = TimeUnit.MILLISECONDS.toNanos(refreshMillis * 3);
+        this.snapshot = Snapshot.empty(MIN_EXPECTED_ENTRIES, falsePositiveRate);
+    }
+
+    /**
+     * @param jti      identifiant du token, {@code null} pour les tokens émis sans
+     * @param issuedAt date d'émission du token
+     */
+    public boolean isRevoked(String jti, String userId, Instant issuedAt) {
+        Snapshot current = snapshot;
+        if (jti != null) {
+            String key = jtiKey(jti);
+            if (current.bloom().mightContain(key) && current.entries().containsKey(key)) {
+                return true;
+            }
+        }
+        String userKey = userKey(userId);
+        if (current.bloom().mightContain(userKey)) {
+            Instant notBefore = current.entries().get(userKey);
+            return notBefore != null && issuedAt != null && issuedAt.isBefore(notBefore);
+        }
+        return false;
+    }
+
+    /**
+     * Révoque un access token jusqu'à son expiration.
+     */
+    public void revokeToken(String jti, Instant expiresAt) {
+        revoke(jtiKey(jti), Instant.EPOCH, expiresAt);
+    }
+
+    /**
+     * Révoque tous les access tokens de l'utilisateur émis jusqu'ici.
+     * L'instant est arrondi à la seconde supérieure : la date d'émission des JWT n'a pas plus de précision.
+     */
+    public void revokeAllForUser(String userId, Instant expiresAt) {
+        Instant now = Instant.now();
+        Instant notBefore = now.getNano() == 0 ? now : Instant.ofEpochSecond(now.getEpochSecond() + 1);
+        revoke(userKey(userId), notBefore, expiresAt);
+    }
+
+    private void revoke(String key, Instant notBefore, Instant expiresAt) {
+        revokedTokenRepository.save(new RevokedToken(null, key, notBefore, expiresAt));
+        recentLocal.put(key, new LocalRevocation(notBefore, System.nanoTime()));
+        snapshot.add(key, notBefore);
+    }
+
+    @Scheduled(fixedDelayString = "${security.revocation.refresh-ms:5000}")
+    public void rebuild() {
+        List<RevokedToken> active;
+        try {
+            active = revokedTokenRepository.findByExpiresAtAfter(Instant.now());
+        } catch (RuntimeException e) {
+            log.warn("Unable to reload revoked tokens, keeping current list: {}", e.getMessage());
+            return;
+        }
+
+        long now = System.nanoTime();
+        recentLocal.values().removeIf(local -> now - local.addedAt() > localRetentionNanos);
+
+        Snapshot rebuilt = Snapshot.empty(Math.max(MIN_EXPECTED_ENTRIES, 2 * (active.size() + recentLocal.size())),
+                falsePositiveRate);
+        for (RevokedToken revoked : active) {
+            rebuilt.add(revoked.getRevocationKey(), revoked.getNotBefore() != null ? revoked.getNotBefore() : Instant.EPOCH);
+        }
+        recentLocal.forEach((key, local) -> rebuilt.add(key, local.notBefore()));
+        snapshot = rebuilt;
+    }
+
+    @Scheduled(fixedDelayString = "${security.revocation.purge-ms:600000}")
+    public void purgeExpired() {
+        try {
+            revokedTokenRepository.deleteExpired(Instant.now());
+        } catch (RuntimeException e) {
+            log.warn("Unable to purge revoked tokens: {}", e.getMessage());
+        }
+    }
+
+    private static String jtiKey(String jti) {
+        return "jti:" + jti;
+    }
+
+    private static String userKey(String userId) {
+        return "user:" + userId;
+    }
+
+    private record LocalRevocation(Instant notBefore, long addedAt) {}
+
+    /**
+     * Filtre de Bloom + ensemble exact (clé vers date de révocation la plus récente).
+     */
+    private record Snapshot(BloomFilter<CharSequence> bloom, Map<String, Instant> entries) {
+
+        static Snapshot empty(int expectedEntries, double falsePositiveRate) {
+            return new Snapshot(BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8),
+                    expectedEntries, falsePositiveRate), new ConcurrentHashMap<>());
+        }
+
+        void add(String key, Instant notBefore) {
+            // Ensemble exact d'abord : un lecteur qui voit le bit du Bloom trouve forcément l'entrée
+            entries.merge(key, notBefore, (a, b) -> a.isAfter(b) ? a : b);
+            bloom.put(key);
+        }
+    }
+}
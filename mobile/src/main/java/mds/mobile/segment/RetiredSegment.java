@@ -0,0 +1,24 @@
+package mds.mobile.segment;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Segment réservé par une compaction : son objet est supprimé après le délai de grâce,
+ * une fois qu'aucun document n'y pointe plus.
+ */
+@Entity
+@Table(name = "retired_segments", indexes = @Index(name = "idx_retired_segments_retired_at", columnList = "retiredAt"))
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RetiredSegment {
+    @Id
+    private UUID segmentId;
+
+    @Column(nullable = false)
+    private Instant retiredAt;
+}
@@ -0,0 +1,32 @@
+package mds.mobile.segment;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface RetiredSegmentRepository extends JpaRepository<RetiredSegment, UUID> {
+
+    // Transactions en écriture : la compaction lit le primaire, jamais un réplica en retard
+    @Transactional
+    @Query("select r.segmentId from RetiredSegment r")
+    List<UUID> findAllSegmentIds();
+
+    @Transactional
+    List<RetiredSegment> findByRetiredAtBefore(Instant retiredBefore);
+
+    /**
+     * Réserve le segment pour ce nœud : échoue (clé dupliquée) si une autre compaction l'a déjà pris.
+     */
+    @Transactional
+    @Modifying
+    @Query("insert into RetiredSegment (segmentId, retiredAt) values (:segmentId, :now)")
+    int claim(@Param("segmentId") UUID segmentId, @Param("now") Instant now);
+}
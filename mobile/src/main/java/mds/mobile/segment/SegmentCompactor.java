@@ -0,0 +1,249 @@
+package mds.mobile.segment;
+
+import com.google.common.io.ByteStreams;
+import mds.mobile.cache.CacheInvalidationBus;
+import mds.mobile.document.Document;
+import mds.mobile.document.DocumentRepository;
+import mds.mobile.storage.StorageBackend;
+import mds.mobile.storage.StoredObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Compaction des segments de petits fichiers.
+ *
+ * Un segment est réécrit quand la part de ses octets encore référencés tombe sous
+ * {@code storage.segments.min-live-ratio} (documents supprimés), ou quand il est petit (segments écrits
+ * à faible trafic) : les documents vivants sont recopiés dans un segment d'au plus
+ * {@code storage.segments.target-bytes}, puis déplacés un par un. Les anciens segments sont retirés et
+ * leur objet n'est supprimé qu'après {@code storage.segments.retire-grace-ms}, le temps que les lectures
+ * en cours et les documents en cache sur les autres nœuds ne les référencent plus.
+ */
+@Component
+@Lazy(false)
+public class SegmentCompactor {
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentCompactor.class);
+
+    private final StorageBackend storage;
+    private final RetiredSegmentRepository retiredSegmentRepository;
+    private final DocumentRepository documentRepository;
+    private final CacheInvalidationBus invalidationBus;
+    private final TransactionTemplate transactionTemplate;
+    private final long targetBytes;
+    private final double minLiveRatio;
+    private final Duration minAge;
+    private final Duration retireGrace;
+
+    public SegmentCompactor(StorageBackend storage, RetiredSegmentRepository retiredSegmentRepository,
+                            DocumentRepository documentRepository, CacheInvalidationBus invalidationBus,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${storage.segments.target-bytes:67108864}") long targetBytes,
+                            @Value("${storage.segments.min-live-ratio:0.5}") double minLiveRatio,
+                            @Value("${storage.segments.min-age-ms:600000}") long minAgeMillis,
+                            @Value("${storage.segments.retire-grace-ms:600000}") long retireGraceMillis) {
+        this.storage = storage;
+        this.retiredSegmentRepository = retiredSegmentRepository;
+        this.documentRepository = documentRepository;
+        this.invalidationBus = invalidationBus;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.targetBytes = targetBytes;
+        this.minLiveRatio = minLiveRatio;
+        this.minAge = Duration.ofMillis(minAgeMillis);
+        this.retireGrace = Duration.ofMillis(retireGraceMillis);
+    }
+
+    @Scheduled(fixedDelayString = "${storage.segments.compaction-ms:60000}")
+    public void compact() {
+        try {
+            deleteRetired();
+            rewriteSparse();
+        } catch (RuntimeException e) {
+            log.warn("Segment compaction failed: {}", e.getMessage());
+        }
+    }
+
+    private void deleteRetired() {
+        for (RetiredSegment retired : retiredSegmentRepository.findByRetiredAtBefore(Instant.now().minus(retireGrace))) {
+            // Compaction interrompue : des documents pointent encore ici, le segment est remis en service
+            if (documentRepository.countBySegmentId(retired.getSegmentId()) == 0) {
+                storage.delete(SegmentStore.objectKey(retired.getSegmentId()));
+            }
+            retiredSegmentRepository.delete(retired);
+        }
+    }
+
+    private void rewriteSparse() {
+        Map<UUID, Long> liveBytes = new HashMap<>();
+        for (SegmentUsage usage : documentRepository.findSegmentUsage()) {
+            liveBytes.put(usage.segmentId(), usage.liveBytes());
+        }
+        Set<UUID> retired = new HashSet<>(retiredSegmentRepository.findAllSegmentIds());
+
+        // L'âge minimal protège les segments dont les documents sont en cours d'enregistrement
+        Instant createdBefore = Instant.now().minus(minAge);
+        List<List<Source>> groups = new ArrayList<>();
+        List<Source> group = new ArrayList<>();
+        long groupBytes = 0;
+        for (StoredObject object : storage.list(SegmentStore.KEY_PREFIX)) {
+            UUID segmentId = segmentId(object.key());
+            if (segmentId == null || retired.contains(segmentId)
+                    || object.lastModified() == null || !object.lastModified().isBefore(createdBefore)) {
+                continue;
+            }
+            Source source = new Source(segmentId, object.size(), liveBytes.getOrDefault(segmentId, 0L));
+            if (source.liveBytes() == 0) {
+                claim(segmentId);
+                continue;
+            }
+            if (!source.isSparse(minLiveRatio) && source.sizeBytes() >= targetBytes / 4) {
+                continue;
+            }
+            if (groupBytes + source.liveBytes() > targetBytes && !group.isEmpty()) {
+                groups.add(group);
+                group = new ArrayList<>();
+                groupBytes = 0;
+            }
+            group.add(source);
+            groupBytes += source.liveBytes();
+        }
+        groups.add(group);
+
+        for (List<Source> sources : groups) {
+            // Un seul petit segment plein n'a rien à gagner à être recopié
+            if (sources.size() > 1 || (sources.size() == 1 && sources.get(0).isSparse(minLiveRatio))) {
+                rewrite(sources);
+            }
+        }
+    }
+
+    /**
+     * @return {@code false} si une compaction sur un autre nœud a déjà réservé le segment
+     */
+    private boolean claim(UUID segmentId) {
+        try {
+            return retiredSegmentRepository.claim(segmentId, Instant.now()) == 1;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    private void rewrite(List<Source> sources) {
+        List<UUID> claimed = new ArrayList<>();
+        for (Source source : sources) {
+            if (claim(source.segmentId())) {
+                claimed.add(source.segmentId());
+            }
+        }
+        if (claimed.isEmpty()) {
+            return;
+        }
+
+        Path temp = null;
+        try {
+            temp = Files.createTempFile("segment-", ".compact");
+            List<Move> moves = new ArrayList<>();
+            long position = 0;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                for (UUID sourceId : claimed) {
+                    position = copyLive(sourceId, out, position, moves);
+                }
+            }
+            if (moves.isEmpty()) {
+                return;
+            }
+
+            UUID targetId = UUID.randomUUID();
+            try (InputStream in = Files.newInputStream(temp)) {
+                storage.upload(SegmentStore.objectKey(targetId), in, position, MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            }
+            int moved = transactionTemplate.execute(status -> {
+                int relocated = 0;
+                for (Move move : moves) {
+                    relocated += documentRepository.relocate(move.documentId(), move.fromSegment(), targetId, move.offset());
+                }
+                // Les documents en cache sur les autres nœuds pointent encore vers les anciens segments
+                invalidationBus.publishAll(CacheInvalidationBus.DOCUMENT);
+                return relocated;
+            });
+            log.info("Compacted {} segments into segment {}: {} documents, {} bytes",
+                    claimed.size(), targetId, moved, position);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unable to compact segments {}: {}", claimed, e.getMessage());
+            claimed.forEach(retiredSegmentRepository::deleteById);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    log.debug("Unable to delete compaction file {}: {}", temp, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Recopie les documents vivants du segment, dans l'ordre des offsets : une seule lecture séquentielle.
+     */
+    private long copyLive(UUID sourceId, OutputStream out, long position, List<Move> moves) throws IOException {
+        List<Document> live = documentRepository.findBySegmentIdOrderBySegmentOffsetAsc(sourceId);
+        if (live.isEmpty()) {
+            return position;
+        }
+        try (InputStream in = storage.getObject(SegmentStore.objectKey(sourceId))) {
+            long read = 0;
+            for (Document document : live) {
+                in.skipNBytes(document.getSegmentOffset() - read);
+                long copied = ByteStreams.copy(ByteStreams.limit(in, document.getTaille()), out);
+                if (copied != document.getTaille()) {
+                    throw new IOException("Segment " + sourceId + " truncated at document " + document.getId());
+                }
+                read = document.getSegmentOffset() + document.getTaille();
+                moves.add(new Move(document.getId(), sourceId, position));
+                position += document.getTaille();
+            }
+        }
+        return position;
+    }
+
+    private static UUID segmentId(String key) {
+        try {
+            return UUID.fromString(key.substring(SegmentStore.KEY_PREFIX.length()));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private record Source(UUID segmentId, long sizeBytes, long liveBytes) {
+
+        boolean isSparse(double minLiveRatio) {
+            return liveBytes < sizeBytes * minLiveRatio;
+        }
+    }
+
+    private record Move(UUID documentId, UUID fromSegment, long offset) {}
+}
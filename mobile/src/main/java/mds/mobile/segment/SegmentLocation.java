@@ -0,0 +1,8 @@
+package mds.mobile.segment;
+
+import java.util.UUID;
+
+/**
+ * Emplacement d'un fichier dans un segment.
+ */
+public record SegmentLocation(UUID segmentId, long offset) {}
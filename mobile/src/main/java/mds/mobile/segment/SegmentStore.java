@@ -0,0 +1,174 @@
+package mds.mobile.segment;
+
+import jakarta.annotation.PreDestroy;
+import mds.mobile.document.Document;
+import mds.mobile.storage.StorageBackend;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stockage groupé des petits fichiers (reçus, captures d'écran...).
+ *
+ * Les envois de moins de {@code storage.segments.max-object-bytes} ne créent pas chacun un objet :
+ * ils sont regroupés pendant {@code storage.segments.linger-ms} puis écrits ensemble dans un nouveau
+ * segment, un seul objet du backend de stockage. L'envoi n'est acquitté qu'une fois le segment écrit.
+ * L'écriture ne touche pas la base : les requêtes en attente tiennent déjà leur connexion du pool.
+ * La lecture est une lecture positionnée dans le segment, sans {@code stat} : taille et type viennent
+ * de la ligne du document. {@link SegmentCompactor} fusionne ensuite les segments petits ou creux.
+ */
+@Component
+public class SegmentStore {
+
+    static final String KEY_PREFIX = "segments/";
+
+    private final StorageBackend storage;
+    private final boolean enabled;
+    private final long maxObjectBytes;
+    private final long lingerNanos;
+    private final long maxBatchBytes;
+
+    private final BlockingQueue<PendingAppend> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+
+    public SegmentStore(StorageBackend storage,
+                        @Value("${storage.segments.enabled:true}") boolean enabled,
+                        @Value("${storage.segments.max-object-bytes:65536}") long maxObjectBytes,
+                        @Value("${storage.segments.linger-ms:5}") long lingerMillis,
+                        @Value("${storage.segments.max-batch-bytes:8388608}") long maxBatchBytes) {
+        this.storage = storage;
+        this.enabled = enabled;
+        this.maxObjectBytes = maxObjectBytes;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.maxBatchBytes = maxBatchBytes;
+        this.writer = enabled ? Thread.ofVirtual().name("segment-writer").start(this::writeLoop) : null;
+    }
+
+    public static String objectKey(UUID segmentId) {
+        return KEY_PREFIX + segmentId;
+    }
+
+    public boolean accepts(long size) {
+        return enabled && size > 0 && size <= maxObjectBytes;
+    }
+
+    /**
+     * Ajoute le fichier au prochain segment et attend son écriture.
+     */
+    public SegmentLocation append(byte[] content) {
+        PendingAppend pending = new PendingAppend(content, new CompletableFuture<>());
+        queue.add(pending);
+        try {
+            return pending.result().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing segment", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Unable to write segment", e.getCause());
+        }
+    }
+
+    /**
+     * Lit {@code length} octets du segment à partir de {@code offset}. L'appelant doit fermer le flux.
+     */
+    public InputStream open(UUID segmentId, long offset, long length) {
+        return storage.getObject(objectKey(segmentId), offset, length);
+    }
+
+    /**
+     * Contenu du document, qu'il soit rangé dans un segment ou stocké dans son propre objet.
+     */
+    public InputStream open(Document document) {
+        return open(document.getSegmentId(), document.getSegmentOffset(), document.getTaille(), document.getCheminFichier());
+    }
+
+    public InputStream open(UUID segmentId, Long segmentOffset, long taille, String cheminFichier) {
+        if (segmentId != null) {
+            return open(segmentId, segmentOffset, taille);
+        }
+        return storage.getObject(cheminFichier);
+    }
+
+    /**
+     * Fichier local du segment (backend local) : le document peut alors partir en zero-copy.
+     */
+    public Optional<Path> localPath(UUID segmentId) {
+        return storage.localPath(objectKey(segmentId));
+    }
+
+    private void writeLoop() {
+        while (true) {
+            List<PendingAppend> batch = new ArrayList<>();
+            try {
+                batch.add(queue.take());
+                long bytes = batch.get(0).content().length;
+                long deadline = System.nanoTime() + lingerNanos;
+                while (bytes < maxBatchBytes) {
+                    PendingAppend next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    bytes += next.content().length;
+                }
+            } catch (InterruptedException e) {
+                IllegalStateException stopped = new IllegalStateException("Segment writer stopped");
+                batch.forEach(pending -> pending.result().completeExceptionally(stopped));
+                queue.forEach(pending -> pending.result().completeExceptionally(stopped));
+                return;
+            }
+            flush(batch);
+        }
+    }
+
+    private void flush(List<PendingAppend> batch) {
+        long[] offsets = new long[batch.size()];
+        long size = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            offsets[i] = size;
+            size += batch.get(i).content().length;
+        }
+        byte[] body = new byte[Math.toIntExact(size)];
+        for (int i = 0; i < batch.size(); i++) {
+            byte[] content = batch.get(i).content();
+            System.arraycopy(content, 0, body, (int) offsets[i], content.length);
+        }
+
+        UUID segmentId = UUID.randomUUID();
+        try {
+            storage.upload(objectKey(segmentId), new ByteArrayInputStream(body), size,
+                    MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        } catch (RuntimeException e) {
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result().complete(new SegmentLocation(segmentId, offsets[i]));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (writer != null) {
+            writer.interrupt();
+        }
+    }
+
+    private record PendingAppend(byte[] content, CompletableFuture<SegmentLocation> result) {}
+}
@@ -0,0 +1,8 @@
+package mds.mobile.segment;
+
+import java.util.UUID;
+
+/**
+ * Octets d'un segment encore référencés par des documents.
+ */
+public record SegmentUsage(UUID segmentId, long liveBytes) {}
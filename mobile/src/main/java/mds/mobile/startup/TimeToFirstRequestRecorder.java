@@ -0,0 +1,45 @@
+package mds.mobile.startup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mesure le temps entre le lancement de la JVM et la fin de la première requête servie :
+ * c'est le délai réellement subi lors d'un scale-out, au-delà du simple "Started in".
+ * Publié dans les logs et sous la métrique {@code application.first-request.time}.
+ */
+@Component
+@Lazy(false)
+public class TimeToFirstRequestRecorder implements ApplicationListener<ServletRequestHandledEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(TimeToFirstRequestRecorder.class);
+
+    private final AtomicLong timeToFirstRequestMillis = new AtomicLong(-1);
+
+    public TimeToFirstRequestRecorder(MeterRegistry meterRegistry) {
+        TimeGauge.builder("application.first-request.time", timeToFirstRequestMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Time from JVM start until the first request was served")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void onApplicationEvent(ServletRequestHandledEvent event) {
+        if (timeToFirstRequestMillis.get() >= 0) {
+            return;
+        }
+        long elapsed = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        if (timeToFirstRequestMillis.compareAndSet(-1, elapsed)) {
+            log.info("Time to first request: {} ms ({} {})", elapsed, event.getMethod(), event.getRequestUrl());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package mds.mobile.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pool de concurrence borné pour une famille d'appels au stockage.
+ *
+ * Quand le pool est plein, l'appel échoue aussitôt (ou après {@code maxWaitMillis}) avec une
+ * {@link StorageUnavailableException} : un MinIO dégradé ne peut bloquer qu'un nombre fixe de threads
+ * par famille, et les autres endpoints continuent de répondre.
+ * Occupation exposée dans {@code storage.bulkhead.active} / {@code storage.bulkhead.limit},
+ * refus dans {@code storage.bulkhead.rejected}.
+ */
+final class Bulkhead {
+
+    private final String name;
+    private final int limit;
+    private final long maxWaitMillis;
+    private final Semaphore permits;
+    private final Counter rejected;
+
+    Bulkhead(String name, int limit, long maxWaitMillis, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.limit = Math.max(1, limit);
+        this.maxWaitMillis = maxWaitMillis;
+        this.permits = new Semaphore(this.limit);
+        Gauge.builder("storage.bulkhead.active", permits, p -> this.limit - p.availablePermits())
+                .description("Appels au stockage en cours")
+                .tag("pool", name)
+                .register(meterRegistry);
+        Gauge.builder("storage.bulkhead.limit", () -> this.limit)
+                .description("Appels au stockage simultanés autorisés")
+                .tag("pool", name)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("storage.bulkhead.rejected")
+                .description("Appels refusés faute de place dans le pool")
+                .tag("pool", name)
+                .register(meterRegistry);
+    }
+
+    void acquire() {
+        boolean acquired;
+        try {
+            acquired = maxWaitMillis <= 0
+                    ? permits.tryAcquire()
+                    : permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.increment();
+            throw new StorageUnavailableException("Storage " + name + " pool saturated", 1);
+        }
+    }
+
+    void release() {
+        permits.release();
+    }
+
+    <T> T call(StorageCall<T> call) throws Exception {
+        acquire();
+        try {
+            return call.run();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Ouvre un flux en gardant la place dans le pool jusqu'à sa fermeture : un téléchargement
+     * occupe le pool pendant toute la copie, pas seulement pendant l'ouverture.
+     */
+    InputStream open(StorageCall<InputStream> call) throws Exception {
+        acquire();
+        InputStream in;
+        try {
+            in = call.run();
+        } catch (Exception | Error e) {
+            release();
+            throw e;
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        return new FilterInputStream(in) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (released.compareAndSet(false, true)) {
+                        release();
+                    }
+                }
+            }
+        };
+    }
+}
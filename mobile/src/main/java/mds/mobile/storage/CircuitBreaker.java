@@ -0,0 +1,167 @@
+package mds.mobile.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Disjoncteur sur un endpoint de stockage, à fenêtre glissante sur les {@code windowSize} derniers appels.
+ *
+ * Au-delà de {@code failureRatePercent} % d'échecs (sur au moins {@code minimumCalls} appels), le circuit
+ * s'ouvre : plus aucune requête n'est envoyée pendant {@code openMillis}, les appels échouent aussitôt en 503.
+ * Il passe ensuite en semi-ouvert et laisse passer {@code halfOpenCalls} sondes : toutes réussies, il se
+ * referme ; une seule en échec, il se rouvre.
+ * Seules les exceptions retenues par {@code isFailure} comptent comme des échecs de l'endpoint.
+ */
+final class CircuitBreaker {
+
+    enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final boolean enabled;
+    private final boolean[] window;
+    private final int minimumCalls;
+    private final int failureRatePercent;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final Predicate<Exception> isFailure;
+    private final Counter rejected;
+
+    private State state = State.CLOSED;
+    private int windowIndex;
+    private int recordedCalls;
+    private int failures;
+    private long openUntil;
+    private int halfOpenInFlight;
+    private int halfOpenSuccesses;
+
+    CircuitBreaker(String name, boolean enabled, int windowSize, int minimumCalls, int failureRatePercent,
+                   long openMillis, int halfOpenCalls, Predicate<Exception> isFailure, MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, window.length));
+        this.failureRatePercent = failureRatePercent;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.isFailure = isFailure;
+        Gauge.builder("storage.circuit.state", this, breaker -> breaker.state().ordinal())
+                .description("Etat du disjoncteur : 0 fermé, 1 semi-ouvert, 2 ouvert")
+                .tag("endpoint", name)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("storage.circuit.rejected")
+                .description("Appels refusés par le disjoncteur")
+                .tag("endpoint", name)
+                .register(meterRegistry);
+    }
+
+    <T> T call(StorageCall<T> call) throws Exception {
+        if (!enabled) {
+            return call.run();
+        }
+        acquirePermission();
+        T result;
+        try {
+            result = call.run();
+        } catch (StorageUnavailableException e) {
+            // Refus local (pool saturé) : ne dit rien de l'état de l'endpoint
+            onIgnored();
+            throw e;
+        } catch (Exception e) {
+            if (isFailure.test(e)) {
+                onFailure();
+            } else {
+                onSuccess();
+            }
+            throw e;
+        }
+        onSuccess();
+        return result;
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    private synchronized void acquirePermission() {
+        long now = System.nanoTime();
+        if (state == State.OPEN) {
+            if (now - openUntil < 0) {
+                rejected.increment();
+                long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(openUntil - now));
+                throw new StorageUnavailableException("Storage circuit open", retryAfterSeconds);
+            }
+            state = State.HALF_OPEN;
+            halfOpenInFlight = 0;
+            halfOpenSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenInFlight >= halfOpenCalls) {
+                rejected.increment();
+                throw new StorageUnavailableException("Storage circuit half-open, probe in progress", 1);
+            }
+            halfOpenInFlight++;
+        }
+    }
+
+    private synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            halfOpenInFlight--;
+            if (++halfOpenSuccesses >= halfOpenCalls) {
+                state = State.CLOSED;
+                resetWindow();
+            }
+            return;
+        }
+        record(false);
+    }
+
+    private synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && recordedCalls >= minimumCalls
+                && failures * 100L >= (long) failureRatePercent * recordedCalls) {
+            open();
+        }
+    }
+
+    private synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            halfOpenInFlight--;
+        }
+    }
+
+    /** À appeler sous le verrou */
+    private void record(boolean failure) {
+        if (recordedCalls == window.length) {
+            if (window[windowIndex]) {
+                failures--;
+            }
+        } else {
+            recordedCalls++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            failures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    /** À appeler sous le verrou */
+    private void open() {
+        state = State.OPEN;
+        openUntil = System.nanoTime() + openNanos;
+        resetWindow();
+    }
+
+    /** À appeler sous le verrou */
+    private void resetWindow() {
+        windowIndex = 0;
+        recordedCalls = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,226 @@
+package mds.mobile.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Requêtes couvertes (hedged requests) contre la latence de queue du stockage.
+ *
+ * Si la réponse n'est pas arrivée après le délai courant (percentile {@code percentile} des latences
+ * récentes de l'opération, borné par {@code minDelayMillis}/{@code maxDelayMillis}), une seconde requête
+ * identique part et la première réponse réussie l'emporte ; l'autre est libérée à son arrivée.
+ *
+ * Les couvertures puisent dans un seau de jetons : chaque appel en rapporte {@code maxHedgeRatio}, le seau
+ * en garde au plus {@code maxHedgeBurst}. Au plus {@code maxHedgeRatio} des appels sont donc doublés, et une
+ * longue période calme n'accumule pas de quoi doubler d'un coup tous les appels d'un MinIO qui ralentit.
+ */
+final class HedgedCalls implements AutoCloseable {
+
+    /** Un jeton de couverture, en millionièmes : un appel en rapporte une fraction */
+    private static final long HEDGE_TOKEN = 1_000_000;
+
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final long tokensPerCall;
+    private final long maxTokens;
+    private final MeterRegistry meterRegistry;
+    private final AtomicLong hedgeTokens = new AtomicLong();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    HedgedCalls(boolean enabled, double percentile, long minDelayMillis, long maxDelayMillis,
+                double maxHedgeRatio, int maxHedgeBurst, MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.percentile = Math.min(100, Math.max(0, percentile));
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMillis);
+        this.maxDelayNanos = Math.max(minDelayNanos, TimeUnit.MILLISECONDS.toNanos(maxDelayMillis));
+        this.tokensPerCall = (long) (Math.max(0, maxHedgeRatio) * HEDGE_TOKEN);
+        this.maxTokens = Math.max(1, maxHedgeBurst) * HEDGE_TOKEN;
+        this.meterRegistry = meterRegistry;
+    }
+
+    Operation operation(String name) {
+        return new Operation(name);
+    }
+
+    /**
+     * Une famille d'appels (getObject, stat...) avec son propre historique de latences.
+     */
+    final class Operation {
+
+        private static final int SAMPLES = 256;
+        private static final int RECOMPUTE_EVERY = 32;
+
+        private final long[] samples = new long[SAMPLES];
+        private int sampleCount;
+        private int nextSample;
+        private volatile long hedgeDelayNanos = maxDelayNanos;
+        private final Counter sent;
+        private final Counter won;
+
+        private Operation(String name) {
+            Gauge.builder("storage.hedge.delay", this, op -> op.hedgeDelayNanos / 1_000_000d)
+                    .description("Délai avant requête couverte (ms)")
+                    .tag("operation", name)
+                    .register(meterRegistry);
+            this.sent = Counter.builder("storage.hedge.sent")
+                    .description("Requêtes couvertes envoyées")
+                    .tag("operation", name)
+                    .register(meterRegistry);
+            this.won = Counter.builder("storage.hedge.won")
+                    .description("Requêtes couvertes arrivées avant la requête initiale")
+                    .tag("operation", name)
+                    .register(meterRegistry);
+        }
+
+        /**
+         * @param discard libère un résultat arrivé trop tard (flux ouvert par la requête perdante)
+         */
+        <T> T call(StorageCall<T> call, Consumer<T> discard) throws Exception {
+            if (!enabled) {
+                return call.run();
+            }
+            earnHedgeToken();
+            CompletableFuture<T> primary = CompletableFuture.supplyAsync(() -> timed(call), executor);
+            try {
+                return primary.get(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException slow) {
+                // pas de réponse dans le délai : on tente une requête couverte
+            } catch (ExecutionException e) {
+                throw unwrap(e.getCause());
+            } catch (InterruptedException e) {
+                discardWhenDone(primary, discard);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for storage");
+            }
+
+            if (!tryReserveHedge()) {
+                return await(primary, discard);
+            }
+            sent.increment();
+            CompletableFuture<T> hedge = CompletableFuture.supplyAsync(() -> timed(call), executor);
+
+            CompletableFuture<T> winner = new CompletableFuture<>();
+            AtomicInteger failed = new AtomicInteger();
+            primary.whenComplete((result, error) -> settle(winner, result, error, failed, discard));
+            hedge.whenComplete((result, error) -> {
+                if (error == null && !primary.isDone()) {
+                    won.increment();
+                }
+                settle(winner, result, error, failed, discard);
+            });
+            return await(winner, discard);
+        }
+
+        private <T> void settle(CompletableFuture<T> winner, T result, Throwable error,
+                                AtomicInteger failed, Consumer<T> discard) {
+            if (error == null) {
+                if (!winner.complete(result) && result != null) {
+                    discard.accept(result);
+                }
+            } else if (failed.incrementAndGet() == 2) {
+                winner.completeExceptionally(error);
+            }
+        }
+
+        private <T> T timed(StorageCall<T> call) {
+            long start = System.nanoTime();
+            try {
+                T result = call.run();
+                record(System.nanoTime() - start);
+                return result;
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }
+
+        private synchronized void record(long latencyNanos) {
+            samples[nextSample] = latencyNanos;
+            nextSample = (nextSample + 1) % SAMPLES;
+            if (sampleCount < SAMPLES) {
+                sampleCount++;
+            }
+            if (sampleCount >= RECOMPUTE_EVERY && nextSample % RECOMPUTE_EVERY == 0) {
+                long[] sorted = Arrays.copyOf(samples, sampleCount);
+                Arrays.sort(sorted);
+                int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+                long delay = sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+                hedgeDelayNanos = Math.min(maxDelayNanos, Math.max(minDelayNanos, delay));
+            }
+        }
+    }
+
+    private void earnHedgeToken() {
+        hedgeTokens.accumulateAndGet(tokensPerCall, (current, earned) -> Math.min(maxTokens, current + earned));
+    }
+
+    private boolean tryReserveHedge() {
+        while (true) {
+            long current = hedgeTokens.get();
+            if (current < HEDGE_TOKEN) {
+                return false;
+            }
+            if (hedgeTokens.compareAndSet(current, current - HEDGE_TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future, Consumer<T> discard) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            discardWhenDone(future, discard);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for storage");
+        }
+    }
+
+    /**
+     * L'appelant n'attend plus : le résultat (flux ouvert, permis du bulkhead) est libéré à son arrivée.
+     */
+    private static <T> void discardWhenDone(CompletableFuture<T> future, Consumer<T> discard) {
+        future.thenAccept(result -> {
+            if (result != null) {
+                discard.accept(result);
+            }
+        });
+    }
+
+    private static Exception unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error instanceof Exception e) {
+            return e;
+        }
+        throw (Error) error;
+    }
+
+    /**
+     * Attend les requêtes encore en vol : leurs résultats arrivés trop tard sont libérés avant l'arrêt.
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
@@ -0,0 +1,192 @@
+package mds.mobile.storage;
+
+import com.google.common.io.ByteStreams;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Backend de stockage sur le système de fichiers local, pour les déploiements mono-nœud ou edge.
+ *
+ * Les écritures passent par des {@link FileChannel} (fichier temporaire puis renommage atomique) ;
+ * les téléchargements sont servis par {@link #localPath} en zero-copy, sans saut HTTP vers MinIO.
+ * Le type MIME est conservé dans un attribut étendu du fichier quand le système le permet.
+ */
+@Service
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local")
+public class LocalStorageService implements StorageBackend {
+
+    private static final String CONTENT_TYPE_ATTRIBUTE = "user.mime_type";
+
+    private final Path root;
+
+    public LocalStorageService(@Value("${storage.local.dir:./data/documents}") Path root) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        Files.createDirectories(this.root);
+    }
+
+    @Override
+    public String upload(String objectName, InputStream in, long size, String contentType) {
+        Path target = resolve(objectName);
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), ".upload-", ".part");
+            try {
+                try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE);
+                     ReadableByteChannel source = Channels.newChannel(in)) {
+                    long written = 0;
+                    while (written < size) {
+                        long n = out.transferFrom(source, written, size - written);
+                        if (n <= 0) {
+                            throw new IOException("Unexpected end of stream after " + written + " bytes");
+                        }
+                        written += n;
+                    }
+                }
+                writeContentType(temp, contentType);
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            return objectName;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write file to local storage", e);
+        }
+    }
+
+    @Override
+    public InputStream getObject(String objectName) {
+        try {
+            return Files.newInputStream(resolve(objectName));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read file from local storage", e);
+        }
+    }
+
+    @Override
+    public InputStream getObject(String objectName, long offset, long length) {
+        try {
+            FileChannel channel = FileChannel.open(resolve(objectName), StandardOpenOption.READ);
+            channel.position(offset);
+            return ByteStreams.limit(Channels.newInputStream(channel), length);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read file range from local storage", e);
+        }
+    }
+
+    @Override
+    public StoredObject stat(String objectName) {
+        try {
+            return toStoredObject(objectName, resolve(objectName));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to stat file in local storage", e);
+        }
+    }
+
+    @Override
+    public void delete(String objectName) {
+        try {
+            Files.deleteIfExists(resolve(objectName));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to delete file in local storage", e);
+        }
+    }
+
+    @Override
+    public List<StoredObject> list(String prefix) {
+        // Préfixe avec répertoire (segments/...) : seul ce sous-arbre est parcouru
+        Path start = root;
+        if (prefix != null && prefix.indexOf('/') > 0) {
+            start = resolve(prefix.substring(0, prefix.lastIndexOf('/')));
+            if (!Files.isDirectory(start)) {
+                return List.of();
+            }
+        }
+        try (Stream<Path> files = Files.walk(start)) {
+            return files
+                    .filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().startsWith(".upload-"))
+                    .map(path -> root.relativize(path).toString().replace('\\', '/'))
+                    .filter(key -> prefix == null || key.startsWith(prefix))
+                    .map(this::stat)
+                    .toList();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to list local storage", e);
+        }
+    }
+
+    @Override
+    public Optional<Path> localPath(String objectName) {
+        Path path = resolve(objectName);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    private Path resolve(String objectName) {
+        Path path = root.resolve(objectName).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IllegalArgumentException("Invalid object key: " + objectName);
+        }
+        return path;
+    }
+
+    private StoredObject toStoredObject(String key, Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        if (!attributes.isRegularFile()) {
+            throw new NoSuchFileException(path.toString());
+        }
+        // Etag faible à la nginx : taille + date de modification
+        String etag = Long.toHexString(attributes.size()) + "-" + Long.toHexString(attributes.lastModifiedTime().toMillis());
+        return new StoredObject(key, attributes.size(), etag, readContentType(path), attributes.lastModifiedTime().toInstant());
+    }
+
+    private static void writeContentType(Path path, String contentType) {
+        UserDefinedFileAttributeView view = Files.getFileAttributeView(path, UserDefinedFileAttributeView.class);
+        if (view == null || contentType == null) {
+            return;
+        }
+        try {
+            view.write(CONTENT_TYPE_ATTRIBUTE, StandardCharsets.UTF_8.encode(contentType));
+        } catch (IOException | UnsupportedOperationException ignored) {
+            // Système de fichiers sans attributs étendus : le type sera deviné à la lecture
+        }
+    }
+
+    private static String readContentType(Path path) {
+        UserDefinedFileAttributeView view = Files.getFileAttributeView(path, UserDefinedFileAttributeView.class);
+        if (view != null) {
+            try {
+                ByteBuffer buffer = ByteBuffer.allocate(view.size(CONTENT_TYPE_ATTRIBUTE));
+                view.read(CONTENT_TYPE_ATTRIBUTE, buffer);
+                buffer.flip();
+                return StandardCharsets.UTF_8.decode(buffer).toString();
+            } catch (IOException | UnsupportedOperationException ignored) {
+                // attribut absent : on retombe sur la détection par extension
+            }
+        }
+        try {
+            String probed = Files.probeContentType(path);
+            return probed != null ? probed : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        } catch (IOException e) {
+            return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        }
+    }
+}
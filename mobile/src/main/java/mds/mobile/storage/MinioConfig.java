@@ -1,13 +1,26 @@
 package mds.mobile.storage;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import io.minio.BucketExistsArgs;
 import io.minio.MakeBucketArgs;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+import java.time.Duration;
 
 @Configuration
+@ConditionalOnProperty(name = "storage.backend", havingValue = "minio", matchIfMissing = true)
 public class MinioConfig {
 
     @Value("${minio.endpoint}")
@@ -22,29 +35,172 @@ public class MinioConfig {
     @Value("${minio.bucket}")
     private String bucket;
 
+    @Value("${minio.http.max-requests-per-host:64}")
+    private int maxRequestsPerHost;
+
+    @Value("${minio.http.connect-timeout-ms:2000}")
+    private long connectTimeoutMillis;
+
+    @Value("${minio.http.read-timeout-ms:15000}")
+    private long readTimeoutMillis;
+
+    @Value("${minio.http.write-timeout-ms:30000}")
+    private long writeTimeoutMillis;
+
+    /**
+     * Client HTTP partagé : le dispatcher OkHttp limite par défaut à 5 requêtes asynchrones par hôte,
+     * ce qui plafonnerait l'upload multipart parallèle.
+     * Les timeouts remplacent ceux du SDK (5 minutes) : un MinIO qui ne répond plus libère vite les threads.
+     */
+    @Bean
+    public OkHttpClient minioHttpClient() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(Math.max(64, maxRequestsPerHost));
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .readTimeout(Duration.ofMillis(readTimeoutMillis))
+                .writeTimeout(Duration.ofMillis(writeTimeoutMillis))
+                .build();
+    }
+
     @Bean
-    public MinioClient minioClient() {
+    public MinioClient minioClient(OkHttpClient minioHttpClient) {
         return MinioClient.builder()
                 .endpoint(endpoint)
                 .credentials(accessKey, secretKey)
+                .httpClient(minioHttpClient)
                 .build();
     }
 
     @Bean
+    MultipartMinioClient multipartMinioClient(OkHttpClient minioHttpClient) {
+        return new MultipartMinioClient(MinioAsyncClient.builder()
+                .endpoint(endpoint)
+                .credentials(accessKey, secretKey)
+                .httpClient(minioHttpClient)
+                .build());
+    }
+
+    @Value("${minio.circuit-breaker.enabled:true}")
+    private boolean circuitBreakerEnabled;
+
+    @Value("${minio.circuit-breaker.window-size:20}")
+    private int circuitWindowSize;
+
+    @Value("${minio.circuit-breaker.minimum-calls:10}")
+    private int circuitMinimumCalls;
+
+    @Value("${minio.circuit-breaker.failure-rate-percent:50}")
+    private int circuitFailureRatePercent;
+
+    @Value("${minio.circuit-breaker.open-ms:10000}")
+    private long circuitOpenMillis;
+
+    @Value("${minio.circuit-breaker.half-open-calls:3}")
+    private int circuitHalfOpenCalls;
+
+    @Bean
+    CircuitBreaker minioCircuitBreaker(MeterRegistry meterRegistry) {
+        return new CircuitBreaker("minio", circuitBreakerEnabled, circuitWindowSize, circuitMinimumCalls,
+                circuitFailureRatePercent, circuitOpenMillis, circuitHalfOpenCalls,
+                MinioStorageService::isEndpointFailure, meterRegistry);
+    }
+
+    @Value("${minio.hedge.enabled:true}")
+    private boolean hedgeEnabled;
+
+    @Value("${minio.hedge.percentile:95}")
+    private double hedgePercentile;
+
+    @Value("${minio.hedge.min-delay-ms:10}")
+    private long hedgeMinDelayMillis;
+
+    @Value("${minio.hedge.max-delay-ms:500}")
+    private long hedgeMaxDelayMillis;
+
+    @Value("${minio.hedge.max-ratio:0.1}")
+    private double hedgeMaxRatio;
+
+    @Value("${minio.hedge.max-burst:10}")
+    private int hedgeMaxBurst;
+
+    @Bean
+    HedgedCalls minioHedgedCalls(MeterRegistry meterRegistry) {
+        return new HedgedCalls(hedgeEnabled, hedgePercentile, hedgeMinDelayMillis, hedgeMaxDelayMillis,
+                hedgeMaxRatio, hedgeMaxBurst, meterRegistry);
+    }
+
+    @Value("${minio.bucket-check.async:false}")
+    private boolean asyncBucketCheck;
+
+    @Value("${minio.bucket-check.retry-ms:2000}")
+    private long bucketCheckRetryMillis;
+
+    @Bean
+    @Lazy(false)
     public BucketInitializer bucketInitializer(MinioClient minioClient) {
-        return new BucketInitializer(minioClient, bucket);
+        return new BucketInitializer(minioClient, bucket, asyncBucketCheck, bucketCheckRetryMillis);
     }
 
-    public static class BucketInitializer {
-        public BucketInitializer(MinioClient client, String bucket) {
-            try {
-                boolean exists = client.bucketExists(BucketExistsArgs.builder().bucket(bucket).build());
-                if (!exists) {
-                    client.makeBucket(MakeBucketArgs.builder().bucket(bucket).build());
+    /**
+     * Vérifie (et crée si besoin) le bucket au démarrage.
+     *
+     * En mode asynchrone (profil prod), la vérification tourne en arrière-plan jusqu'à réussir :
+     * le démarrage n'attend plus MinIO, et l'indicateur de santé reste DOWN (donc le groupe
+     * readiness aussi) tant que le bucket n'est pas confirmé.
+     */
+    public static class BucketInitializer implements HealthIndicator {
+
+        private static final Logger log = LoggerFactory.getLogger(BucketInitializer.class);
+
+        private volatile boolean ready;
+        private volatile String lastError = "bucket check pending";
+
+        public BucketInitializer(MinioClient client, String bucket, boolean async, long retryMillis) {
+            if (!async) {
+                try {
+                    ensureBucket(client, bucket);
+                } catch (Exception e) {
+                    throw new RuntimeException("Failed to initialize MinIO bucket", e);
                 }
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to initialize MinIO bucket", e);
+                ready = true;
+                return;
             }
+            Thread.ofVirtual().name("minio-bucket-check").start(() -> {
+                while (!ready) {
+                    try {
+                        ensureBucket(client, bucket);
+                        ready = true;
+                        log.info("MinIO bucket {} ready", bucket);
+                    } catch (Exception e) {
+                        lastError = e.getMessage();
+                        log.warn("MinIO bucket {} not ready yet: {}", bucket, e.getMessage());
+                        try {
+                            Thread.sleep(retryMillis);
+                        } catch (InterruptedException ie) {
+                            return;
+                        }
+                    }
+                }
+            });
+        }
+
+        private static void ensureBucket(MinioClient client, String bucket) throws Exception {
+            boolean exists = client.bucketExists(BucketExistsArgs.builder().bucket(bucket).build());
+            if (!exists) {
+                client.makeBucket(MakeBucketArgs.builder().bucket(bucket).build());
+            }
+        }
+
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public Health health() {
+            return ready ? Health.up().build() : Health.down().withDetail("error", lastError).build();
         }
     }
 }
@@ -1,83 +1,240 @@
 package mds.mobile.storage;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import io.minio.GetObjectArgs;
-import io.minio.GetObjectResponse;
+import io.minio.ListObjectsArgs;
 import io.minio.MinioClient;
 import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.Result;
 import io.minio.StatObjectArgs;
 import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
 import io.minio.errors.MinioException;
+import io.minio.messages.Item;
+import jakarta.annotation.PreDestroy;
+import mds.mobile.cache.SingleFlight;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.UUID;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Backend MinIO. Chaque famille d'appels (upload, download, métadonnées) passe par son propre
+ * {@link Bulkhead} : quand MinIO ralentit, un pool saturé répond 503 au lieu d'immobiliser tous les workers.
+ * Tous les appels passent par le disjoncteur ; les lectures (getObject, stat) sont en plus couvertes
+ * par des requêtes doublées quand la première réponse tarde.
+ */
 @Service
-public class MinioStorageService {
+@ConditionalOnProperty(name = "storage.backend", havingValue = "minio", matchIfMissing = true)
+public class MinioStorageService implements StorageBackend {
 
     private final MinioClient minioClient;
     private final String bucketName;
+    private final ParallelMultipartUploader multipartUploader;
+    private final long multipartThreshold;
+    private final Bulkhead uploads;
+    private final Bulkhead downloads;
+    private final Bulkhead metadata;
+    private final CircuitBreaker circuitBreaker;
+    private final HedgedCalls hedgedCalls;
+    private final HedgedCalls.Operation hedgedGets;
+    private final HedgedCalls.Operation hedgedStats;
+    private final SingleFlight<String, StoredObject> stats;
 
-    public MinioStorageService(MinioClient minioClient, @Value("${minio.bucket}") String bucketName) {
+    public MinioStorageService(MinioClient minioClient,
+                               MultipartMinioClient multipartMinioClient,
+                               CircuitBreaker minioCircuitBreaker,
+                               HedgedCalls minioHedgedCalls,
+                               @Value("${minio.bucket}") String bucketName,
+                               @Value("${minio.multipart.threshold:67108864}") long multipartThreshold,
+                               @Value("${minio.multipart.part-size:16777216}") long partSize,
+                               @Value("${minio.multipart.concurrency:8}") int concurrency,
+                               @Value("${minio.multipart.part-attempts:3}") int partAttempts,
+                               @Value("${minio.multipart.retry-backoff-ms:200}") long retryBackoffMillis,
+                               @Value("${minio.bulkhead.upload.max-concurrent:16}") int maxConcurrentUploads,
+                               @Value("${minio.bulkhead.download.max-concurrent:64}") int maxConcurrentDownloads,
+                               @Value("${minio.bulkhead.metadata.max-concurrent:32}") int maxConcurrentMetadata,
+                               @Value("${minio.bulkhead.max-wait-ms:0}") long maxWaitMillis,
+                               @Value("${cache.single-flight.max-wait-ms:2000}") long singleFlightWaitMillis,
+                               MeterRegistry meterRegistry) {
         this.minioClient = minioClient;
         this.bucketName = bucketName;
+        this.multipartThreshold = multipartThreshold;
+        this.multipartUploader = new ParallelMultipartUploader(
+                multipartMinioClient, partSize, concurrency, partAttempts, retryBackoffMillis);
+        this.uploads = new Bulkhead("upload", maxConcurrentUploads, maxWaitMillis, meterRegistry);
+        this.downloads = new Bulkhead("download", maxConcurrentDownloads, maxWaitMillis, meterRegistry);
+        this.metadata = new Bulkhead("metadata", maxConcurrentMetadata, maxWaitMillis, meterRegistry);
+        this.circuitBreaker = minioCircuitBreaker;
+        this.hedgedCalls = minioHedgedCalls;
+        this.hedgedGets = minioHedgedCalls.operation("getObject");
+        this.hedgedStats = minioHedgedCalls.operation("stat");
+        this.stats = new SingleFlight<>(singleFlightWaitMillis);
     }
 
-    public String upload(MultipartFile file, String objectName) {
+    @Override
+    public String upload(String objectName, InputStream is, long size, String contentType) {
         try {
-            if (objectName == null || objectName.isBlank()) {
-                objectName = UUID.randomUUID() + "-" + file.getOriginalFilename();
-            }
-
-            String contentType = file.getContentType();
-            if (contentType == null || contentType.isBlank()) {
-                contentType = MediaType.APPLICATION_OCTET_STREAM_VALUE;
-            }
+            return circuitBreaker.call(() -> uploads.call(() -> {
+                // Gros fichiers : parts envoyées en parallèle plutôt qu'une à une sur une seule connexion
+                if (size >= multipartThreshold) {
+                    multipartUploader.upload(bucketName, objectName, contentType, is, size);
+                    return objectName;
+                }
 
-            try (InputStream is = file.getInputStream()) {
                 PutObjectArgs args = PutObjectArgs.builder()
                         .bucket(bucketName)
                         .object(objectName)
                         .contentType(contentType)
-                        .stream(is, file.getSize(), -1)
+                        .stream(is, size, -1)
                         .build();
                 minioClient.putObject(args);
-            }
 
-            return objectName; // we return the key
+                return objectName; // we return the key
+            }));
         } catch (MinioException me) {
             throw new RuntimeException("MinIO error: " + me.getMessage(), me);
         } catch (Exception e) {
-            throw new RuntimeException("Failed to upload file to MinIO", e);
+            throw failure("Failed to upload file to MinIO", e);
         }
     }
 
-    public GetObjectResponse getObject(String objectName) {
+    @Override
+    public InputStream getObject(String objectName) {
         try {
-            return minioClient.getObject(
+            return circuitBreaker.call(() -> hedgedGets.call(() -> downloads.open(() -> minioClient.getObject(
                     GetObjectArgs.builder()
                             .bucket(bucketName)
                             .object(objectName)
                             .build()
-            );
+            )), MinioStorageService::closeQuietly));
         } catch (Exception e) {
-            throw new RuntimeException("Failed to download file from MinIO", e);
+            throw failure("Failed to download file from MinIO", e);
         }
     }
 
-    public StatObjectResponse stat(String objectName) {
+    @Override
+    public InputStream getObject(String objectName, long offset, long length) {
         try {
-            return minioClient.statObject(
+            return circuitBreaker.call(() -> hedgedGets.call(() -> downloads.open(() -> minioClient.getObject(
+                    GetObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(objectName)
+                            .offset(offset)
+                            .length(length)
+                            .build()
+            )), MinioStorageService::closeQuietly));
+        } catch (Exception e) {
+            throw failure("Failed to download file range from MinIO", e);
+        }
+    }
+
+    /**
+     * Les stat simultanés d'un même objet (document partagé, ouvert par beaucoup de clients à la fois)
+     * partagent un seul appel à MinIO.
+     */
+    @Override
+    public StoredObject stat(String objectName) {
+        return stats.execute(objectName, () -> statObject(objectName));
+    }
+
+    private StoredObject statObject(String objectName) {
+        try {
+            StatObjectResponse stat = circuitBreaker.call(() -> hedgedStats.call(() -> metadata.call(() -> minioClient.statObject(
                     StatObjectArgs.builder()
                             .bucket(bucketName)
                             .object(objectName)
                             .build()
-            );
+            )), ignored -> { }));
+            return new StoredObject(objectName, stat.size(), stat.etag(), stat.contentType(),
+                    stat.lastModified() != null ? stat.lastModified().toInstant() : null);
+        } catch (Exception e) {
+            throw failure("Failed to stat object in MinIO", e);
+        }
+    }
+
+    @Override
+    public void delete(String objectName) {
+        try {
+            circuitBreaker.call(() -> metadata.call(() -> {
+                minioClient.removeObject(
+                        RemoveObjectArgs.builder()
+                                .bucket(bucketName)
+                                .object(objectName)
+                                .build()
+                );
+                return null;
+            }));
+        } catch (Exception e) {
+            throw failure("Failed to delete object in MinIO", e);
+        }
+    }
+
+    @Override
+    public List<StoredObject> list(String prefix) {
+        try {
+            return circuitBreaker.call(() -> metadata.call(() -> {
+                List<StoredObject> objects = new ArrayList<>();
+                Iterable<Result<Item>> results = minioClient.listObjects(
+                        ListObjectsArgs.builder()
+                                .bucket(bucketName)
+                                .prefix(prefix)
+                                .recursive(true)
+                                .build()
+                );
+                for (Result<Item> result : results) {
+                    Item item = result.get();
+                    objects.add(new StoredObject(item.objectName(), item.size(), item.etag(), null,
+                            item.lastModified() != null ? item.lastModified().toInstant() : null));
+                }
+                return objects;
+            }));
         } catch (Exception e) {
-            throw new RuntimeException("Failed to stat object in MinIO", e);
+            throw failure("Failed to list objects in MinIO", e);
         }
     }
+
+    /**
+     * Une erreur S3 du client (objet absent, accès refusé...) prouve que l'endpoint répond : elle n'ouvre pas
+     * le circuit. Une erreur 5xx (ServiceUnavailable, SlowDown, InternalError) compte comme un échec.
+     */
+    static boolean isEndpointFailure(Exception e) {
+        return !(e instanceof ErrorResponseException error) || error.response().code() >= 500;
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException ignored) {
+            // flux de la requête perdante : rien à faire
+        }
+    }
+
+    /**
+     * Pool saturé, circuit ouvert, MinIO injoignable ou trop lent (timeouts du client HTTP) : 503 plutôt que 500.
+     */
+    private static RuntimeException failure(String message, Exception e) {
+        if (e instanceof StorageUnavailableException unavailable) {
+            return unavailable;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedIOException || cause instanceof ConnectException) {
+                return new StorageUnavailableException(message + ": " + cause.getMessage(), 5);
+            }
+        }
+        return new RuntimeException(message, e);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        multipartUploader.close();
+        hedgedCalls.close();
+    }
 }
@@ -0,0 +1,50 @@
+package mds.mobile.storage;
+
+import com.google.common.collect.ImmutableMultimap;
+import io.minio.MinioAsyncClient;
+import io.minio.messages.Part;
+
+/**
+ * Expose les appels multipart bas niveau du SDK (protégés dans {@link MinioAsyncClient})
+ * pour que les parts puissent être envoyées en parallèle.
+ */
+class MultipartMinioClient extends MinioAsyncClient {
+
+    MultipartMinioClient(MinioAsyncClient client) {
+        super(client);
+    }
+
+    String createMultipartUpload(String bucket, String object, String contentType) throws Exception {
+        return createMultipartUploadAsync(bucket, null, object, ImmutableMultimap.of("Content-Type", contentType), null)
+                .get()
+                .result()
+                .uploadId();
+    }
+
+    String uploadPart(String bucket, String object, String uploadId, int partNumber, byte[] data) throws Exception {
+        return uploadPartAsync(bucket, null, object, data, data.length, uploadId, partNumber, null, null)
+                .get()
+                .etag();
+    }
+
+    void completeMultipartUpload(String bucket, String object, String uploadId, Part[] parts) throws Exception {
+        completeMultipartUploadAsync(bucket, null, object, uploadId, parts, null, null).get();
+    }
+
+    void abortMultipartUpload(String bucket, String object, String uploadId) throws Exception {
+        abortMultipartUploadAsync(bucket, null, object, uploadId, null, null).get();
+    }
+
+    /**
+     * Le client HTTP est fourni à la construction (bean partagé) : rien n'est libéré ici. Redéfini sans
+     * {@code throws Exception}, qui laisserait une {@code InterruptedException} sortir d'un try-with-resources.
+     */
+    @Override
+    public void close() {
+        try {
+            super.close();
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to close MinIO client", e);
+        }
+    }
+}
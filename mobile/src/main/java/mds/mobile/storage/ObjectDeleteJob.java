@@ -0,0 +1,31 @@
+package mds.mobile.storage;
+
+import mds.mobile.job.JobHandler;
+import org.springframework.stereotype.Component;
+
+/**
+ * Suppression différée de l'objet d'un document supprimé (charge utile : la clé de l'objet).
+ * Un stockage indisponible ne bloque pas la suppression du document : l'objet est supprimé plus tard.
+ */
+@Component
+public class ObjectDeleteJob implements JobHandler {
+
+    public static final String TYPE = "object-delete";
+
+    private final StorageBackend storage;
+
+    public ObjectDeleteJob(StorageBackend storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public void run(String objectKey) {
+        // Sans effet si l'objet n'existe plus : la tâche peut être rejouée
+        storage.delete(objectKey);
+    }
+}
@@ -0,0 +1,279 @@
+package mds.mobile.storage;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Cache disque local des corps d'objets MinIO les plus demandés.
+ *
+ * Les entrées sont indexées par clé d'objet + etag : un objet réécrit change d'etag et
+ * n'est donc jamais servi périmé. L'éviction est LRU, bornée en octets. Un objet n'est admis
+ * qu'après vérification de sa taille et, pour les etags simples (MD5), de son contenu.
+ * Les chargements concurrents d'un même objet sont fusionnés en un seul téléchargement.
+ *
+ * Chaque instance a son propre répertoire sous {@code storage.cache.dir}, verrouillé tant qu'elle tourne :
+ * plusieurs instances sur une même machine partagent la base sans toucher aux fichiers des autres. Au
+ * démarrage, seuls les répertoires dont le verrou est libre (instance arrêtée) sont supprimés.
+ */
+@Component
+@Lazy(false)
+public class ObjectDiskCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ObjectDiskCache.class);
+
+    private static final String INSTANCE_PREFIX = "instance-";
+    private static final String LOCK_FILE = ".lock";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final FileChannel lockChannel;
+    private final long maxBytes;
+    private final long maxObjectBytes;
+    private final long deleteGraceNanos;
+
+    /** Ordre d'accès : le premier élément est le moins récemment utilisé */
+    private final LinkedHashMap<String, CachedObject> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, CompletableFuture<Path>> loading = new ConcurrentHashMap<>();
+    private final ArrayDeque<PendingDelete> pendingDeletes = new ArrayDeque<>();
+    private long usedBytes;
+
+    public ObjectDiskCache(@Value("${storage.cache.enabled:true}") boolean enabled,
+                           @Value("${storage.cache.dir:${java.io.tmpdir}/mobile-object-cache}") Path baseDirectory,
+                           @Value("${storage.cache.max-bytes:1073741824}") long maxBytes,
+                           @Value("${storage.cache.max-object-bytes:67108864}") long maxObjectBytes,
+                           @Value("${storage.cache.delete-grace-ms:60000}") long deleteGraceMillis) throws IOException {
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.maxObjectBytes = maxObjectBytes;
+        this.deleteGraceNanos = TimeUnit.MILLISECONDS.toNanos(deleteGraceMillis);
+        if (enabled) {
+            Files.createDirectories(baseDirectory);
+            this.directory = Files.createTempDirectory(baseDirectory, INSTANCE_PREFIX);
+            this.lockChannel = lock(directory);
+            // L'index n'est pas persisté : les fichiers d'une instance arrêtée sont orphelins
+            deleteAbandoned(baseDirectory);
+        } else {
+            this.directory = baseDirectory;
+            this.lockChannel = null;
+        }
+    }
+
+    /**
+     * Verrou de l'instance sur son répertoire, pris avant que le fichier de verrou ne porte son nom :
+     * une autre instance ne trouve jamais ce fichier sans verrou tant que le processus tourne.
+     */
+    private static FileChannel lock(Path directory) throws IOException {
+        Path pending = Files.createTempFile(directory, LOCK_FILE, ".tmp");
+        FileChannel channel = FileChannel.open(pending, StandardOpenOption.WRITE);
+        try {
+            channel.lock();
+            Files.move(pending, directory.resolve(LOCK_FILE), StandardCopyOption.ATOMIC_MOVE);
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Supprime les répertoires des instances arrêtées (verrou libre). Ceux d'une instance en cours de
+     * démarrage (pas encore de fichier de verrou) ou vivante, y compris dans ce processus, sont laissés.
+     */
+    private void deleteAbandoned(Path baseDirectory) throws IOException {
+        try (DirectoryStream<Path> instances = Files.newDirectoryStream(baseDirectory, INSTANCE_PREFIX + "*")) {
+            for (Path instance : instances) {
+                if (instance.equals(directory) || !Files.isDirectory(instance)) {
+                    continue;
+                }
+                try (FileChannel channel = FileChannel.open(instance.resolve(LOCK_FILE), StandardOpenOption.WRITE);
+                     FileLock lock = channel.tryLock()) {
+                    if (lock != null) {
+                        deleteRecursively(instance);
+                    }
+                } catch (NoSuchFileException | OverlappingFileLockException ignored) {
+                    // instance en cours de démarrage, ou vivante dans ce processus
+                }
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path root) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    log.warn("Unable to delete cache file {}: {}", path, e.getMessage());
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            // répertoire supprimé en même temps par une autre instance
+            log.warn("Unable to delete cache directory {}: {}", root, e.getMessage());
+        }
+    }
+
+    /**
+     * Le répertoire de l'instance disparaît avec elle ; le serveur HTTP est déjà arrêté, plus aucun
+     * fichier n'est en cours d'envoi.
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        if (lockChannel == null) {
+            return;
+        }
+        deleteRecursively(directory);
+        lockChannel.close();
+    }
+
+    /**
+     * Renvoie le fichier local de l'objet, en le téléchargeant via {@code loader} si besoin.
+     * @return le chemin du fichier en cache, ou {@code null} si l'objet n'est pas cacheable
+     *         ou si son chargement a échoué (l'appelant lit alors directement depuis le stockage)
+     */
+    public Path getOrLoad(String objectKey, String etag, long size, Supplier<InputStream> loader) {
+        if (!enabled || etag == null || size > maxObjectBytes || size > maxBytes) {
+            return null;
+        }
+        String key = objectKey + "@" + normalizeEtag(etag);
+
+        synchronized (entries) {
+            CachedObject cached = entries.get(key);
+            if (cached != null) {
+                return cached.path();
+            }
+        }
+
+        CompletableFuture<Path> mine = new CompletableFuture<>();
+        CompletableFuture<Path> inFlight = loading.putIfAbsent(key, mine);
+        if (inFlight != null) {
+            return inFlight.exceptionally(e -> null).join();
+        }
+
+        try {
+            Path path = load(key, normalizeEtag(etag), size, loader);
+            mine.complete(path);
+            return path;
+        } catch (Exception e) {
+            log.warn("Object {} not admitted to disk cache: {}", objectKey, e.getMessage());
+            mine.complete(null);
+            return null;
+        } finally {
+            loading.remove(key, mine);
+        }
+    }
+
+    private Path load(String key, String etag, long size, Supplier<InputStream> loader) throws Exception {
+        // Nom unique par admission : une suppression différée ne peut pas toucher une ré-admission
+        Path target = Files.createTempFile(directory, "obj-", ".bin");
+        boolean admitted = false;
+        try {
+            MessageDigest md5 = MessageDigest.getInstance("MD5");
+            long written;
+            try (InputStream in = new DigestInputStream(loader.get(), md5);
+                 OutputStream out = Files.newOutputStream(target)) {
+                written = in.transferTo(out);
+            }
+            if (written != size) {
+                throw new IOException("size mismatch: expected " + size + " got " + written);
+            }
+            // Les etags multipart ("<md5>-<n>") ne sont pas un MD5 du contenu : seule la taille est vérifiée
+            if (!etag.contains("-") && !HexFormat.of().formatHex(md5.digest()).equalsIgnoreCase(etag)) {
+                throw new IOException("checksum mismatch for etag " + etag);
+            }
+            admitted = true;
+        } finally {
+            if (!admitted) {
+                Files.deleteIfExists(target);
+            }
+        }
+
+        synchronized (entries) {
+            CachedObject previous = entries.put(key, new CachedObject(target, size));
+            if (previous != null) {
+                usedBytes -= previous.size();
+                pendingDeletes.add(new PendingDelete(previous.path(), System.nanoTime() + deleteGraceNanos));
+            }
+            usedBytes += size;
+            evictOverflow();
+        }
+        return target;
+    }
+
+    /** À appeler sous le verrou de {@code entries} */
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, CachedObject>> it = entries.entrySet().iterator();
+        while (usedBytes > maxBytes && it.hasNext()) {
+            CachedObject evicted = it.next().getValue();
+            it.remove();
+            usedBytes -= evicted.size();
+            // Suppression différée : un envoi en sendfile peut encore ouvrir le fichier
+            pendingDeletes.add(new PendingDelete(evicted.path(), System.nanoTime() + deleteGraceNanos));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${storage.cache.delete-sweep-ms:10000}")
+    public void deleteEvictedFiles() {
+        long now = System.nanoTime();
+        while (true) {
+            PendingDelete next;
+            synchronized (entries) {
+                next = pendingDeletes.peek();
+                if (next == null || next.deadline() - now > 0) {
+                    return;
+                }
+                pendingDeletes.poll();
+            }
+            try {
+                Files.deleteIfExists(next.path());
+            } catch (IOException e) {
+                log.warn("Unable to delete evicted cache file {}: {}", next.path(), e.getMessage());
+            }
+        }
+    }
+
+    public long usedBytes() {
+        synchronized (entries) {
+            return usedBytes;
+        }
+    }
+
+    private static String normalizeEtag(String etag) {
+        return etag.replace("\"", "");
+    }
+
+    private record CachedObject(Path path, long size) {}
+
+    private record PendingDelete(Path path, long deadline) {}
+}
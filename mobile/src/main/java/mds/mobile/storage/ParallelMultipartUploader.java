@@ -0,0 +1,143 @@
+package mds.mobile.storage;
+
+import io.minio.messages.Part;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Upload multipart parallèle d'un gros fichier.
+ *
+ * Le flux est découpé en parts lues séquentiellement ; chaque part est envoyée sur son propre thread
+ * (virtuel) avec retry. Un sémaphore borne le nombre de parts en vol, donc la mémoire utilisée
+ * est au plus {@code concurrency * partSize}, quelle que soit la taille du fichier.
+ */
+class ParallelMultipartUploader implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ParallelMultipartUploader.class);
+
+    /** Limites S3 : 10 000 parts maximum, 5 Mo minimum sauf pour la dernière */
+    private static final int MAX_PARTS = 10_000;
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    private final MultipartMinioClient client;
+    private final long partSize;
+    private final int concurrency;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    ParallelMultipartUploader(MultipartMinioClient client, long partSize, int concurrency,
+                              int maxAttempts, long retryBackoffMillis) {
+        this.client = client;
+        this.partSize = Math.max(MIN_PART_SIZE, partSize);
+        this.concurrency = Math.max(1, concurrency);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMillis = retryBackoffMillis;
+    }
+
+    void upload(String bucket, String objectName, String contentType, InputStream in, long size) throws Exception {
+        long effectivePartSize = Math.max(partSize, (size + MAX_PARTS - 1) / MAX_PARTS);
+        int partCount = (int) Math.max(1, (size + effectivePartSize - 1) / effectivePartSize);
+
+        String uploadId = client.createMultipartUpload(bucket, objectName, contentType);
+        Part[] parts = new Part[partCount];
+        Semaphore inFlight = new Semaphore(concurrency);
+        AtomicBoolean failed = new AtomicBoolean();
+        // Futures de l'executor : cancel(true) interrompt le thread de la part (pas ceux d'un CompletableFuture)
+        List<Future<?>> pending = new ArrayList<>(partCount);
+
+        try {
+            for (int i = 0; i < partCount; i++) {
+                int partNumber = i + 1;
+                int length = (int) Math.min(effectivePartSize, size - i * effectivePartSize);
+
+                inFlight.acquire();
+                byte[] buffer;
+                try {
+                    buffer = in.readNBytes(length);
+                } catch (IOException e) {
+                    inFlight.release();
+                    throw e;
+                }
+                if (buffer.length != length) {
+                    inFlight.release();
+                    throw new IOException("Unexpected end of stream at part " + partNumber);
+                }
+
+                pending.add(executor.submit(() -> {
+                    try {
+                        parts[partNumber - 1] = uploadPart(bucket, objectName, uploadId, partNumber, buffer);
+                    } catch (RuntimeException e) {
+                        failed.set(true);
+                        throw e;
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+
+                // Arrêt anticipé : inutile de lire la suite si une part a déjà définitivement échoué
+                if (failed.get()) {
+                    break;
+                }
+            }
+
+            for (Future<?> part : pending) {
+                try {
+                    part.get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+            client.completeMultipartUpload(bucket, objectName, uploadId, parts);
+        } catch (Exception e) {
+            pending.forEach(f -> f.cancel(true));
+            try {
+                client.abortMultipartUpload(bucket, objectName, uploadId);
+            } catch (Exception abortError) {
+                e.addSuppressed(abortError);
+            }
+            throw e;
+        }
+    }
+
+    private Part uploadPart(String bucket, String objectName, String uploadId, int partNumber, byte[] data) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return new Part(partNumber, client.uploadPart(bucket, objectName, uploadId, partNumber, data));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Part upload interrupted", e);
+            } catch (Exception e) {
+                if (attempt >= maxAttempts) {
+                    throw new IllegalStateException("Part " + partNumber + " failed after " + attempt + " attempts", e);
+                }
+                log.warn("Retrying part {} of {} (attempt {}): {}", partNumber, objectName, attempt, e.getMessage());
+                try {
+                    Thread.sleep(retryBackoffMillis << (attempt - 1));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Part upload interrupted", ie);
+                }
+            }
+        }
+    }
+
+    /**
+     * Attend la fin des parts en vol : un upload en cours à l'arrêt se termine (ou échoue) normalement.
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
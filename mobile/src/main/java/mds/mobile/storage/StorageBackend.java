@@ -0,0 +1,63 @@
+package mds.mobile.storage;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Abstraction du stockage des fichiers de documents.
+ * Le backend actif est choisi par {@code storage.backend} ({@code minio} par défaut, ou {@code local}).
+ */
+public interface StorageBackend {
+
+    /**
+     * Écrit l'objet et renvoie sa clé.
+     */
+    String upload(String objectName, InputStream in, long size, String contentType);
+
+    /**
+     * Lit l'objet entier. L'appelant doit fermer le flux.
+     */
+    InputStream getObject(String objectName);
+
+    /**
+     * Lit {@code length} octets à partir de {@code offset}. L'appelant doit fermer le flux.
+     */
+    InputStream getObject(String objectName, long offset, long length);
+
+    StoredObject stat(String objectName);
+
+    void delete(String objectName);
+
+    List<StoredObject> list(String prefix);
+
+    /**
+     * Fichier local contenant l'objet, si le backend en a un : il peut alors être envoyé en zero-copy.
+     */
+    default Optional<Path> localPath(String objectName) {
+        return Optional.empty();
+    }
+
+    default String upload(MultipartFile file, String objectName) {
+        if (objectName == null || objectName.isBlank()) {
+            objectName = UUID.randomUUID() + "-" + file.getOriginalFilename();
+        }
+
+        String contentType = file.getContentType();
+        if (contentType == null || contentType.isBlank()) {
+            contentType = MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        }
+
+        try (InputStream is = file.getInputStream()) {
+            return upload(objectName, is, file.getSize(), contentType);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read uploaded file", e);
+        }
+    }
+}
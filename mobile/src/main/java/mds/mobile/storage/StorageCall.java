@@ -0,0 +1,9 @@
+package mds.mobile.storage;
+
+/**
+ * Appel au stockage pouvant lever les exceptions vérifiées du SDK.
+ */
+@FunctionalInterface
+interface StorageCall<T> {
+    T run() throws Exception;
+}
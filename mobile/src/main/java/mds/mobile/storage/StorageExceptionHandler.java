@@ -0,0 +1,30 @@
+package mds.mobile.storage;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+/**
+ * Traduit l'indisponibilité du stockage en 503 avec Retry-After.
+ */
+@RestControllerAdvice
+public class StorageExceptionHandler {
+
+    @ExceptionHandler(StorageUnavailableException.class)
+    public ResponseEntity<Map<String, String>> handleUnavailable(StorageUnavailableException e) {
+        return unavailable(e);
+    }
+
+    /**
+     * Pour les contrôleurs qui interceptent déjà toutes les exceptions du stockage.
+     */
+    public static ResponseEntity<Map<String, String>> unavailable(StorageUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Map.of("error", "storage_unavailable", "message", e.getMessage()));
+    }
+}
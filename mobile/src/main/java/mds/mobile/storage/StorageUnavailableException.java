@@ -0,0 +1,24 @@
+package mds.mobile.storage;
+
+import java.io.Serial;
+
+/**
+ * Le stockage ne peut pas prendre la requête tout de suite (pool saturé, backend hors service) :
+ * l'appelant doit répondre 503 plutôt que d'attendre.
+ */
+public class StorageUnavailableException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public StorageUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,14 @@
+package mds.mobile.storage;
+
+import java.time.Instant;
+
+/**
+ * Métadonnées d'un objet stocké, indépendantes du backend.
+ */
+public record StoredObject(
+        String key,
+        long size,
+        String etag,
+        String contentType,
+        Instant lastModified
+) {}
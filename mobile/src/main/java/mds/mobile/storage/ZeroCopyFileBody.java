@@ -0,0 +1,60 @@
+package mds.mobile.storage;
+
+import jakarta.servlet.http.HttpServletRequest;
+import com.google.common.io.ByteStreams;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Envoi d'un fichier local sans recopie en espace utilisateur.
+ *
+ * Sous Tomcat, le fichier est confié au connecteur via les attributs sendfile : le corps de la réponse
+ * reste vide et Tomcat fait un {@code FileChannel.transferTo} vers la socket (sendfile côté noyau).
+ * Sur un autre conteneur on retombe sur une copie classique du fichier.
+ */
+public final class ZeroCopyFileBody {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private ZeroCopyFileBody() {
+    }
+
+    /**
+     * @return {@code null} si le connecteur se charge de l'envoi (réponse sans corps),
+     *         sinon un corps à renvoyer tel quel dans la {@code ResponseEntity}
+     */
+    public static Resource of(HttpServletRequest request, Path file, long length) {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, length);
+            return null;
+        }
+        return new FileSystemResource(file);
+    }
+
+    /**
+     * Envoi d'une partie du fichier ({@code length} octets à partir de {@code start}).
+     */
+    public static Resource of(HttpServletRequest request, Path file, long start, long length) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            return null;
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        channel.position(start);
+        return new InputStreamResource(ByteStreams.limit(Channels.newInputStream(channel), length));
+    }
+}
@@ -0,0 +1,142 @@
+package mds.mobile.tag;
+
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Bitmaps de l'index des tags, sur les ordinaux des documents (non thread-safe, voir {@link TagIndex}).
+ *
+ * Chaque document reçoit un ordinal croissant à sa première indexation ; un document supprimé libère
+ * son ordinal, qui n'est réutilisé qu'à la reconstruction suivante.
+ */
+final class TagBitmaps {
+
+    private static final RoaringBitmap EMPTY = new RoaringBitmap();
+
+    private final Map<UUID, Integer> ordinals = new HashMap<>();
+    private final List<TaggedDocument> documents = new ArrayList<>();
+    private final RoaringBitmap live = new RoaringBitmap();
+    private final Map<String, RoaringBitmap> byTag = new HashMap<>();
+    private final Map<UUID, RoaringBitmap> byOwner = new HashMap<>();
+    private final Map<Long, RoaringBitmap> byCategory = new HashMap<>();
+
+    int size() {
+        return live.getCardinality();
+    }
+
+    void put(TaggedDocument document) {
+        Integer existing = ordinals.get(document.id());
+        int ordinal;
+        if (existing != null) {
+            ordinal = existing;
+            unlink(ordinal, documents.get(ordinal));
+        } else {
+            ordinal = documents.size();
+            ordinals.put(document.id(), ordinal);
+            documents.add(null);
+        }
+        documents.set(ordinal, document);
+        live.add(ordinal);
+        for (String tag : document.tags()) {
+            byTag.computeIfAbsent(tag, t -> new RoaringBitmap()).add(ordinal);
+        }
+        if (document.ownerId() != null) {
+            byOwner.computeIfAbsent(document.ownerId(), o -> new RoaringBitmap()).add(ordinal);
+        }
+        if (document.categoryId() != null) {
+            byCategory.computeIfAbsent(document.categoryId(), c -> new RoaringBitmap()).add(ordinal);
+        }
+    }
+
+    void remove(UUID id) {
+        Integer ordinal = ordinals.remove(id);
+        if (ordinal == null) {
+            return;
+        }
+        unlink(ordinal, documents.get(ordinal));
+        documents.set(ordinal, null);
+        live.remove(ordinal);
+    }
+
+    private void unlink(int ordinal, TaggedDocument previous) {
+        if (previous == null) {
+            return;
+        }
+        for (String tag : previous.tags()) {
+            removeFrom(byTag, tag, ordinal);
+        }
+        if (previous.ownerId() != null) {
+            removeFrom(byOwner, previous.ownerId(), ordinal);
+        }
+        if (previous.categoryId() != null) {
+            removeFrom(byCategory, previous.categoryId(), ordinal);
+        }
+    }
+
+    private static <K> void removeFrom(Map<K, RoaringBitmap> bitmaps, K key, int ordinal) {
+        RoaringBitmap bitmap = bitmaps.get(key);
+        if (bitmap != null) {
+            bitmap.remove(ordinal);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Évalue la requête par intersections, unions et différences de bitmaps, en partant du plus petit
+     * ensemble obligatoire pour que les opérations suivantes portent sur peu de valeurs.
+     */
+    TagSearchResult search(TagQuery query) {
+        List<RoaringBitmap> required = new ArrayList<>();
+        for (String tag : query.all()) {
+            required.add(byTag.getOrDefault(tag, EMPTY));
+        }
+        if (query.ownerId() != null) {
+            required.add(byOwner.getOrDefault(query.ownerId(), EMPTY));
+        }
+        if (query.categoryIds() != null) {
+            required.add(union(query.categoryIds().stream().map(id -> byCategory.getOrDefault(id, EMPTY)).toList()));
+        }
+        if (!query.any().isEmpty()) {
+            required.add(union(query.any().stream().map(tag -> byTag.getOrDefault(tag, EMPTY)).toList()));
+        }
+        required.sort(Comparator.comparingLong(RoaringBitmap::getLongCardinality));
+
+        RoaringBitmap result = required.isEmpty() ? live.clone() : required.get(0).clone();
+        for (int i = 1; i < required.size() && !result.isEmpty(); i++) {
+            result.and(required.get(i));
+        }
+        for (String tag : query.none()) {
+            RoaringBitmap excluded = byTag.get(tag);
+            if (excluded != null && !result.isEmpty()) {
+                result.andNot(excluded);
+            }
+        }
+
+        List<UUID> ids = new ArrayList<>(Math.min(query.limit(), result.getCardinality()));
+        IntIterator it = result.getIntIterator();
+        while (it.hasNext() && ids.size() < query.limit()) {
+            ids.add(documents.get(it.next()).id());
+        }
+        return new TagSearchResult(result.getLongCardinality(), ids);
+    }
+
+    private static RoaringBitmap union(List<RoaringBitmap> bitmaps) {
+        return bitmaps.isEmpty() ? new RoaringBitmap() : RoaringBitmap.or(bitmaps.iterator());
+    }
+
+    void runOptimize() {
+        live.runOptimize();
+        byTag.values().forEach(RoaringBitmap::runOptimize);
+        byOwner.values().forEach(RoaringBitmap::runOptimize);
+        byCategory.values().forEach(RoaringBitmap::runOptimize);
+    }
+}
@@ -0,0 +1,236 @@
+package mds.mobile.tag;
+
+import mds.mobile.cache.CacheInvalidationBus;
+import mds.mobile.document.Document;
+import mds.mobile.document.DocumentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Index en mémoire des tags, propriétaires et catégories des documents, en bitmaps compressés (Roaring).
+ *
+ * Les recherches combinent les bitmaps (ET, OU, ET NON) sans requête SQL ; seuls les documents de la
+ * page de résultats sont ensuite lus en base. L'index est tenu à jour par les écritures de
+ * DocumentController sur ce nœud, et par le journal change_log pour les écritures des autres nœuds
+ * (documents relus sur le primaire). Il est reconstruit entièrement toutes les {@code tags.index.rebuild-ms},
+ * ce qui rattrape une éventuelle invalidation perdue et compacte les ordinaux libérés.
+ */
+@Component
+@Lazy(false)
+public class TagIndex {
+
+    public static final int MAX_TAG_LENGTH = 50;
+
+    private static final Logger log = LoggerFactory.getLogger(TagIndex.class);
+
+    private final DocumentRepository documentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int refreshBatchSize;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Set<UUID> changed = ConcurrentHashMap.newKeySet();
+
+    /** Protégés par {@link #lock} */
+    private TagBitmaps bitmaps = new TagBitmaps();
+    private boolean ready;
+    private List<Consumer<TagBitmaps>> pendingDuringRebuild;
+
+    public TagIndex(DocumentRepository documentRepository, PlatformTransactionManager transactionManager,
+                    CacheInvalidationBus invalidationBus,
+                    @Value("${tags.index.refresh-batch-size:500}") int refreshBatchSize) {
+        this.documentRepository = documentRepository;
+        // Lectures sur le primaire : un réplica en retard remettrait dans l'index un état déjà remplacé
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.refreshBatchSize = refreshBatchSize;
+        invalidationBus.subscribe(CacheInvalidationBus.DOCUMENT, key -> {
+            // "*" : compaction des segments ou changement de catégorie, sans effet sur l'index
+            if (!CacheInvalidationBus.ALL.equals(key)) {
+                changed.add(UUID.fromString(key));
+            }
+        });
+    }
+
+    /**
+     * Normalise les tags saisis (minuscules, sans espaces autour, sans doublons).
+     *
+     * @throws IllegalArgumentException si un tag est vide ou trop long
+     */
+    public static Set<String> normalize(Collection<String> tags) {
+        if (tags == null) {
+            return Set.of();
+        }
+        Set<String> normalized = new LinkedHashSet<>();
+        for (String tag : tags) {
+            String value = tag == null ? "" : tag.trim().toLowerCase(Locale.ROOT);
+            if (value.isEmpty() || value.length() > MAX_TAG_LENGTH) {
+                throw new IllegalArgumentException("Tag vide ou de plus de " + MAX_TAG_LENGTH + " caractères");
+            }
+            normalized.add(value);
+        }
+        return normalized;
+    }
+
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return ready;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * À appeler après l'enregistrement du document.
+     */
+    public void index(Document document) {
+        TaggedDocument tagged = TaggedDocument.of(document);
+        update(bitmaps -> bitmaps.put(tagged));
+    }
+
+    /**
+     * À appeler après la suppression du document.
+     */
+    public void remove(UUID documentId) {
+        update(bitmaps -> bitmaps.remove(documentId));
+    }
+
+    public TagSearchResult search(TagQuery query) {
+        lock.readLock().lock();
+        try {
+            return bitmaps.search(query);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void update(Consumer<TagBitmaps> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(bitmaps);
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reconstruit l'index à côté de l'index courant, puis le remplace. Les modifications arrivées pendant
+     * la lecture sont rejouées sur le nouvel index : elles sont toutes postérieures au début de la lecture.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${tags.index.rebuild-ms:3600000}")
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        TagBitmaps rebuilt = new TagBitmaps();
+        try {
+            long start = System.nanoTime();
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<TagIndexRow> rows = documentRepository.streamTagIndexRows()) {
+                    load(rows.iterator(), rebuilt);
+                }
+            });
+            rebuilt.runOptimize();
+
+            lock.writeLock().lock();
+            try {
+                pendingDuringRebuild.forEach(change -> change.accept(rebuilt));
+                bitmaps = rebuilt;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Tag index rebuilt: {} documents in {} ms", rebuilt.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("Unable to rebuild tag index: {}", e.getMessage());
+        } finally {
+            lock.writeLock().lock();
+            try {
+                pendingDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Relit les documents modifiés sur les autres nœuds (ou sur celui-ci : la relecture est sans effet).
+     */
+    @Scheduled(fixedDelayString = "${cache.invalidation.poll-ms:500}")
+    public void refreshChanged() {
+        if (changed.isEmpty()) {
+            return;
+        }
+        List<UUID> batch = new ArrayList<>(Math.min(changed.size(), refreshBatchSize));
+        for (Iterator<UUID> it = changed.iterator(); it.hasNext() && batch.size() < refreshBatchSize; ) {
+            batch.add(it.next());
+            it.remove();
+        }
+        try {
+            List<TagIndexRow> rows = transactionTemplate.execute(status -> documentRepository.findTagIndexRows(batch));
+            List<TaggedDocument> found = new ArrayList<>();
+            load(rows.iterator(), found::add);
+            Set<UUID> missing = new HashSet<>(batch);
+            found.forEach(document -> missing.remove(document.id()));
+            update(bitmaps -> {
+                found.forEach(bitmaps::put);
+                missing.forEach(bitmaps::remove);
+            });
+        } catch (RuntimeException e) {
+            log.warn("Unable to refresh tag index: {}", e.getMessage());
+            changed.addAll(batch);
+        }
+    }
+
+    private static void load(Iterator<TagIndexRow> rows, TagBitmaps target) {
+        load(rows, target::put);
+    }
+
+    /**
+     * Regroupe les lignes consécutives d'un même document (requêtes triées par document).
+     */
+    private static void load(Iterator<TagIndexRow> rows, Consumer<TaggedDocument> sink) {
+        TagIndexRow current = null;
+        Set<String> tags = new HashSet<>();
+        while (rows.hasNext()) {
+            TagIndexRow row = rows.next();
+            if (current != null && !current.documentId().equals(row.documentId())) {
+                sink.accept(new TaggedDocument(current.documentId(), current.ownerId(), current.categoryId(), Set.copyOf(tags)));
+                tags.clear();
+            }
+            current = row;
+            if (row.tag() != null) {
+                tags.add(row.tag());
+            }
+        }
+        if (current != null) {
+            sink.accept(new TaggedDocument(current.documentId(), current.ownerId(), current.categoryId(), Set.copyOf(tags)));
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package mds.mobile.tag;
+
+import java.util.UUID;
+
+/**
+ * Ligne de chargement de l'index : un document et l'un de ses tags (null s'il n'en a aucun).
+ */
+public record TagIndexRow(UUID documentId, UUID ownerId, Long categoryId, String tag) {}
@@ -0,0 +1,18 @@
+package mds.mobile.tag;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Recherche par tags : tous les tags de {@code all}, au moins un de {@code any} (si non vide), aucun de
+ * {@code none} ; filtrée par propriétaire et par catégories si renseignés.
+ */
+public record TagQuery(
+        Set<String> all,
+        Set<String> any,
+        Set<String> none,
+        UUID ownerId,
+        Collection<Long> categoryIds,
+        int limit
+) {}
@@ -0,0 +1,10 @@
+package mds.mobile.tag;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * @param total nombre de documents correspondants, au-delà de la limite
+ * @param ids   les premiers documents correspondants, du plus ancien au plus récent dépôt
+ */
+public record TagSearchResult(long total, List<UUID> ids) {}
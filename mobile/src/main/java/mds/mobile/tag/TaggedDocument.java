@@ -0,0 +1,20 @@
+package mds.mobile.tag;
+
+import mds.mobile.document.Document;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * État d'un document vu par l'index des tags.
+ */
+public record TaggedDocument(UUID id, UUID ownerId, Long categoryId, Set<String> tags) {
+
+    public static TaggedDocument of(Document document) {
+        return new TaggedDocument(
+                document.getId(),
+                document.getProprietaire() != null ? document.getProprietaire().getId() : null,
+                document.getCategorie() != null ? document.getCategorie().getId() : null,
+                Set.copyOf(document.getTags()));
+    }
+}
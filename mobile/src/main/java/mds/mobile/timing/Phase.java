@@ -0,0 +1,26 @@
+package mds.mobile.timing;
+
+/**
+ * Phases mesurées dans une requête, dans l'ordre où elles apparaissent dans l'en-tête Server-Timing.
+ */
+public enum Phase {
+    AUTH("auth", "JWT"),
+    DB("db", "Repositories"),
+    STORAGE("storage", "Object storage");
+
+    private final String metricName;
+    private final String description;
+
+    Phase(String metricName, String description) {
+        this.metricName = metricName;
+        this.description = description;
+    }
+
+    public String metricName() {
+        return metricName;
+    }
+
+    public String description() {
+        return description;
+    }
+}
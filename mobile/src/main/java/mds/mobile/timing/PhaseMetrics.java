@@ -0,0 +1,36 @@
+package mds.mobile.timing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publie chaque phase mesurée dans le timer {@code request.phase} (tags {@code phase} et {@code operation}).
+ * Les opérations sont des noms de méthodes (repository, stockage) : la cardinalité reste bornée.
+ */
+@Component
+public class PhaseMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public PhaseMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    void record(Phase phase, String operation, long elapsedNanos) {
+        Timer timer = timers.get(operation);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(operation, op -> Timer.builder("request.phase")
+                    .description("Temps passé par phase de requête")
+                    .tag("phase", phase.metricName())
+                    .tag("operation", op)
+                    .register(meterRegistry));
+        }
+        timer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+}
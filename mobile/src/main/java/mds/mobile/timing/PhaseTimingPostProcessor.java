@@ -0,0 +1,83 @@
+package mds.mobile.timing;
+
+import mds.mobile.storage.StorageBackend;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Branche la mesure par phase sur les repositories Spring Data ({@link Phase#DB})
+ * et sur le backend de stockage ({@link Phase#STORAGE}).
+ *
+ * Les repositories sont déjà des proxies : on ajoute simplement un intercepteur à leur chaîne.
+ * Le backend de stockage est enveloppé dans un proxy d'interface.
+ */
+@Component
+public class PhaseTimingPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof Repository<?, ?> && bean instanceof Advised advised && !advised.isFrozen()) {
+            // En tête de chaîne : les derniers intercepteurs Spring Data exécutent la requête sans proceed()
+            advised.addAdvice(0, new PhaseInterceptor(Phase.DB, repositoryName(advised)));
+            return bean;
+        }
+        if (bean instanceof StorageBackend) {
+            ProxyFactory proxyFactory = new ProxyFactory(bean);
+            proxyFactory.addInterface(StorageBackend.class);
+            proxyFactory.addAdvice(new PhaseInterceptor(Phase.STORAGE, "storage"));
+            return proxyFactory.getProxy(bean.getClass().getClassLoader());
+        }
+        return bean;
+    }
+
+    private static String repositoryName(Advised advised) {
+        for (Class<?> proxied : advised.getProxiedInterfaces()) {
+            if (Repository.class.isAssignableFrom(proxied) && proxied.getPackageName().startsWith("mds.mobile")) {
+                return proxied.getSimpleName();
+            }
+        }
+        return "repository";
+    }
+
+    private static final class PhaseInterceptor implements MethodInterceptor {
+
+        private final Phase phase;
+        private final String prefix;
+        private final Map<Method, String> operations = new ConcurrentHashMap<>();
+
+        PhaseInterceptor(Phase phase, String prefix) {
+            this.phase = phase;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            long start = RequestTimings.start();
+            if (start == RequestTimings.NOT_TIMED) {
+                return invocation.proceed();
+            }
+            try {
+                return invocation.proceed();
+            } finally {
+                RequestTimings.stop(phase, operationName(invocation.getMethod()), start);
+            }
+        }
+
+        private String operationName(Method method) {
+            String operation = operations.get(method);
+            if (operation == null) {
+                operation = operations.computeIfAbsent(method, m -> prefix + "." + m.getName());
+            }
+            return operation;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package mds.mobile.timing;
+
+import java.util.Locale;
+
+/**
+ * Chronomètres par phase de la requête en cours, portés par le thread qui la traite.
+ *
+ * Quand la mesure est désactivée aucun objet n'est attaché au thread : {@link #start()} et
+ * {@link #stop} se réduisent à une lecture de ThreadLocal, sans allocation ni appel à l'horloge.
+ */
+public final class RequestTimings {
+
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+    /** Valeur renvoyée par {@link #start()} quand la requête n'est pas mesurée */
+    public static final long NOT_TIMED = Long.MIN_VALUE;
+
+    private final PhaseMetrics metrics;
+    private final long startNanos = System.nanoTime();
+    private final long[] nanos = new long[Phase.values().length];
+    private final int[] counts = new int[Phase.values().length];
+
+    RequestTimings(PhaseMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return l'instant de début à passer à {@link #stop}, ou une valeur sentinelle si la requête n'est pas mesurée
+     */
+    public static long start() {
+        return CURRENT.get() != null ? System.nanoTime() : NOT_TIMED;
+    }
+
+    /**
+     * Cumule la durée écoulée depuis {@code startNanos} dans la phase et l'enregistre dans les métriques.
+     */
+    public static void stop(Phase phase, String operation, long startNanos) {
+        if (startNanos == NOT_TIMED) {
+            return;
+        }
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.record(phase, operation, System.nanoTime() - startNanos);
+        }
+    }
+
+    static void attach(RequestTimings timings) {
+        CURRENT.set(timings);
+    }
+
+    static void detach() {
+        CURRENT.remove();
+    }
+
+    private void record(Phase phase, String operation, long elapsedNanos) {
+        nanos[phase.ordinal()] += elapsedNanos;
+        counts[phase.ordinal()]++;
+        metrics.record(phase, operation, elapsedNanos);
+    }
+
+    /**
+     * Valeur de l'en-tête Server-Timing : une entrée par phase observée, plus le temps total écoulé.
+     */
+    String serverTimingHeader() {
+        StringBuilder header = new StringBuilder(96);
+        for (Phase phase : Phase.values()) {
+            int count = counts[phase.ordinal()];
+            if (count == 0) {
+                continue;
+            }
+            header.append(phase.metricName())
+                    .append(";dur=").append(millis(nanos[phase.ordinal()]))
+                    .append(";desc=\"").append(phase.description()).append(" x").append(count).append("\", ");
+        }
+        return header.append("total;dur=").append(millis(System.nanoTime() - startNanos)).toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1_000_000d);
+    }
+}
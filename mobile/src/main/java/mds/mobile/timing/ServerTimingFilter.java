@@ -0,0 +1,128 @@
+package mds.mobile.timing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Active la mesure par phase ({@link RequestTimings}) pour chaque requête si {@code request-timing.enabled=true}.
+ *
+ * Placé devant la chaîne Spring Security pour inclure l'authentification JWT. L'en-tête Server-Timing
+ * est posé juste avant l'envoi des en-têtes : la sérialisation du corps n'y figure donc pas,
+ * mais les phases mesurées pendant l'écriture (lecture du stockage) restent dans les métriques.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    private static final String SERVER_TIMING = "Server-Timing";
+
+    private final PhaseMetrics metrics;
+    private final boolean enabled;
+    private final boolean header;
+
+    public ServerTimingFilter(PhaseMetrics metrics,
+                              @Value("${request-timing.enabled:false}") boolean enabled,
+                              @Value("${request-timing.header:true}") boolean header) {
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.header = header;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        RequestTimings timings = new RequestTimings(metrics);
+        RequestTimings.attach(timings);
+        try {
+            if (!header) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+            ServerTimingResponse timedResponse = new ServerTimingResponse(response, timings);
+            filterChain.doFilter(request, timedResponse);
+            // Réponse sans corps écrit par l'application (204, sendfile...) : encore modifiable ici
+            timedResponse.writeHeader();
+        } finally {
+            RequestTimings.detach();
+        }
+    }
+
+    /**
+     * Ajoute l'en-tête Server-Timing au premier accès au corps, avant que les en-têtes ne partent.
+     */
+    private static final class ServerTimingResponse extends HttpServletResponseWrapper {
+
+        private final RequestTimings timings;
+        private boolean written;
+
+        ServerTimingResponse(HttpServletResponse response, RequestTimings timings) {
+            super(response);
+            this.timings = timings;
+        }
+
+        void writeHeader() {
+            if (!written && !isCommitted()) {
+                written = true;
+                setHeader(SERVER_TIMING, timings.serverTimingHeader());
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeader();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeader();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeHeader();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeHeader();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeHeader();
+            super.sendRedirect(location);
+        }
+    }
+}
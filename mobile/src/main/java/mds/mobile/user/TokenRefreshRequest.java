@@ -0,0 +1,8 @@
+package mds.mobile.user;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record TokenRefreshRequest(
+        @NotBlank(message = "refreshToken is required")
+        String refreshToken
+) {}
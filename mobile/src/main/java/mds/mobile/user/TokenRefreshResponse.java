@@ -0,0 +1,6 @@
+package mds.mobile.user;
+
+public record TokenRefreshResponse(
+        String token,
+        String refreshToken
+) {}
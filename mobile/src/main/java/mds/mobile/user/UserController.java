@@ -1,11 +1,19 @@
 package mds.mobile.user;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import mds.mobile.security.CurrentUserService;
 import mds.mobile.security.JwtService;
+import mds.mobile.security.RefreshTokenService;
+import mds.mobile.security.TokenRevocationList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -13,59 +21,65 @@ import jakarta.validation.Valid;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.util.HexFormat;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/users")
 public class UserController {
 
+    private static final Logger log = LoggerFactory.getLogger(UserController.class);
+
     private final UserRepository userRepository;
     private final JwtService jwtService;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationList revocationList;
+    private final CurrentUserService currentUserService;
 
-    public UserController(UserRepository userRepository, JwtService jwtService) {
+    public UserController(UserRepository userRepository, JwtService jwtService,
+                          RefreshTokenService refreshTokenService, TokenRevocationList revocationList,
+                          CurrentUserService currentUserService) {
         this.userRepository = userRepository;
         this.jwtService = jwtService;
+        this.refreshTokenService = refreshTokenService;
+        this.revocationList = revocationList;
+        this.currentUserService = currentUserService;
     }
 
     @PostMapping("/login")
     public ResponseEntity<?> login(@Valid @RequestBody UserLoginRequest req) {
-        System.out.println("=== LOGIN ATTEMPT ===");
-        System.out.println("Email: " + req.email());
-
         // Chercher l'utilisateur par email
         Optional<User> userOptional = userRepository.findByEmail(req.email());
 
         if (userOptional.isEmpty()) {
-            System.out.println("User not found with email: " + req.email());
+            log.debug("Login refused: unknown account");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("error", "bad_password_or_email", "message", "Bad email or password"));
         }
 
         User user = userOptional.get();
-        System.out.println("User found: " + user.getId());
 
         // Vérifier le mot de passe
         try {
             String hashedPassword = hashPassword(req.password());
-            System.out.println("Hashed password from request: " + hashedPassword);
-            System.out.println("Stored password hash: " + user.getPassword());
 
             if (!hashedPassword.equals(user.getPassword())) {
-                System.out.println("Password mismatch!");
+                log.debug("Login refused for user {}: password mismatch", user.getId());
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                         .body(Map.of("error", "bad_password_or_email", "message", "Bad email or password"));
             }
-            System.out.println("Password matched!");
         } catch (NoSuchAlgorithmException e) {
-            System.out.println("Hash algorithm error: " + e.getMessage());
+            log.error("Password hash algorithm unavailable", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "server_error", "message", "Unable to process password"));
         }
 
-        // Générer le token JWT
+        // Générer le token JWT (courte durée) et ouvrir une famille de refresh tokens
         String token = jwtService.generateToken(user.getId(), user.getEmail());
+        String refreshToken = refreshTokenService.issue(user.getId());
 
         // Créer la réponse
         UserResponse userResponse = new UserResponse(
@@ -75,11 +89,70 @@ public class UserController {
                 user.getLastName()
         );
 
-        UserLoginResponse response = new UserLoginResponse(token, userResponse);
+        UserLoginResponse response = new UserLoginResponse(token, refreshToken, userResponse);
 
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Échange un refresh token contre un nouvel access token ; le refresh token est consommé et remplacé.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@Valid @RequestBody TokenRefreshRequest req) {
+        Optional<TokenRefreshResponse> refreshed = refreshTokenService.rotate(req.refreshToken())
+                .flatMap(rotation -> userRepository.findById(rotation.userId())
+                        .map(user -> new TokenRefreshResponse(
+                                jwtService.generateToken(user.getId(), user.getEmail()),
+                                rotation.refreshToken())));
+
+        if (refreshed.isEmpty()) {
+            log.debug("Refresh refused: unknown, expired or reused token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "invalid_refresh_token", "message", "Refresh token is invalid or expired"));
+        }
+        return ResponseEntity.ok(refreshed.get());
+    }
+
+    /**
+     * Déconnexion de l'appareil courant : l'access token présenté est révoqué jusqu'à son expiration
+     * et, s'il est fourni, le refresh token de la session aussi.
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader("Authorization") String authorization,
+                                    @RequestBody(required = false) TokenRefreshRequest req) {
+        try {
+            Claims claims = jwtService.parseClaims(authorization.substring(7));
+            if (claims.getId() != null) {
+                revocationList.revokeToken(claims.getId(), claims.getExpiration().toInstant());
+            }
+        } catch (JwtException | IndexOutOfBoundsException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "unauthorized", "message", "Invalid access token"));
+        }
+        if (req != null && req.refreshToken() != null) {
+            refreshTokenService.revoke(req.refreshToken());
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Déconnexion de tous les appareils : à appeler aussi après un changement de mot de passe.
+     */
+    @PostMapping("/logout-all")
+    public ResponseEntity<?> logoutAll() {
+        UUID userId;
+        try {
+            userId = currentUserService.getCurrentUserId();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "unauthorized", "message", "No authenticated user found"));
+        }
+        revocationList.revokeAllForUser(userId.toString(),
+                Instant.now().plusMillis(jwtService.getExpirationMillis()));
+        refreshTokenService.revokeAllForUser(userId);
+        return ResponseEntity.noContent().build();
+    }
+
     @PostMapping("/register")
     public ResponseEntity<?> register(@Valid @RequestBody UserRegisterRequest req) {
         if (userRepository.findByEmail(req.email()).isPresent()) {
@@ -103,6 +176,7 @@ public class UserController {
 
             // Générer le token JWT
             String token = jwtService.generateToken(saved.getId(), saved.getEmail());
+            String refreshToken = refreshTokenService.issue(saved.getId());
 
             UserResponse userResponse = new UserResponse(
                     saved.getId(),
@@ -111,7 +185,7 @@ public class UserController {
                     saved.getLastName()
             );
 
-            UserLoginResponse response = new UserLoginResponse(token, userResponse);
+            UserLoginResponse response = new UserLoginResponse(token, refreshToken, userResponse);
 
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
         } catch (DataIntegrityViolationException e) {
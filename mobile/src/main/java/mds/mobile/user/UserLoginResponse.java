@@ -2,6 +2,6 @@ package mds.mobile.user;
 
 public record UserLoginResponse(
         String token,
+        String refreshToken,
         UserResponse user
 ) {}
-
@@ -1,5 +1,7 @@
 package mds.mobile.user;
 
+import mds.mobile.cache.CacheInvalidationBus;
+import mds.mobile.cache.LocalCache;
 import mds.mobile.security.CurrentUserService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -15,10 +17,13 @@ public class UserProfileController {
 
     private final UserRepository userRepository;
     private final CurrentUserService currentUserService;
+    private final LocalCache<UserResponse> users;
 
-    public UserProfileController(UserRepository userRepository, CurrentUserService currentUserService) {
+    public UserProfileController(UserRepository userRepository, CurrentUserService currentUserService,
+                                 CacheInvalidationBus invalidationBus) {
         this.userRepository = userRepository;
         this.currentUserService = currentUserService;
+        this.users = invalidationBus.cache(CacheInvalidationBus.USER);
     }
 
     /**
@@ -30,16 +35,14 @@ public class UserProfileController {
         try {
             UUID userId = currentUserService.getCurrentUserId();
 
-            return userRepository.findById(userId)
-                    .map(user -> {
-                        UserResponse response = new UserResponse(
-                                user.getId(),
-                                user.getEmail(),
-                                user.getFirstName(),
-                                user.getLastName()
-                        );
-                        return ResponseEntity.ok(response);
-                    })
+            return users.get(userId, () -> userRepository.findById(userId)
+                            .map(user -> new UserResponse(
+                                    user.getId(),
+                                    user.getEmail(),
+                                    user.getFirstName(),
+                                    user.getLastName()
+                            )))
+                    .map(ResponseEntity::ok)
                     .orElse(ResponseEntity.notFound().build());
 
         } catch (IllegalStateException e) {
@@ -0,0 +1,107 @@
+-- Évolutions du schéma MySQL pour le profil prod (ddl-auto=none : Hibernate ne touche pas au schéma).
+-- À appliquer dans l'ordre, avant de déployer la version qui les utilise. Les tables d'origine
+-- (users, documents, categories) sont supposées déjà en place.
+
+-- Journal d'invalidation des caches locaux (CacheInvalidationBus)
+CREATE TABLE IF NOT EXISTS change_log (
+    id          BIGINT      NOT NULL AUTO_INCREMENT,
+    entity_type VARCHAR(32) NOT NULL,
+    entity_key  VARCHAR(64) NOT NULL,
+    created_at  DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_change_log_created_at (created_at)
+) ENGINE=InnoDB;
+
+-- Refresh tokens à rotation et liste de révocation des access tokens (RefreshTokenService, TokenRevocationList)
+CREATE TABLE IF NOT EXISTS refresh_tokens (
+    id         BIGINT      NOT NULL AUTO_INCREMENT,
+    token_hash VARCHAR(64) NOT NULL,
+    user_id    BINARY(16)  NOT NULL,
+    family_id  BINARY(16)  NOT NULL,
+    expires_at DATETIME(6) NOT NULL,
+    used_at    DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_refresh_tokens_token_hash UNIQUE (token_hash),
+    INDEX idx_refresh_tokens_family (family_id),
+    INDEX idx_refresh_tokens_user (user_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    id             BIGINT      NOT NULL AUTO_INCREMENT,
+    revocation_key VARCHAR(80) NOT NULL,
+    not_before     DATETIME(6),
+    expires_at     DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_revoked_tokens_expires_at (expires_at)
+) ENGINE=InnoDB;
+
+-- Petits fichiers regroupés en segments (SegmentStore, SegmentCompactor)
+ALTER TABLE documents
+    ADD COLUMN segment_id     BINARY(16),
+    ADD COLUMN segment_offset BIGINT,
+    ADD INDEX idx_documents_segment_id (segment_id);
+
+-- Un document rangé dans un segment n'a pas d'objet propre
+UPDATE documents SET chemin_fichier = NULL WHERE segment_id IS NOT NULL;
+
+CREATE TABLE IF NOT EXISTS retired_segments (
+    segment_id BINARY(16)  NOT NULL,
+    retired_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (segment_id),
+    INDEX idx_retired_segments_retired_at (retired_at)
+) ENGINE=InnoDB;
+
+-- Arborescence des catégories en chemins matérialisés (CategoryTreeService)
+-- Le nom n'est plus unique que parmi les enfants d'un même parent : la contrainte générée par Hibernate
+-- sur nom seul (nom haché de categories.nom) est remplacée. parent_id est NULL pour les racines et les NULL
+-- sont distincts dans un index unique : l'unicité porte sur parent_key, qui vaut 0 pour les racines
+ALTER TABLE categories
+    DROP INDEX UKl15ogrfsiv1ijo5bi874gbgr5,
+    ADD COLUMN parent_id BIGINT,
+    ADD COLUMN chemin    VARCHAR(512),
+    ADD INDEX idx_categories_parent_id (parent_id),
+    ADD INDEX idx_categories_chemin (chemin);
+
+ALTER TABLE categories
+    ADD COLUMN parent_key BIGINT GENERATED ALWAYS AS (COALESCE(parent_id, 0)),
+    ADD CONSTRAINT uk_categories_parent_key_nom UNIQUE (parent_key, nom);
+
+-- Catégories existantes rattachées à la racine (même règle que CategoryPathBackfill au démarrage)
+UPDATE categories SET chemin = CONCAT('/', id, '/') WHERE chemin IS NULL;
+
+-- Tags des documents (TagIndex)
+CREATE TABLE IF NOT EXISTS document_tags (
+    document_id BINARY(16)  NOT NULL,
+    tag         VARCHAR(50) NOT NULL,
+    PRIMARY KEY (document_id, tag),
+    CONSTRAINT fk_document_tags_document FOREIGN KEY (document_id) REFERENCES documents (id)
+) ENGINE=InnoDB;
+
+-- Compteurs de téléchargements (DownloadCounter) : total par document et cumul par jour
+ALTER TABLE documents
+    ADD COLUMN telechargements BIGINT NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS document_download_days (
+    document_id BINARY(16) NOT NULL,
+    jour        DATE       NOT NULL,
+    hits        BIGINT     NOT NULL,
+    PRIMARY KEY (jour, document_id),
+    INDEX idx_document_download_days_jour (jour)
+) ENGINE=InnoDB;
+
+-- File de tâches différées (JobQueue, JobWorker)
+CREATE TABLE IF NOT EXISTS jobs (
+    id           BIGINT        NOT NULL AUTO_INCREMENT,
+    type         VARCHAR(32)   NOT NULL,
+    payload      VARCHAR(1024) NOT NULL,
+    status       VARCHAR(16)   NOT NULL,
+    attempts     INT           NOT NULL,
+    run_at       DATETIME(6)   NOT NULL,
+    created_at   DATETIME(6)   NOT NULL,
+    locked_by    VARCHAR(128),
+    locked_until DATETIME(6),
+    last_error   VARCHAR(1000),
+    PRIMARY KEY (id),
+    INDEX idx_jobs_status_run_at (status, run_at),
+    INDEX idx_jobs_status_locked_until (status, locked_until)
+) ENGINE=InnoDB;
@@ -0,0 +1,109 @@
+package mds.mobile.cache;
+
+import mds.mobile.MobileApplication;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Deux bus sur la même base, comme deux nœuds : une écriture publiée sur l'un évince sur l'autre à la
+ * scrutation suivante, et seulement si sa transaction est validée.
+ */
+class CacheInvalidationBusTest {
+
+    private static ConfigurableApplicationContext context;
+    private static ChangeLogRepository changeLogRepository;
+    private static TransactionTemplate transactionTemplate;
+
+    private CacheInvalidationBus nodeA;
+    private CacheInvalidationBus nodeB;
+    private LocalCache<String> cacheA;
+    private LocalCache<String> cacheB;
+    private final AtomicInteger loadsA = new AtomicInteger();
+    private final AtomicInteger loadsB = new AtomicInteger();
+
+    @BeforeAll
+    static void start() {
+        context = new SpringApplicationBuilder(MobileApplication.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:bus-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        changeLogRepository = context.getBean(ChangeLogRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+    }
+
+    @BeforeEach
+    void nodes() {
+        nodeA = node();
+        nodeB = node();
+        cacheA = nodeA.cache(CacheInvalidationBus.DOCUMENT);
+        cacheB = nodeB.cache(CacheInvalidationBus.DOCUMENT);
+        // Premier passage : position dans le journal
+        nodeA.poll();
+        nodeB.poll();
+    }
+
+    @Test
+    void committedWriteEvictsOnBothNodes() {
+        assertThat(load(cacheA, loadsA)).isEqualTo("v1");
+        assertThat(load(cacheB, loadsB)).isEqualTo("v1");
+
+        transactionTemplate.executeWithoutResult(status -> nodeA.publish(CacheInvalidationBus.DOCUMENT, 42));
+
+        // Nœud qui écrit : évincé à la validation, sans attendre la scrutation
+        assertThat(load(cacheA, loadsA)).isEqualTo("v2");
+        // Autre nœud : encore en cache jusqu'à la lecture du journal
+        assertThat(load(cacheB, loadsB)).isEqualTo("v1");
+        nodeB.poll();
+        assertThat(load(cacheB, loadsB)).isEqualTo("v2");
+    }
+
+    @Test
+    void rolledBackWriteEvictsNowhere() {
+        assertThat(load(cacheA, loadsA)).isEqualTo("v1");
+        assertThat(load(cacheB, loadsB)).isEqualTo("v1");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            nodeA.publish(CacheInvalidationBus.DOCUMENT, 42);
+            status.setRollbackOnly();
+        });
+        nodeA.poll();
+        nodeB.poll();
+
+        assertThat(load(cacheA, loadsA)).isEqualTo("v1");
+        assertThat(load(cacheB, loadsB)).isEqualTo("v1");
+    }
+
+    @Test
+    void publishRequiresTheWritersTransaction() {
+        CacheInvalidationBus bus = context.getBean(CacheInvalidationBus.class);
+        assertThatThrownBy(() -> bus.publish(CacheInvalidationBus.DOCUMENT, 42))
+                .isInstanceOf(IllegalTransactionStateException.class);
+    }
+
+    private static CacheInvalidationBus node() {
+        return new CacheInvalidationBus(changeLogRepository, 100, 60_000, 500, 3_600_000, 10_000, 2_000);
+    }
+
+    private static String load(LocalCache<String> cache, AtomicInteger loads) {
+        return cache.get(42, () -> Optional.of("v" + loads.incrementAndGet())).orElseThrow();
+    }
+}
@@ -0,0 +1,100 @@
+package mds.mobile.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Générations et chargements partagés : un chargement parti avant une éviction ne remplit jamais le cache.
+ */
+class LocalCacheTest {
+
+    private static final String KEY = "42";
+
+    private final LocalCache<String> cache = new LocalCache<>(100, TimeUnit.MINUTES.toNanos(1), 0);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void loadedValueIsCached() {
+        assertThat(cache.get(KEY, () -> load("v1"))).contains("v1");
+        assertThat(cache.get(KEY, () -> load("v2"))).contains("v1");
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void loadStartedBeforeAnEvictionIsNotCached() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Optional<String>> leader = CompletableFuture.supplyAsync(() -> cache.get(KEY, () -> {
+            started.countDown();
+            await(release);
+            return load("ancienne");
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        cache.evict(KEY);
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).contains("ancienne");
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void callerArrivingAfterAnEvictionDoesNotCacheTheSharedStaleValue() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Optional<String>> leader = new CompletableFuture<>();
+        Thread.ofPlatform().start(() -> leader.complete(cache.get(KEY, () -> {
+            started.countDown();
+            await(release);
+            return load("ancienne");
+        })));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Écriture validée pendant le chargement : la valeur en cours de lecture est périmée
+        cache.evict(KEY);
+
+        // Appelant arrivé après l'éviction : il rejoint le chargement parti avant
+        CompletableFuture<Optional<String>> follower = new CompletableFuture<>();
+        Thread followerThread = Thread.ofPlatform().start(() -> follower.complete(cache.get(KEY, () -> load("nouvelle"))));
+        awaitWaiting(followerThread);
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).contains("ancienne");
+        assertThat(follower.get(5, TimeUnit.SECONDS)).contains("ancienne");
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(cache.size()).isZero();
+
+        // La lecture suivante recharge la valeur à jour
+        assertThat(cache.get(KEY, () -> load("nouvelle"))).contains("nouvelle");
+        assertThat(cache.get(KEY, () -> load("autre"))).contains("nouvelle");
+    }
+
+    private Optional<String> load(String value) {
+        loads.incrementAndGet();
+        return Optional.of(value);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(thread.getState()).isEqualTo(Thread.State.WAITING);
+    }
+}
@@ -0,0 +1,187 @@
+package mds.mobile.cache;
+
+import io.minio.MinioClient;
+import io.minio.StatObjectArgs;
+import mds.mobile.MobileApplication;
+import mds.mobile.document.Document;
+import mds.mobile.document.DocumentRepository;
+import mds.mobile.storage.S3Stub;
+import mds.mobile.storage.StorageBackend;
+import mds.mobile.user.User;
+import mds.mobile.user.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Effet du regroupement des chargements ({@link SingleFlight}) face à une rafale de lectures identiques, par
+ * les deux chemins qui s'en servent : {@link LocalCache#get} avec un chargeur qui compte ses appels (lecture
+ * du document en base), et {@code MinioStorageService.stat} contre {@link S3Stub} (requêtes comptées par le stub).
+ *
+ * {@code benchmarks.herd-size} threads virtuels lisent la même clé au même instant, {@code benchmarks.rounds}
+ * fois, sans puis avec regroupement, après une passe de chauffe non mesurée. {@code benchmarks.latency-ms}
+ * ajoute au chargeur du cache un aller-retour simulé : une base H2 embarquée répond sans jamais suspendre
+ * le thread, les appelants ne se chevauchent alors pas.
+ *
+ * Lancé seulement avec {@code -Dbenchmarks=true}. Résultats dans BENCHMARKS.md.
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class SingleFlightBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(SingleFlightBenchmarkTest.class);
+
+    private final int herdSize = Integer.getInteger("benchmarks.herd-size", 200);
+    private final int rounds = Integer.getInteger("benchmarks.rounds", 20);
+    private final long latencyMillis = Long.getLong("benchmarks.latency-ms", 0);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void compareDirectAndCoalesced() throws Exception {
+        try (S3Stub stub = new S3Stub(); ConfigurableApplicationContext context = start(stub)) {
+            DocumentRepository documents = context.getBean(DocumentRepository.class);
+            StorageBackend storage = context.getBean(StorageBackend.class);
+            User owner = context.getBean(UserRepository.class).save(User.builder()
+                    .email("herd-" + UUID.randomUUID() + "@test.fr")
+                    .firstName("herd").lastName("herd").password("x").build());
+            byte[] data = new byte[1024];
+            String objectName = storage.upload(owner.getId() + "/herd.bin", new ByteArrayInputStream(data),
+                    data.length, "application/octet-stream");
+            UUID id = documents.save(Document.builder()
+                    .titre("herd").cheminFichier(objectName).typeFichier("application/octet-stream")
+                    .taille(data.length).proprietaire(owner)
+                    .dateDepot(LocalDateTime.now()).dateModification(LocalDateTime.now())
+                    .build()).getId();
+
+            AtomicLong loads = new AtomicLong();
+            Supplier<Optional<Document>> loader = () -> {
+                loads.incrementAndGet();
+                pause();
+                return documents.findById(id);
+            };
+            LocalCache<Document> cache = context.getBean(CacheInvalidationBus.class).cache("benchmark");
+            MinioClient directClient = MinioClient.builder()
+                    .endpoint(stub.endpoint())
+                    .credentials("minioadmin", "minioadmin")
+                    .region("us-east-1")
+                    .build();
+            StatObjectArgs statArgs = StatObjectArgs.builder()
+                    .bucket(context.getEnvironment().getProperty("minio.bucket"))
+                    .object(objectName)
+                    .build();
+
+            List<String> results = new ArrayList<>();
+            // Première passe non mesurée : chauffe du JIT, du pool de connexions et des clients HTTP
+            for (boolean report : new boolean[]{false, true}) {
+                String pass = report ? "measured-" : "warmup-";
+                Burst direct = herd(round -> loader.get(), loads::get);
+                // Une clé par rafale : le cache est vide au départ de chacune
+                Burst cached = herd(round -> cache.get(pass + round, loader), loads::get);
+                Burst directStat = herd(round -> directClient.statObject(statArgs), stub::requestCount);
+                Burst coalescedStat = herd(round -> storage.stat(objectName), stub::requestCount);
+                if (report) {
+                    results.add(direct.format("loader, direct"));
+                    results.add(cached.format("LocalCache.get"));
+                    results.add(directStat.format("statObject, direct"));
+                    results.add(coalescedStat.format("StorageBackend.stat"));
+                }
+            }
+            log.info("Single-flight, {} callers x {} rounds, loader latency {} ms:\n{}",
+                    herdSize, rounds, latencyMillis, String.join("\n", results));
+        }
+    }
+
+    private ConfigurableApplicationContext start(S3Stub stub) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("storage.backend", "minio");
+        properties.put("storage.cache.dir", tempDir.resolve("cache").toString());
+        properties.put("server.port", 0);
+        properties.put("spring.datasource.url", "jdbc:h2:mem:herd-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        properties.put("minio.endpoint", stub.endpoint());
+        properties.put("minio.region", "us-east-1");
+        // En arguments de ligne de commande : ils passent avant application-test.properties
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(MobileApplication.class)
+                .profiles("test")
+                .run(properties.entrySet().stream().map(e -> "--" + e.getKey() + "=" + e.getValue()).toArray(String[]::new));
+        assertThat(context.getEnvironment().getProperty("storage.backend")).isEqualTo("minio");
+        return context;
+    }
+
+    private void pause() {
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * {@code rounds} rafales de {@code herdSize} appels simultanés à {@code read} ; {@code calls} compte les
+     * chargements effectifs (appels au chargeur, requêtes reçues par le stub).
+     */
+    private Burst herd(Read read, Supplier<? extends Number> calls) throws Exception {
+        long callsBefore = calls.get().longValue();
+        long totalNanos = 0;
+        long worstNanos = 0;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int round = 0; round < rounds; round++) {
+                int current = round;
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> callers = new ArrayList<>(herdSize);
+                for (int i = 0; i < herdSize; i++) {
+                    callers.add(executor.submit(() -> {
+                        start.await();
+                        return read.read(current);
+                    }));
+                }
+                long begin = System.nanoTime();
+                start.countDown();
+                for (Future<?> caller : callers) {
+                    caller.get();
+                }
+                long elapsed = System.nanoTime() - begin;
+                totalNanos += elapsed;
+                worstNanos = Math.max(worstNanos, elapsed);
+            }
+        }
+        return new Burst(calls.get().longValue() - callsBefore, totalNanos / rounds, worstNanos);
+    }
+
+    @FunctionalInterface
+    private interface Read {
+        Object read(int round) throws Exception;
+    }
+
+    private record Burst(long calls, long meanNanos, long worstNanos) {
+
+        String format(String label) {
+            return String.format("  %-20s %6d calls | %7.1f ms per burst (worst %.1f ms)",
+                    label, calls, meanNanos / 1_000_000d, worstNanos / 1_000_000d);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package mds.mobile.category;
+
+import mds.mobile.MobileApplication;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Contraintes de l'arborescence tenues par la base et par les verrous, sans passer par les
+ * vérifications préalables du contrôleur.
+ */
+class CategoryTreeServiceTest {
+
+    private static ConfigurableApplicationContext context;
+    private static CategoryTreeService treeService;
+    private static CategoryRepository categoryRepository;
+
+    @BeforeAll
+    static void start() {
+        context = new SpringApplicationBuilder(MobileApplication.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:categories-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        treeService = context.getBean(CategoryTreeService.class);
+        categoryRepository = context.getBean(CategoryRepository.class);
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+    }
+
+    @Test
+    void rootNamesAreUnique() {
+        String nom = "racine-" + UUID.randomUUID();
+        treeService.create(nom, null).orElseThrow();
+
+        assertThatThrownBy(() -> treeService.create(nom, null))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void namesAreUniqueUnderTheSameParentOnly() {
+        Category first = treeService.create("parent-" + UUID.randomUUID(), null).orElseThrow();
+        Category second = treeService.create("parent-" + UUID.randomUUID(), null).orElseThrow();
+        treeService.create("enfant", first.getId()).orElseThrow();
+
+        assertThat(treeService.create("enfant", second.getId())).isPresent();
+        assertThatThrownBy(() -> treeService.create("enfant", first.getId()))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void categoryWithChildrenIsNotDeleted() {
+        Category parent = treeService.create("parent-" + UUID.randomUUID(), null).orElseThrow();
+        Category child = treeService.create("enfant", parent.getId()).orElseThrow();
+
+        assertThatThrownBy(() -> treeService.delete(parent.getId()))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(categoryRepository.existsById(parent.getId())).isTrue();
+
+        assertThat(treeService.delete(child.getId())).isTrue();
+        assertThat(treeService.delete(parent.getId())).isTrue();
+        assertThat(categoryRepository.existsById(parent.getId())).isFalse();
+        assertThat(treeService.delete(parent.getId())).isFalse();
+    }
+
+    @Test
+    void deletedParentAcceptsNoChild() {
+        Category parent = treeService.create("parent-" + UUID.randomUUID(), null).orElseThrow();
+        treeService.delete(parent.getId());
+
+        assertThat(treeService.create("enfant", parent.getId())).isEmpty();
+    }
+}
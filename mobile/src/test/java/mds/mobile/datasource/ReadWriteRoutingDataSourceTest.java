@@ -0,0 +1,166 @@
+package mds.mobile.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routage entre deux bases H2 distinctes, l'une en primaire, l'autre en réplica : chaque base répond
+ * son nom, ce qui montre où une transaction a été envoyée.
+ */
+class ReadWriteRoutingDataSourceTest {
+
+    private static final long MAX_LAG_SECONDS = 5;
+
+    private final HikariDataSource primary = pool("primary");
+    private final HikariDataSource replicaPool = pool("replica");
+    private final TestReplica replica = new TestReplica(replicaPool);
+    private ReadWriteRoutingDataSource routing;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @AfterEach
+    void close() {
+        SecurityContextHolder.clearContext();
+        routing.destroy();
+    }
+
+    @Test
+    void readOnlyTransactionGoesToTheReplica() {
+        start(5_000);
+
+        assertThat(read()).isEqualTo("replica");
+        assertThat(write()).isEqualTo("primary");
+    }
+
+    @Test
+    void writerReadsFromThePrimaryAfterCommit() {
+        start(5_000);
+        authenticate("writer");
+        assertThat(read()).isEqualTo("replica");
+
+        assertThat(write()).isEqualTo("primary");
+        assertThat(read()).isEqualTo("primary");
+
+        // Les autres utilisateurs continuent de lire sur le réplica
+        authenticate("reader");
+        assertThat(read()).isEqualTo("replica");
+    }
+
+    @Test
+    void rolledBackWriteDoesNotStick() {
+        start(5_000);
+        authenticate("writer");
+
+        readWrite.executeWithoutResult(status -> {
+            jdbc.queryForObject("SELECT name FROM node", String.class);
+            status.setRollbackOnly();
+        });
+
+        assertThat(read()).isEqualTo("replica");
+    }
+
+    @Test
+    void readYourWritesWindowExpires() throws Exception {
+        start(50);
+        authenticate("writer");
+
+        write();
+        assertThat(read()).isEqualTo("primary");
+        Thread.sleep(100);
+        assertThat(read()).isEqualTo("replica");
+    }
+
+    @Test
+    void laggingReplicaIsSkipped() {
+        start(5_000);
+
+        replica.lag = MAX_LAG_SECONDS + 1;
+        assertThat(read()).isEqualTo("primary");
+        replica.lag = MAX_LAG_SECONDS;
+        assertThat(read()).isEqualTo("replica");
+    }
+
+    @Test
+    void replicaWithoutReplicationStatusIsEvicted() {
+        // H2 ne connaît pas SHOW REPLICA STATUS : même effet qu'un réplica injoignable
+        ReplicaPool measured = new ReplicaPool("replica-0", replicaPool);
+        measured.refreshLag();
+        assertThat(measured.lagSeconds()).isEqualTo(Long.MAX_VALUE);
+
+        start(measured, 5_000);
+        assertThat(read()).isEqualTo("primary");
+    }
+
+    private void start(long readYourWritesMillis) {
+        replica.lag = 0;
+        start(replica, readYourWritesMillis);
+    }
+
+    private void start(ReplicaPool target, long readYourWritesMillis) {
+        routing = new ReadWriteRoutingDataSource(primary, List.of(target), MAX_LAG_SECONDS, readYourWritesMillis,
+                new SimpleMeterRegistry());
+        routing.afterPropertiesSet();
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbc = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    private String read() {
+        return readOnly.execute(status -> jdbc.queryForObject("SELECT name FROM node", String.class));
+    }
+
+    private String write() {
+        return readWrite.execute(status -> jdbc.queryForObject("SELECT name FROM node", String.class));
+    }
+
+    private static void authenticate(String user) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, List.of()));
+    }
+
+    private static HikariDataSource pool(String name) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        pool.setUsername("sa");
+        pool.setMaximumPoolSize(2);
+        JdbcTemplate jdbc = new JdbcTemplate(pool);
+        jdbc.execute("CREATE TABLE node (name VARCHAR(16))");
+        jdbc.update("INSERT INTO node VALUES (?)", name);
+        return pool;
+    }
+
+    /**
+     * Réplica au retard fixé par le test, à la place de la mesure par {@code SHOW REPLICA STATUS}.
+     */
+    private static final class TestReplica extends ReplicaPool {
+
+        private volatile long lag;
+
+        TestReplica(HikariDataSource dataSource) {
+            super("replica-0", dataSource);
+        }
+
+        @Override
+        long lagSeconds() {
+            return lag;
+        }
+    }
+}
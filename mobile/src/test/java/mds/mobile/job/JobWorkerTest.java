@@ -0,0 +1,246 @@
+package mds.mobile.job;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mds.mobile.MobileApplication;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * File de tâches sur une vraie base (H2, mode MySQL) : réservation des tâches dues dans la limite des
+ * workers libres, acquittements refusés après reprise, report exponentiel et abandon en DEAD.
+ *
+ * Le dialecte H2 ne rend pas {@code SKIP LOCKED} (simple {@code FOR UPDATE}) : le saut des lignes
+ * verrouillées par un autre nœud pendant sa réservation ne se vérifie que sous MySQL.
+ *
+ * Les tâches sont réservées par des {@link JobWorker} construits ici, avec un traitement de test.
+ */
+class JobWorkerTest {
+
+    private static final String TYPE = "test";
+    private static final long BACKOFF_INITIAL_MILLIS = 2_000;
+    private static final int MAX_ATTEMPTS = 2;
+
+    private static ConfigurableApplicationContext context;
+    private static JobRepository jobRepository;
+    private static PlatformTransactionManager transactionManager;
+    private static TransactionTemplate transactionTemplate;
+    private static final AtomicInteger started = new AtomicInteger();
+
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicInteger runs = new AtomicInteger();
+    private final List<JobWorker> workers = new ArrayList<>();
+
+    @BeforeAll
+    static void start() {
+        context = new SpringApplicationBuilder(MobileApplication.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:jobs-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        // Le worker de l'application ne réserve plus rien : les tâches du test vont aux workers construits ici
+        context.getBean(JobWorker.class).shutdown();
+        jobRepository = context.getBean(JobRepository.class);
+        transactionManager = context.getBean(PlatformTransactionManager.class);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        workers.forEach(JobWorker::shutdown);
+        started.set(0);
+        jobRepository.deleteAll();
+    }
+
+    @Test
+    void claimLeasesDueJobsUpToFreeWorkers() throws Exception {
+        JobWorker first = worker(Duration.ofMinutes(5), JobWorkerTest::block);
+        JobWorker second = worker(Duration.ofMinutes(5), JobWorkerTest::block);
+        List<Job> due = List.of(enqueue(), enqueue(), enqueue());
+        Job later = enqueue();
+        makeRunnableAt(later.getId(), Instant.now().plusSeconds(3600));
+
+        // Deux workers libres par nœud : le premier en prend deux, le second la dernière tâche due
+        Instant claimedAt = Instant.now();
+        first.poll();
+        second.poll();
+        first.poll();
+        awaitStarted(due.size());
+
+        for (Job job : due) {
+            Job claimed = jobRepository.findById(job.getId()).orElseThrow();
+            assertThat(claimed.getStatus()).isEqualTo(JobStatus.RUNNING);
+            assertThat(claimed.getAttempts()).isEqualTo(1);
+            assertThat(claimed.getLockedBy()).isNotNull();
+            assertThat(claimed.getLockedUntil()).isAfterOrEqualTo(claimedAt.plus(Duration.ofMinutes(5)));
+        }
+        assertThat(jobRepository.findById(later.getId()).orElseThrow().getStatus()).isEqualTo(JobStatus.PENDING);
+        assertThat(started.get()).isEqualTo(due.size());
+    }
+
+    @Test
+    void staleAcknowledgementIsFenced() throws Exception {
+        JobWorker worker = worker(Duration.ofMillis(1), JobWorkerTest::block);
+        Job job = enqueue();
+
+        // Premier nœud : bail expiré pendant l'exécution, la tâche est remise en file puis reprise
+        worker.poll();
+        Job first = awaitJob(job.getId(), j -> j.getStatus() == JobStatus.RUNNING);
+        Thread.sleep(5);
+        assertThat(jobRepository.recoverExpired(Instant.now(), MAX_ATTEMPTS,
+                JobStatus.RUNNING, JobStatus.PENDING, JobStatus.DEAD)).isEqualTo(1);
+        transactionTemplate.executeWithoutResult(status ->
+                jobRepository.findClaimable(JobStatus.PENDING, Instant.now(), Limit.of(1))
+                        .forEach(j -> j.setAttempts(j.getAttempts() + 1)));
+
+        // Les acquittements du premier nœud portent un numéro de tentative périmé
+        assertThat(jobRepository.complete(job.getId(), first.getAttempts())).isZero();
+        assertThat(jobRepository.release(job.getId(), first.getAttempts(), JobStatus.DEAD, Instant.now(), "late"))
+                .isZero();
+        Job current = jobRepository.findById(job.getId()).orElseThrow();
+        assertThat(current.getAttempts()).isEqualTo(first.getAttempts() + 1);
+        assertThat(current.getStatus()).isEqualTo(JobStatus.PENDING);
+
+        assertThat(jobRepository.complete(job.getId(), current.getAttempts())).isEqualTo(1);
+        assertThat(jobRepository.findById(job.getId())).isEmpty();
+    }
+
+    @Test
+    void failureIsRetriedWithBackoffThenDeadLettered() throws Exception {
+        JobWorker worker = worker(Duration.ofMinutes(5), () -> {
+            failures.incrementAndGet();
+            throw new IllegalStateException("storage down");
+        });
+        Job job = enqueue();
+
+        Instant firstRun = Instant.now();
+        worker.poll();
+        Job retried = awaitJob(job.getId(), j -> j.getStatus() == JobStatus.PENDING && j.getAttempts() == 1);
+        // Report tiré entre la moitié et la totalité du premier palier
+        assertThat(retried.getRunAt()).isAfterOrEqualTo(firstRun.plusMillis(BACKOFF_INITIAL_MILLIS / 2));
+        assertThat(retried.getRunAt()).isBefore(Instant.now().plusMillis(BACKOFF_INITIAL_MILLIS + 1));
+        assertThat(retried.getLastError()).contains("storage down");
+        assertThat(retried.getLockedBy()).isNull();
+
+        // Pas avant l'échéance
+        worker.poll();
+        Thread.sleep(100);
+        assertThat(failures.get()).isEqualTo(1);
+
+        makeRunnable(job.getId());
+        worker.poll();
+        Job dead = awaitJob(job.getId(), j -> j.getStatus() == JobStatus.DEAD);
+        assertThat(dead.getAttempts()).isEqualTo(MAX_ATTEMPTS);
+        assertThat(failures.get()).isEqualTo(MAX_ATTEMPTS);
+
+        // Une tâche abandonnée n'est plus réservée
+        makeRunnable(job.getId());
+        worker.poll();
+        Thread.sleep(100);
+        assertThat(failures.get()).isEqualTo(MAX_ATTEMPTS);
+    }
+
+    @Test
+    void successfulJobIsDeleted() throws Exception {
+        JobWorker worker = worker(Duration.ofMinutes(5), runs::incrementAndGet);
+        Job job = enqueue();
+
+        worker.poll();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (jobRepository.existsById(job.getId()) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(jobRepository.existsById(job.getId())).isFalse();
+        assertThat(runs.get()).isEqualTo(1);
+    }
+
+    private JobWorker worker(Duration lease, Work work) {
+        JobHandler handler = new JobHandler() {
+            @Override
+            public String type() {
+                return TYPE;
+            }
+
+            @Override
+            public void run(String payload) throws Exception {
+                work.run();
+            }
+        };
+        JobWorker worker = new JobWorker(jobRepository, transactionManager, List.of(handler), new SimpleMeterRegistry(),
+                2, lease.toMillis(), MAX_ATTEMPTS, BACKOFF_INITIAL_MILLIS, 60_000, 60_000, 100);
+        workers.add(worker);
+        return worker;
+    }
+
+    private static Job enqueue() {
+        Instant now = Instant.now();
+        return jobRepository.save(Job.builder()
+                .type(TYPE)
+                .payload("payload")
+                .status(JobStatus.PENDING)
+                .runAt(now)
+                .createdAt(now)
+                .build());
+    }
+
+    private static void makeRunnable(Long id) {
+        makeRunnableAt(id, Instant.now());
+    }
+
+    private static void makeRunnableAt(Long id, Instant runAt) {
+        Job job = jobRepository.findById(id).orElseThrow();
+        job.setRunAt(runAt);
+        jobRepository.save(job);
+    }
+
+    private static void awaitStarted(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (started.get() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static Job awaitJob(Long id, Predicate<Job> condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        Job job = jobRepository.findById(id).orElseThrow();
+        while (!condition.test(job) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            job = jobRepository.findById(id).orElseThrow();
+        }
+        assertThat(condition).accepts(job);
+        return job;
+    }
+
+    // Tâche en cours jusqu'à l'arrêt du worker (interruption)
+    private static void block() throws InterruptedException {
+        started.incrementAndGet();
+        new CountDownLatch(1).await();
+    }
+
+    @FunctionalInterface
+    private interface Work {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,126 @@
+package mds.mobile.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Arithmétique GCRA des seaux (rafale, remplissage, dette) et éviction des clients inactifs, sur une
+ * horloge explicite en nanosecondes.
+ */
+class ClientBucketsTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    // 10 unités par seconde, rafale de 5 : une unité toutes les 100 ms
+    private final BucketSpec spec = BucketSpec.of(10, 5);
+
+    @Test
+    void fullBucketAdmitsTheBurstThenReportsTheWait() {
+        ClientBuckets buckets = new ClientBuckets();
+        for (int i = 0; i < 5; i++) {
+            assertThat(buckets.tryAcquire(RateLimitClass.METADATA, spec, 1, 0)).isZero();
+        }
+        assertThat(buckets.tryAcquire(RateLimitClass.METADATA, spec, 1, 0)).isEqualTo(SECOND / 10);
+        // Refus sans effet sur l'état : l'attente annoncée ne grandit pas
+        assertThat(buckets.tryAcquire(RateLimitClass.METADATA, spec, 1, 0)).isEqualTo(SECOND / 10);
+    }
+
+    @Test
+    void bucketRefillsAtTheConfiguredRate() {
+        ClientBuckets buckets = new ClientBuckets();
+        for (int i = 0; i < 5; i++) {
+            buckets.tryAcquire(RateLimitClass.METADATA, spec, 1, 0);
+        }
+        assertThat(buckets.tryAcquire(RateLimitClass.METADATA, spec, 1, SECOND / 10 - 1)).isEqualTo(1);
+        assertThat(buckets.tryAcquire(RateLimitClass.METADATA, spec, 1, SECOND / 10)).isZero();
+        assertThat(buckets.tryAcquire(RateLimitClass.METADATA, spec, 1, SECOND / 10)).isEqualTo(SECOND / 10);
+
+        // Après une seconde d'inactivité, le seau est de nouveau plein et pas au-delà
+        long later = 2 * SECOND;
+        for (int i = 0; i < 5; i++) {
+            assertThat(buckets.tryAcquire(RateLimitClass.METADATA, spec, 1, later)).isZero();
+        }
+        assertThat(buckets.tryAcquire(RateLimitClass.METADATA, spec, 1, later)).isPositive();
+    }
+
+    @Test
+    void costCanExceedOneUnit() {
+        ClientBuckets buckets = new ClientBuckets();
+        assertThat(buckets.tryAcquire(RateLimitClass.METADATA, spec, 6, 0)).isEqualTo(SECOND / 10);
+        assertThat(buckets.tryAcquire(RateLimitClass.METADATA, spec, 5, 0)).isZero();
+    }
+
+    @Test
+    void classesHaveSeparateBuckets() {
+        ClientBuckets buckets = new ClientBuckets();
+        buckets.tryAcquire(RateLimitClass.METADATA, spec, 5, 0);
+        assertThat(buckets.tryAcquire(RateLimitClass.METADATA, spec, 1, 0)).isPositive();
+        assertThat(buckets.tryAcquire(RateLimitClass.UPLOAD, spec, 1, 0)).isZero();
+    }
+
+    @Test
+    void chargeRunsIntoDebtThatBlocksUntilRepaid() {
+        ClientBuckets buckets = new ClientBuckets();
+        // Un téléchargement de 25 unités sur une rafale de 5 : 2 s de dette au-delà de la rafale
+        assertThat(buckets.tryAcquire(RateLimitClass.DOWNLOAD_BYTES, spec, 0, 0)).isZero();
+        buckets.charge(RateLimitClass.DOWNLOAD_BYTES, spec, 25, 0);
+
+        assertThat(buckets.tryAcquire(RateLimitClass.DOWNLOAD_BYTES, spec, 0, 0)).isEqualTo(2 * SECOND);
+        assertThat(buckets.tryAcquire(RateLimitClass.DOWNLOAD_BYTES, spec, 0, SECOND)).isEqualTo(SECOND);
+        assertThat(buckets.tryAcquire(RateLimitClass.DOWNLOAD_BYTES, spec, 0, 2 * SECOND)).isZero();
+    }
+
+    @Test
+    void bucketIsIdleOnceFullAgain() {
+        ClientBuckets buckets = new ClientBuckets();
+        assertThat(buckets.isIdle(0)).isTrue();
+        buckets.tryAcquire(RateLimitClass.METADATA, spec, 3, 0);
+        assertThat(buckets.isIdle(0)).isFalse();
+        assertThat(buckets.isIdle(3 * SECOND / 10 - 1)).isFalse();
+        assertThat(buckets.isIdle(3 * SECOND / 10)).isTrue();
+    }
+
+    @Test
+    void specRejectsInvalidLimits() {
+        assertThatThrownBy(() -> BucketSpec.of(0, 5)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> BucketSpec.of(10, 0.5)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void sweepEvictsOnlyIdleClients() {
+        ClientBucketTable table = new ClientBucketTable(4, 1000);
+        table.get("idle", 0);
+        table.get("busy-1", 0).tryAcquire(RateLimitClass.METADATA, spec, 1, 0);
+        table.get("busy-2", 0).tryAcquire(RateLimitClass.METADATA, spec, 5, 0);
+        assertThat(table.size()).isEqualTo(3);
+
+        assertThat(table.evictIdle(0)).isEqualTo(1);
+        assertThat(table.evictIdle(SECOND / 10)).isEqualTo(1);
+        assertThat(table.size()).isEqualTo(1);
+        assertThat(table.evictIdle(SECOND / 2)).isEqualTo(1);
+        assertThat(table.size()).isZero();
+    }
+
+    @Test
+    void fullStripeSharesAnOverflowBucketUntilClientsGoIdle() {
+        // Deux stripes d'un client chacune : sur trois clients actifs, deux tombent dans la même stripe
+        ClientBucketTable table = new ClientBucketTable(2, 2);
+        List<String> keys = List.of("a", "b", "c");
+        for (String key : keys) {
+            table.get(key, 0).tryAcquire(RateLimitClass.METADATA, spec, 1, 0);
+        }
+        assertThat(table.size()).isEqualTo(2);
+
+        // Les seaux pleins sont évincés pour faire place aux nouveaux clients
+        for (String key : keys) {
+            table.get(key, SECOND);
+        }
+        assertThat(table.size()).isEqualTo(2);
+        assertThat(table.evictIdle(SECOND)).isEqualTo(2);
+        assertThat(table.size()).isZero();
+    }
+}
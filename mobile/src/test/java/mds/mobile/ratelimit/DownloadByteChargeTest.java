@@ -0,0 +1,103 @@
+package mds.mobile.ratelimit;
+
+import mds.mobile.MobileApplication;
+import mds.mobile.document.Document;
+import mds.mobile.document.DocumentRepository;
+import mds.mobile.storage.StorageBackend;
+import mds.mobile.user.User;
+import mds.mobile.user.UserRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Octets débités pour un téléchargement envoyé en sendfile, sur un vrai Tomcat : le corps de la réponse
+ * est vide côté servlet, seul le Content-Length donne la taille envoyée.
+ */
+class DownloadByteChargeTest {
+
+    private static final int BYTES_PER_SECOND = 1024;
+    private static final int BURST_BYTES = 4 * 1024;
+    private static final int FILE_BYTES = 100 * 1024;
+
+    @TempDir
+    static Path tempDir;
+
+    private static ConfigurableApplicationContext context;
+    private static String baseUrl;
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void start() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", 0);
+        properties.put("spring.datasource.url", "jdbc:h2:mem:charge-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        properties.put("storage.local.dir", tempDir.resolve("local").toString());
+        properties.put("ratelimit.enabled", true);
+        properties.put("ratelimit.download.bytes-per-second", BYTES_PER_SECOND);
+        properties.put("ratelimit.download.burst-bytes", BURST_BYTES);
+        // En arguments de ligne de commande : ils passent avant application-test.properties
+        context = new SpringApplicationBuilder(MobileApplication.class)
+                .profiles("test")
+                .run(properties.entrySet().stream().map(e -> "--" + e.getKey() + "=" + e.getValue()).toArray(String[]::new));
+        baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+    }
+
+    @Test
+    void sendfileDownloadIsChargedItsContentLength() throws Exception {
+        UUID id = saveDocument();
+
+        HttpResponse<byte[]> first = download(id);
+        assertThat(first.statusCode()).isEqualTo(200);
+        assertThat(first.body()).hasSize(FILE_BYTES);
+
+        // Dette laissée par le premier téléchargement : (taille - rafale) / débit
+        HttpResponse<byte[]> second = download(id);
+        assertThat(second.statusCode()).isEqualTo(429);
+        long expectedSeconds = (FILE_BYTES - BURST_BYTES) / BYTES_PER_SECOND;
+        assertThat(Long.parseLong(second.headers().firstValue("Retry-After").orElseThrow()))
+                .isBetween(expectedSeconds - 5, expectedSeconds + 1);
+    }
+
+    private static UUID saveDocument() {
+        byte[] data = new byte[FILE_BYTES];
+        ThreadLocalRandom.current().nextBytes(data);
+        User owner = context.getBean(UserRepository.class).save(User.builder()
+                .email("charge-" + UUID.randomUUID() + "@test.fr")
+                .firstName("charge").lastName("charge").password("x").build());
+        String key = context.getBean(StorageBackend.class).upload(owner.getId() + "/charge.bin",
+                new ByteArrayInputStream(data), data.length, "application/octet-stream");
+        return context.getBean(DocumentRepository.class).save(Document.builder()
+                .titre("charge").cheminFichier(key).typeFichier("application/octet-stream")
+                .taille((long) data.length).proprietaire(owner)
+                .dateDepot(LocalDateTime.now()).dateModification(LocalDateTime.now())
+                .build()).getId();
+    }
+
+    private HttpResponse<byte[]> download(UUID id) throws Exception {
+        return http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/documents/" + id + "/file")).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
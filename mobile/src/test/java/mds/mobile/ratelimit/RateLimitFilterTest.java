@@ -0,0 +1,126 @@
+package mds.mobile.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Classement des requêtes, refus en 429 et octets débités après un téléchargement.
+ */
+class RateLimitFilterTest {
+
+    private static final String CLIENT = "ip:127.0.0.1";
+    private static final long SECOND = 1_000_000_000L;
+
+    // Métadonnées : 2 requêtes de rafale ; téléchargements : 1000 octets/s, rafale de 1000 octets
+    private final RateLimiter rateLimiter = new RateLimiter(4, 1000, 1, 2, 1, 1, 1000, 1000);
+    private final RateLimitFilter filter = new RateLimitFilter(rateLimiter, new ObjectMapper(), true);
+
+    @Test
+    void requestsAreClassifiedByMethodAndPath() {
+        assertThat(RateLimitFilter.classify("GET", "/documents/42/file")).isEqualTo(RateLimitClass.DOWNLOAD_BYTES);
+        assertThat(RateLimitFilter.classify("GET", "/documents/42/archive")).isEqualTo(RateLimitClass.DOWNLOAD_BYTES);
+        assertThat(RateLimitFilter.classify("GET", "/categories/7/archive")).isEqualTo(RateLimitClass.DOWNLOAD_BYTES);
+        assertThat(RateLimitFilter.classify("GET", "/documents/export")).isEqualTo(RateLimitClass.DOWNLOAD_BYTES);
+        assertThat(RateLimitFilter.classify("POST", "/documents")).isEqualTo(RateLimitClass.UPLOAD);
+        assertThat(RateLimitFilter.classify("POST", "/documents/")).isEqualTo(RateLimitClass.UPLOAD);
+        assertThat(RateLimitFilter.classify("GET", "/documents")).isEqualTo(RateLimitClass.METADATA);
+        assertThat(RateLimitFilter.classify("GET", "/documents/42")).isEqualTo(RateLimitClass.METADATA);
+        assertThat(RateLimitFilter.classify("DELETE", "/documents/42/file")).isEqualTo(RateLimitClass.METADATA);
+    }
+
+    @Test
+    void retryAfterIsRoundedUpToTheSecond() {
+        assertThat(RateLimitFilter.retryAfterSeconds(1)).isEqualTo(1);
+        assertThat(RateLimitFilter.retryAfterSeconds(SECOND)).isEqualTo(1);
+        assertThat(RateLimitFilter.retryAfterSeconds(SECOND + 1)).isEqualTo(2);
+        assertThat(RateLimitFilter.retryAfterSeconds(2 * SECOND + SECOND / 2)).isEqualTo(3);
+    }
+
+    @Test
+    void exhaustedBudgetIsRejectedWithRetryAfter() throws Exception {
+        AtomicInteger passed = new AtomicInteger();
+        FilterChain chain = (request, response) -> passed.incrementAndGet();
+
+        assertThat(filter(get("/documents"), chain).getStatus()).isEqualTo(200);
+        assertThat(filter(get("/documents"), chain).getStatus()).isEqualTo(200);
+        MockHttpServletResponse rejected = filter(get("/documents"), chain);
+
+        assertThat(passed.get()).isEqualTo(2);
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(rejected.getContentAsString()).contains("\"error\":\"rate_limited\"");
+    }
+
+    @Test
+    void sendfileDownloadIsChargedItsContentLength() throws Exception {
+        // Corps vide côté servlet : seul le Content-Length fixé par le contrôleur donne la taille
+        filter(get("/documents/42/file"), new TomcatLikeResponse(),
+                (request, response) -> ((HttpServletResponse) response).setContentLengthLong(11_000));
+
+        assertDebt(10 * SECOND);
+    }
+
+    @Test
+    void streamedDownloadIsChargedTheBytesWritten() throws Exception {
+        filter(get("/documents/export"), new MockHttpServletResponse(),
+                (request, response) -> response.getOutputStream().write(new byte[6_000]));
+
+        assertDebt(5 * SECOND);
+    }
+
+    @Test
+    void downloadInDebtIsRejected() throws Exception {
+        AtomicInteger passed = new AtomicInteger();
+        FilterChain download = (request, response) -> {
+            passed.incrementAndGet();
+            response.getOutputStream().write(new byte[3_000]);
+        };
+
+        assertThat(filter(get("/documents/42/file"), new MockHttpServletResponse(), download).getStatus()).isEqualTo(200);
+        MockHttpServletResponse rejected = filter(get("/documents/42/file"), new MockHttpServletResponse(), download);
+
+        assertThat(passed.get()).isEqualTo(1);
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+    }
+
+    private void assertDebt(long expectedNanos) {
+        // Attente restante au-delà de la rafale, à l'écoulement du test près
+        assertThat(rateLimiter.tryAcquire(CLIENT, RateLimitClass.DOWNLOAD_BYTES, 0))
+                .isBetween(expectedNanos - SECOND / 10, expectedNanos);
+    }
+
+    private MockHttpServletResponse filter(MockHttpServletRequest request, FilterChain chain) throws Exception {
+        return filter(request, new MockHttpServletResponse(), chain);
+    }
+
+    private MockHttpServletResponse filter(MockHttpServletRequest request, MockHttpServletResponse response,
+                                           FilterChain chain) throws Exception {
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static MockHttpServletRequest get(String path) {
+        return new MockHttpServletRequest("GET", path);
+    }
+
+    /**
+     * Comme Tomcat : le Content-Length ne se relit pas par {@code getHeader}.
+     */
+    private static final class TomcatLikeResponse extends MockHttpServletResponse {
+
+        @Override
+        public String getHeader(String name) {
+            return HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name) ? null : super.getHeader(name);
+        }
+    }
+}
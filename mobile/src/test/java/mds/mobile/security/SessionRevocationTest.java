@@ -0,0 +1,213 @@
+package mds.mobile.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import mds.mobile.MobileApplication;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Rotation des refresh tokens et révocation des access tokens, par les routes /users : chaque test
+ * inscrit son propre utilisateur sur une base H2 partagée.
+ */
+class SessionRevocationTest {
+
+    private static ConfigurableApplicationContext context;
+    private static String baseUrl;
+    private static ObjectMapper objectMapper;
+    private static RefreshTokenRepository refreshTokenRepository;
+    private static TokenRevocationList revocationList;
+    private static JwtService jwtService;
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void start() {
+        context = new SpringApplicationBuilder(MobileApplication.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:sessions-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+        objectMapper = context.getBean(ObjectMapper.class);
+        refreshTokenRepository = context.getBean(RefreshTokenRepository.class);
+        revocationList = context.getBean(TokenRevocationList.class);
+        jwtService = context.getBean(JwtService.class);
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+    }
+
+    @Test
+    void refreshConsumesTheTokenAndIssuesANewOne() throws Exception {
+        Session session = register();
+
+        Session rotated = refresh(session.refreshToken());
+
+        assertThat(rotated.refreshToken()).isNotEqualTo(session.refreshToken());
+        assertThat(me(rotated.token())).isEqualTo(200);
+        assertThat(refresh(rotated.refreshToken()).refreshToken()).isNotEqualTo(rotated.refreshToken());
+    }
+
+    @Test
+    void reusedTokenRevokesTheWholeFamily() throws Exception {
+        Session session = register();
+        Session rotated = refresh(session.refreshToken());
+
+        // Token déjà consommé : copié, la connexion entière tombe
+        assertThat(refreshStatus(session.refreshToken())).isEqualTo(401);
+        assertThat(refreshStatus(rotated.refreshToken())).isEqualTo(401);
+    }
+
+    @Test
+    void reuseLeavesTheOtherLoginsOfTheUser() throws Exception {
+        Session session = register();
+        Session otherDevice = login(session.email());
+        refresh(session.refreshToken());
+
+        assertThat(refreshStatus(session.refreshToken())).isEqualTo(401);
+        assertThat(refreshStatus(otherDevice.refreshToken())).isEqualTo(200);
+    }
+
+    @Test
+    void expiredTokenIsRefused() throws Exception {
+        Session session = register();
+        UUID userId = UUID.fromString(claims(session.token()).getSubject());
+        List<RefreshToken> tokens = refreshTokenRepository.findAll().stream()
+                .filter(token -> token.getUserId().equals(userId))
+                .toList();
+        tokens.forEach(token -> token.setExpiresAt(Instant.now().minusSeconds(1)));
+        refreshTokenRepository.saveAll(tokens);
+
+        assertThat(refreshStatus(session.refreshToken())).isEqualTo(401);
+    }
+
+    @Test
+    void logoutRevokesTheAccessTokenAndTheRefreshFamily() throws Exception {
+        Session session = register();
+        Session otherDevice = login(session.email());
+        Claims claims = claims(session.token());
+
+        assertThat(post("/users/logout", session.token(), Map.of("refreshToken", session.refreshToken())).statusCode())
+                .isEqualTo(204);
+
+        assertThat(me(session.token())).isEqualTo(401);
+        assertThat(refreshStatus(session.refreshToken())).isEqualTo(401);
+        assertThat(isRevoked(claims)).isTrue();
+        // Révocation par jti : les autres appareils restent connectés
+        assertThat(me(otherDevice.token())).isEqualTo(200);
+        assertThat(isRevoked(claims(otherDevice.token()))).isFalse();
+
+        // Relue depuis revoked_tokens à la reconstruction
+        revocationList.rebuild();
+        assertThat(isRevoked(claims)).isTrue();
+        assertThat(isRevoked(claims(otherDevice.token()))).isFalse();
+    }
+
+    @Test
+    void logoutAllRevokesEveryTokenIssuedBefore() throws Exception {
+        Session session = register();
+        Session otherDevice = login(session.email());
+        Session otherUser = register();
+
+        assertThat(post("/users/logout-all", session.token(), null).statusCode()).isEqualTo(204);
+
+        assertThat(me(session.token())).isEqualTo(401);
+        assertThat(me(otherDevice.token())).isEqualTo(401);
+        assertThat(refreshStatus(session.refreshToken())).isEqualTo(401);
+        assertThat(refreshStatus(otherDevice.refreshToken())).isEqualTo(401);
+        assertThat(me(otherUser.token())).isEqualTo(200);
+
+        Claims claims = claims(session.token());
+        String userId = claims.getSubject();
+        Instant issuedAt = claims.getIssuedAt().toInstant();
+        // Révocation par utilisateur : vaut aussi pour un jti inconnu ou absent
+        assertThat(revocationList.isRevoked(UUID.randomUUID().toString(), userId, issuedAt)).isTrue();
+        assertThat(revocationList.isRevoked(null, userId, issuedAt)).isTrue();
+        // Émis après la date de révocation (arrondie à la seconde supérieure) : accepté
+        assertThat(revocationList.isRevoked(null, userId, issuedAt.plusSeconds(2))).isFalse();
+        revocationList.rebuild();
+        assertThat(revocationList.isRevoked(null, userId, issuedAt)).isTrue();
+        assertThat(revocationList.isRevoked(null, userId, issuedAt.plusSeconds(2))).isFalse();
+
+        // Nouvelle connexion, après la seconde de la révocation
+        Thread.sleep(1_100);
+        Session again = login(session.email());
+        assertThat(me(again.token())).isEqualTo(200);
+        assertThat(refreshStatus(again.refreshToken())).isEqualTo(200);
+    }
+
+    private Session register() throws Exception {
+        String email = "session-" + UUID.randomUUID() + "@test.fr";
+        HttpResponse<String> response = post("/users/register", null, Map.of(
+                "email", email, "password", "password1", "firstName", "Test", "lastName", "Session"));
+        assertThat(response.statusCode()).isEqualTo(201);
+        return session(email, response);
+    }
+
+    private Session login(String email) throws Exception {
+        HttpResponse<String> response = post("/users/login", null, Map.of("email", email, "password", "password1"));
+        assertThat(response.statusCode()).isEqualTo(200);
+        return session(email, response);
+    }
+
+    private Session refresh(String refreshToken) throws Exception {
+        HttpResponse<String> response = post("/users/refresh", null, Map.of("refreshToken", refreshToken));
+        assertThat(response.statusCode()).isEqualTo(200);
+        return session(null, response);
+    }
+
+    private int refreshStatus(String refreshToken) throws Exception {
+        return post("/users/refresh", null, Map.of("refreshToken", refreshToken)).statusCode();
+    }
+
+    private int me(String token) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/users/me"))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+        return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private HttpResponse<String> post(String path, String token, Map<String, String> body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(body == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static Session session(String email, HttpResponse<String> response) throws Exception {
+        JsonNode json = objectMapper.readTree(response.body());
+        return new Session(email, json.get("token").asText(), json.get("refreshToken").asText());
+    }
+
+    private static Claims claims(String token) {
+        return jwtService.parseClaims(token);
+    }
+
+    private static boolean isRevoked(Claims claims) {
+        return revocationList.isRevoked(claims.getId(), claims.getSubject(), claims.getIssuedAt().toInstant());
+    }
+
+    private record Session(String email, String token, String refreshToken) {}
+}
@@ -0,0 +1,112 @@
+package mds.mobile.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Requêtes couvertes sans stockage : des appels qui dorment le temps voulu, des résultats numérotés.
+ */
+class HedgedCallsTest {
+
+    private static final long SLOW_MILLIS = 300;
+
+    private final List<Integer> discarded = new CopyOnWriteArrayList<>();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HedgedCalls hedgedCalls;
+
+    @AfterEach
+    void close() {
+        hedgedCalls.close();
+    }
+
+    @Test
+    void interruptedCallerReleasesTheLateResult() throws Exception {
+        // Délai de couverture plus long que l'appel : l'interruption tombe pendant l'attente du primaire
+        HedgedCalls.Operation operation = operation(1_000, 1, 1);
+
+        Throwable failure = interruptedCall(operation);
+
+        assertThat(failure).isInstanceOf(InterruptedIOException.class);
+        awaitDiscarded(1);
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void interruptedCallerReleasesBothHedgedResults() throws Exception {
+        HedgedCalls.Operation operation = operation(10, 1, 1);
+
+        Throwable failure = interruptedCall(operation);
+
+        assertThat(failure).isInstanceOf(InterruptedIOException.class);
+        awaitDiscarded(2);
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void quietPeriodSavesAtMostTheBurst() throws Exception {
+        // Une couverture pour deux appels, deux d'avance au plus
+        HedgedCalls.Operation operation = operation(100, 0.5, 2);
+        for (int i = 0; i < 100; i++) {
+            operation.call(calls::incrementAndGet, discarded::add);
+        }
+        assertThat(hedgesSent()).isZero();
+
+        // MinIO ralentit : la réserve de deux jetons, puis un jeton tous les deux appels
+        for (int i = 0; i < 6; i++) {
+            operation.call(this::slowCall, discarded::add);
+        }
+        assertThat(hedgesSent()).isEqualTo(4);
+    }
+
+    private HedgedCalls.Operation operation(long delayMillis, double maxHedgeRatio, int maxHedgeBurst) {
+        hedgedCalls = new HedgedCalls(true, 95, delayMillis, delayMillis, maxHedgeRatio, maxHedgeBurst, meterRegistry);
+        return hedgedCalls.operation("test");
+    }
+
+    private double hedgesSent() {
+        return meterRegistry.get("storage.hedge.sent").counter().count();
+    }
+
+    /**
+     * Appel lent interrompu en cours d'attente, après le départ de la requête couverte s'il y en a une.
+     */
+    private Throwable interruptedCall(HedgedCalls.Operation operation) throws Exception {
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        Thread caller = Thread.ofVirtual().start(() -> {
+            try {
+                operation.call(this::slowCall, discarded::add);
+                failure.complete(null);
+            } catch (Throwable e) {
+                failure.complete(e);
+            }
+        });
+        Thread.sleep(SLOW_MILLIS / 3);
+        caller.interrupt();
+        return failure.get(5, TimeUnit.SECONDS);
+    }
+
+    private Integer slowCall() throws InterruptedException {
+        int call = calls.incrementAndGet();
+        Thread.sleep(SLOW_MILLIS);
+        return call;
+    }
+
+    private void awaitDiscarded(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (discarded.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(discarded).hasSize(count);
+    }
+}
@@ -0,0 +1,146 @@
+package mds.mobile.storage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import mds.mobile.MobileApplication;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Requêtes couvertes et disjoncteur du backend MinIO, contre {@link S3Stub} : premier octet retardé
+ * pour la couverture, 503 sur toutes les requêtes pour le disjoncteur.
+ */
+class MinioResilienceTest {
+
+    private static final Duration SLOW_FIRST_BYTE = Duration.ofSeconds(2);
+    private static final long OPEN_MILLIS = 300;
+
+    @TempDir
+    static Path tempDir;
+
+    private static S3Stub stub;
+    private static ConfigurableApplicationContext context;
+    private static StorageBackend storage;
+    private static MeterRegistry meterRegistry;
+
+    @BeforeAll
+    static void start() throws Exception {
+        stub = new S3Stub();
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("storage.backend", "minio");
+        properties.put("storage.cache.dir", tempDir.resolve("cache").toString());
+        properties.put("server.port", 0);
+        properties.put("spring.datasource.url", "jdbc:h2:mem:minio-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        properties.put("minio.endpoint", stub.endpoint());
+        properties.put("minio.region", "us-east-1");
+        // Couverture dès le premier appel lent, sans attendre l'historique de latences
+        properties.put("minio.hedge.max-delay-ms", 100);
+        properties.put("minio.hedge.max-ratio", 1);
+        properties.put("minio.circuit-breaker.window-size", 10);
+        properties.put("minio.circuit-breaker.minimum-calls", 5);
+        properties.put("minio.circuit-breaker.failure-rate-percent", 50);
+        properties.put("minio.circuit-breaker.open-ms", OPEN_MILLIS);
+        properties.put("minio.circuit-breaker.half-open-calls", 2);
+        // En arguments de ligne de commande : ils passent avant application-test.properties
+        context = new SpringApplicationBuilder(MobileApplication.class)
+                .profiles("test")
+                .run(properties.entrySet().stream().map(e -> "--" + e.getKey() + "=" + e.getValue()).toArray(String[]::new));
+        storage = context.getBean(StorageBackend.class);
+        meterRegistry = context.getBean(MeterRegistry.class);
+    }
+
+    @AfterAll
+    static void stop() {
+        if (context != null) {
+            context.close();
+        }
+        stub.close();
+    }
+
+    @AfterEach
+    void resetStub() {
+        stub.setFailing(false);
+        stub.delayNextReads(0, Duration.ZERO);
+    }
+
+    @Test
+    void slowFirstByteIsHedged() throws Exception {
+        byte[] data = upload("hedged.bin");
+        double sent = hedgeCount("storage.hedge.sent");
+        double won = hedgeCount("storage.hedge.won");
+
+        stub.delayNextReads(1, SLOW_FIRST_BYTE);
+        long start = System.nanoTime();
+        try (InputStream in = storage.getObject("hedged.bin")) {
+            assertThat(in.readAllBytes()).isEqualTo(data);
+        }
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(SLOW_FIRST_BYTE.dividedBy(2));
+        assertThat(hedgeCount("storage.hedge.sent") - sent).isEqualTo(1);
+        assertThat(hedgeCount("storage.hedge.won") - won).isEqualTo(1);
+    }
+
+    @Test
+    void circuitOpensThenClosesThroughHalfOpen() throws Exception {
+        byte[] data = upload("circuit.bin");
+        assertThat(circuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        stub.setFailing(true);
+        // Les erreurs 5xx remontent telles quelles jusqu'à l'ouverture (fenêtre de 10, 50 % d'échecs)
+        for (int i = 0; i < 10 && circuitState() == CircuitBreaker.State.CLOSED; i++) {
+            assertThatThrownBy(() -> storage.getObject("circuit.bin"))
+                    .isNotInstanceOf(StorageUnavailableException.class);
+        }
+        assertThat(circuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        // Circuit ouvert : échec immédiat en 503, sans requête vers le stockage
+        int requests = stub.requestCount();
+        assertThatThrownBy(() -> storage.getObject("circuit.bin"))
+                .isInstanceOf(StorageUnavailableException.class)
+                .hasMessageContaining("circuit open");
+        assertThat(stub.requestCount()).isEqualTo(requests);
+
+        stub.setFailing(false);
+        Thread.sleep(OPEN_MILLIS + 100);
+        try (InputStream in = storage.getObject("circuit.bin")) {
+            assertThat(in.readAllBytes()).isEqualTo(data);
+        }
+        assertThat(circuitState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        try (InputStream in = storage.getObject("circuit.bin")) {
+            assertThat(in.readAllBytes()).isEqualTo(data);
+        }
+        assertThat(circuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    private static byte[] upload(String objectName) {
+        byte[] data = new byte[64 * 1024];
+        ThreadLocalRandom.current().nextBytes(data);
+        storage.upload(objectName, new ByteArrayInputStream(data), data.length, "application/octet-stream");
+        return data;
+    }
+
+    private static double hedgeCount(String name) {
+        return meterRegistry.get(name).tag("operation", "getObject").counter().count();
+    }
+
+    private static CircuitBreaker.State circuitState() {
+        int ordinal = (int) meterRegistry.get("storage.circuit.state").tag("endpoint", "minio").gauge().value();
+        return CircuitBreaker.State.values()[ordinal];
+    }
+}
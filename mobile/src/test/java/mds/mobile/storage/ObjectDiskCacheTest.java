@@ -0,0 +1,78 @@
+package mds.mobile.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Deux instances du cache sur le même répertoire de base, comme deux applications sur une machine.
+ */
+class ObjectDiskCacheTest {
+
+    private static final byte[] CONTENT = "contenu".getBytes();
+
+    @TempDir
+    Path baseDirectory;
+
+    @Test
+    void startingInstanceKeepsTheFilesOfARunningOne() throws Exception {
+        ObjectDiskCache first = cache();
+        Path cached = load(first);
+
+        ObjectDiskCache second = cache();
+        try {
+            assertThat(cached).exists();
+            assertThat(load(second).getParent()).isNotEqualTo(cached.getParent());
+        } finally {
+            second.close();
+            first.close();
+        }
+    }
+
+    @Test
+    void startingInstanceDeletesTheDirectoryOfAStoppedOne() throws Exception {
+        // Instance arrêtée sans passer par close() : répertoire et verrou restent, plus personne ne le tient
+        Path abandoned = Files.createDirectory(baseDirectory.resolve("instance-stopped"));
+        Files.createFile(abandoned.resolve(".lock"));
+        Files.write(abandoned.resolve("obj-1.bin"), CONTENT);
+        // Instance qui démarre : pas encore de verrou, à laisser
+        Path starting = Files.createDirectory(baseDirectory.resolve("instance-starting"));
+
+        ObjectDiskCache cache = cache();
+        try {
+            assertThat(abandoned).doesNotExist();
+            assertThat(starting).exists();
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    void closeDeletesTheInstanceDirectory() throws Exception {
+        ObjectDiskCache cache = cache();
+        Path cached = load(cache);
+
+        cache.close();
+
+        assertThat(cached.getParent()).doesNotExist();
+        assertThat(baseDirectory).isDirectory();
+    }
+
+    private ObjectDiskCache cache() throws Exception {
+        return new ObjectDiskCache(true, baseDirectory, 1024 * 1024, 1024 * 1024, 0);
+    }
+
+    private static Path load(ObjectDiskCache cache) throws Exception {
+        String etag = HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(CONTENT));
+        Path path = cache.getOrLoad("owner/object.bin", etag, CONTENT.length, () -> new ByteArrayInputStream(CONTENT));
+        assertThat(path).isNotNull().hasBinaryContent(CONTENT);
+        return path;
+    }
+}
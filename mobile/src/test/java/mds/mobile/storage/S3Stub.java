@@ -0,0 +1,262 @@
+package mds.mobile.storage;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serveur S3 minimal en mémoire, dans le processus du test : juste ce que le SDK MinIO utilise ici
+ * (bucket, PUT/GET/HEAD/DELETE d'objet, lecture par plage, liste v2). Signatures non vérifiées.
+ *
+ * Pannes simulées : délai avant le premier octet des prochaines lectures d'objet
+ * ({@link #delayNextReads}), ou 503 sur toutes les requêtes ({@link #setFailing}).
+ */
+public class S3Stub implements AutoCloseable {
+
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    private final HttpServer server;
+    // Threads plateforme : l'écriture du corps par HttpServer est synchronized et épinglerait un thread
+    // virtuel sur son porteur, bloquant les threads virtuels de l'application qui doivent lire ce corps
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Set<String> buckets = ConcurrentHashMap.newKeySet();
+    private final Map<String, StoredBody> objects = new ConcurrentHashMap<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger delayedReads = new AtomicInteger();
+    private volatile long readDelayMillis;
+    private volatile boolean failing;
+
+    public S3Stub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    int objectCount() {
+        return objects.size();
+    }
+
+    public int requestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Les {@code count} prochains GET d'objet attendent {@code delay} avant d'envoyer les en-têtes.
+     */
+    void delayNextReads(int count, Duration delay) {
+        readDelayMillis = delay.toMillis();
+        delayedReads.set(count);
+    }
+
+    void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            if (failing) {
+                exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+                error(exchange, 503, "ServiceUnavailable", exchange.getRequestURI().getPath());
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            int slash = path.indexOf('/', 1);
+            String bucket = slash < 0 ? path.substring(1) : path.substring(1, slash);
+            String key = slash < 0 ? "" : path.substring(slash + 1);
+            if (key.isEmpty()) {
+                handleBucket(exchange, bucket);
+            } else {
+                handleObject(exchange, bucket, key);
+            }
+        }
+    }
+
+    private void handleBucket(HttpExchange exchange, String bucket) throws IOException {
+        switch (exchange.getRequestMethod()) {
+            case "HEAD" -> exchange.sendResponseHeaders(buckets.contains(bucket) ? 200 : 404, -1);
+            case "PUT" -> {
+                buckets.add(bucket);
+                exchange.sendResponseHeaders(200, -1);
+            }
+            case "GET" -> list(exchange, bucket, query(exchange).getOrDefault("prefix", ""));
+            default -> exchange.sendResponseHeaders(405, -1);
+        }
+    }
+
+    private void handleObject(HttpExchange exchange, String bucket, String key) throws IOException {
+        String name = bucket + "/" + key;
+        switch (exchange.getRequestMethod()) {
+            case "PUT" -> {
+                byte[] data;
+                try (InputStream in = exchange.getRequestBody()) {
+                    data = in.readAllBytes();
+                }
+                String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+                StoredBody body = new StoredBody(data, md5(data), contentType, Instant.now());
+                objects.put(name, body);
+                exchange.getResponseHeaders().set("ETag", '"' + body.etag() + '"');
+                exchange.sendResponseHeaders(200, -1);
+            }
+            case "HEAD" -> {
+                StoredBody body = objects.get(name);
+                if (body == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+                headers(exchange, body, body.data().length);
+                exchange.sendResponseHeaders(200, -1);
+            }
+            case "GET" -> {
+                if (delayedReads.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                    sleep(readDelayMillis);
+                }
+                StoredBody body = objects.get(name);
+                if (body == null) {
+                    error(exchange, 404, "NoSuchKey", "/" + name);
+                    return;
+                }
+                get(exchange, body);
+            }
+            case "DELETE" -> {
+                objects.remove(name);
+                exchange.sendResponseHeaders(204, -1);
+            }
+            default -> exchange.sendResponseHeaders(405, -1);
+        }
+    }
+
+    private void get(HttpExchange exchange, StoredBody body) throws IOException {
+        long start = 0;
+        long end = body.data().length - 1L;
+        int status = 200;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range != null && range.startsWith("bytes=")) {
+            String[] bounds = range.substring("bytes=".length()).split("-", -1);
+            start = Long.parseLong(bounds[0]);
+            if (!bounds[1].isEmpty()) {
+                end = Math.min(end, Long.parseLong(bounds[1]));
+            }
+            status = 206;
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + body.data().length);
+        }
+        long length = end - start + 1;
+        headers(exchange, body, length);
+        exchange.sendResponseHeaders(status, length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body.data(), (int) start, (int) length);
+        }
+    }
+
+    private void list(HttpExchange exchange, String bucket, String prefix) throws IOException {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">")
+                .append("<Name>").append(bucket).append("</Name><Prefix>").append(prefix).append("</Prefix>")
+                .append("<IsTruncated>false</IsTruncated>");
+        int count = 0;
+        for (Map.Entry<String, StoredBody> entry : objects.entrySet()) {
+            String key = entry.getKey().substring(bucket.length() + 1);
+            if (!entry.getKey().startsWith(bucket + "/") || !key.startsWith(prefix)) {
+                continue;
+            }
+            StoredBody body = entry.getValue();
+            xml.append("<Contents><Key>").append(key).append("</Key>")
+                    .append("<LastModified>").append(body.lastModified()).append("</LastModified>")
+                    .append("<ETag>\"").append(body.etag()).append("\"</ETag>")
+                    .append("<Size>").append(body.data().length).append("</Size>")
+                    .append("<StorageClass>STANDARD</StorageClass></Contents>");
+            count++;
+        }
+        xml.append("<KeyCount>").append(count).append("</KeyCount></ListBucketResult>");
+        byte[] response = xml.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(200, response.length);
+        exchange.getResponseBody().write(response);
+    }
+
+    private static void headers(HttpExchange exchange, StoredBody body, long length) {
+        exchange.getResponseHeaders().set("ETag", '"' + body.etag() + '"');
+        exchange.getResponseHeaders().set("Last-Modified", HTTP_DATE.format(body.lastModified()));
+        exchange.getResponseHeaders().set("Content-Type",
+                body.contentType() != null ? body.contentType() : "application/octet-stream");
+        exchange.getResponseHeaders().set("Content-Length", Long.toString(length));
+        exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+    }
+
+    static void error(HttpExchange exchange, int status, String code, String resource) throws IOException {
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] response = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?><Error><Code>" + code + "</Code>"
+                + "<Message>" + code + "</Message><Resource>" + resource + "</Resource>"
+                + "<RequestId>stub</RequestId><HostId>stub</HostId></Error>").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, response.length);
+        exchange.getResponseBody().write(response);
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(name, value);
+        }
+        return params;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String md5(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private record StoredBody(byte[] data, String etag, String contentType, Instant lastModified) {}
+}
@@ -0,0 +1,162 @@
+package mds.mobile.storage;
+
+import mds.mobile.MobileApplication;
+import mds.mobile.document.Document;
+import mds.mobile.document.DocumentRepository;
+import mds.mobile.user.User;
+import mds.mobile.user.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Comparaison de débit des backends de stockage, par le chemin réellement emprunté en production :
+ * écriture par {@link StorageBackend#upload}, lecture par {@code GET /documents/{id}/file} sur un vrai
+ * serveur HTTP (sendfile depuis le disque pour {@code local} ; pour {@code minio}, premier passage depuis
+ * le stockage, le suivant depuis le cache disque).
+ *
+ * Lancé seulement avec {@code -Dbenchmarks=true}. Sans {@code -Dbenchmarks.minio.endpoint}, le backend
+ * minio est mesuré contre {@link S3Stub} : le coût du SDK et du saut HTTP en boucle locale, pas celui d'un
+ * vrai serveur MinIO. Résultats dans BENCHMARKS.md.
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class StorageThroughputBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageThroughputBenchmarkTest.class);
+
+    private final int objectCount = Integer.getInteger("benchmarks.objects", 20);
+    private final int objectBytes = Integer.getInteger("benchmarks.object-bytes", 4 * 1024 * 1024);
+    private final int warmupCount = 5;
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void compareBackends() throws Exception {
+        List<String> results = new ArrayList<>();
+        results.add(measure("local", Map.of("storage.local.dir", tempDir.resolve("local").toString())));
+
+        String minioEndpoint = System.getProperty("benchmarks.minio.endpoint");
+        if (minioEndpoint != null) {
+            results.add(measure("minio", Map.of(
+                    "minio.endpoint", minioEndpoint,
+                    "minio.access-key", System.getProperty("benchmarks.minio.access-key", "minioadmin"),
+                    "minio.secret-key", System.getProperty("benchmarks.minio.secret-key", "minioadmin"),
+                    "storage.cache.dir", tempDir.resolve("cache").toString())));
+        } else {
+            try (S3Stub stub = new S3Stub()) {
+                results.add(measure("minio (S3Stub)", Map.of(
+                        "minio.endpoint", stub.endpoint(),
+                        "storage.cache.dir", tempDir.resolve("cache").toString())));
+            }
+        }
+        log.info("Storage throughput, {} objects x {} bytes:\n{}", objectCount, objectBytes, String.join("\n", results));
+    }
+
+    private String measure(String label, Map<String, Object> properties) throws Exception {
+        String backend = label.startsWith("minio") ? "minio" : "local";
+        Map<String, Object> all = new HashMap<>(properties);
+        all.put("storage.backend", backend);
+        all.put("server.port", 0);
+        all.put("minio.region", "us-east-1");
+        all.put("spring.datasource.url", "jdbc:h2:mem:bench-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+
+        // En arguments de ligne de commande : ils passent avant application-test.properties
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(MobileApplication.class)
+                .profiles("test")
+                .run(all.entrySet().stream().map(e -> "--" + e.getKey() + "=" + e.getValue()).toArray(String[]::new))) {
+            assertThat(context.getEnvironment().getProperty("storage.backend")).isEqualTo(backend);
+            StorageBackend storage = context.getBean(StorageBackend.class);
+            DocumentRepository documents = context.getBean(DocumentRepository.class);
+            User owner = context.getBean(UserRepository.class).save(User.builder()
+                    .email("bench-" + UUID.randomUUID() + "@test.fr")
+                    .firstName("bench").lastName("bench").password("x").build());
+            String baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+
+            byte[] payload = new byte[objectBytes];
+            ThreadLocalRandom.current().nextBytes(payload);
+            String prefix = owner.getId() + "/";
+
+            // Chauffe (JIT, pools, clients HTTP) sur des documents à part : le premier passage mesuré
+            // reste un défaut de cache pour minio
+            List<String> warmupKeys = new ArrayList<>(warmupCount);
+            for (int i = 0; i < warmupCount; i++) {
+                warmupKeys.add(storage.upload(prefix + "warmup-" + i + ".bin", new ByteArrayInputStream(payload),
+                        payload.length, "application/octet-stream"));
+            }
+            List<UUID> warmup = save(documents, owner, warmupKeys);
+            readAll(baseUrl, warmup);
+            readAll(baseUrl, warmup);
+
+            long start = System.nanoTime();
+            List<String> keys = new ArrayList<>(objectCount);
+            for (int i = 0; i < objectCount; i++) {
+                keys.add(storage.upload(prefix + i + ".bin", new ByteArrayInputStream(payload), payload.length,
+                        "application/octet-stream"));
+            }
+            long writeNanos = System.nanoTime() - start;
+            List<UUID> ids = save(documents, owner, keys);
+
+            long firstNanos = readAll(baseUrl, ids);
+            long secondNanos = readAll(baseUrl, ids);
+
+            long totalBytes = (long) objectCount * objectBytes;
+            return String.format("  %-16s write %8.1f MB/s | GET /file pass 1 %8.1f MB/s | pass 2 %8.1f MB/s",
+                    label, throughput(totalBytes, writeNanos), throughput(totalBytes, firstNanos),
+                    throughput(totalBytes, secondNanos));
+        }
+    }
+
+    private List<UUID> save(DocumentRepository documents, User owner, List<String> keys) {
+        List<UUID> ids = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            ids.add(documents.save(Document.builder()
+                    .titre(key).cheminFichier(key).typeFichier("application/octet-stream")
+                    .taille((long) objectBytes).proprietaire(owner)
+                    .dateDepot(LocalDateTime.now()).dateModification(LocalDateTime.now())
+                    .build()).getId());
+        }
+        return ids;
+    }
+
+    private long readAll(String baseUrl, List<UUID> ids) throws Exception {
+        long start = System.nanoTime();
+        for (UUID id : ids) {
+            HttpResponse<InputStream> response = http.send(
+                    HttpRequest.newBuilder(URI.create(baseUrl + "/documents/" + id + "/file")).build(),
+                    HttpResponse.BodyHandlers.ofInputStream());
+            assertThat(response.statusCode()).isEqualTo(200);
+            try (InputStream body = response.body()) {
+                assertThat(body.transferTo(OutputStream.nullOutputStream())).isEqualTo(objectBytes);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static double throughput(long bytes, long nanos) {
+        return (bytes / 1_048_576d) / (nanos / 1_000_000_000d);
+    }
+}
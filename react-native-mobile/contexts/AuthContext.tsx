@@ -2,10 +2,18 @@ import React, {
   createContext,
   useCallback,
   useContext,
+  useEffect,
   useMemo,
+  useRef,
   useState,
 } from "react";
 import { AuthService } from "../services";
+import {
+  getRefreshToken,
+  refreshAccessToken,
+  setRefreshToken,
+  setSessionHandlers,
+} from "../services/api";
 
 export type User = {
   id: string;
@@ -18,7 +26,7 @@ type AuthContextType = {
   user: User | null;
   token: string | null;
   login: (email: string, password: string) => Promise<void>;
-  logout: () => void;
+  logout: () => Promise<void>;
   isLoading: boolean;
   error: string | null;
 };
@@ -27,7 +35,7 @@ const AuthContext = createContext<AuthContextType>({
   user: null,
   token: null,
   login: async () => {},
-  logout: () => {},
+  logout: async () => {},
   isLoading: false,
   error: null,
 });
@@ -39,6 +47,56 @@ export const AuthProvider: React.FC<{ children: React.ReactNode }> = ({
   const [token, setToken] = useState<string | null>(null);
   const [isLoading, setIsLoading] = useState(false);
   const [error, setError] = useState<string | null>(null);
+  const userRef = useRef<User | null>(null);
+  userRef.current = user;
+
+  const clearSession = useCallback(() => {
+    setRefreshToken(null);
+    AuthService.clearSession().catch((err) =>
+      console.error("Erreur de suppression de la session:", err)
+    );
+    setUser(null);
+    setToken(null);
+  }, []);
+
+  // Rotation du refresh token par apiRequest sur un 401 : nouveau token en état, refresh token persisté
+  useEffect(() => {
+    setSessionHandlers({
+      onRefreshed: (newToken, newRefreshToken) => {
+        setToken(newToken);
+        if (userRef.current) {
+          AuthService.saveSession({
+            refreshToken: newRefreshToken,
+            user: userRef.current,
+          }).catch((err) => console.error("Erreur de sauvegarde de la session:", err));
+        }
+      },
+      onExpired: clearSession,
+    });
+    return () => setSessionHandlers(null);
+  }, [clearSession]);
+
+  // Au démarrage : reprise de la session persistée avec un access token neuf
+  useEffect(() => {
+    (async () => {
+      const stored = await AuthService.loadSession();
+      if (!stored) return;
+      setIsLoading(true);
+      try {
+        // Refresh token refusé : onExpired efface la session ; erreur réseau : on reste déconnecté
+        setRefreshToken(stored.refreshToken);
+        if (await refreshAccessToken()) {
+          await AuthService.saveSession({
+            refreshToken: getRefreshToken()!,
+            user: stored.user,
+          });
+          setUser(stored.user);
+        }
+      } finally {
+        setIsLoading(false);
+      }
+    })();
+  }, []);
 
   const login = useCallback(async (email: string, password: string) => {
     setIsLoading(true);
@@ -47,6 +105,11 @@ export const AuthProvider: React.FC<{ children: React.ReactNode }> = ({
     try {
       const data = await AuthService.login(email, password);
 
+      setRefreshToken(data.refreshToken);
+      await AuthService.saveSession({
+        refreshToken: data.refreshToken,
+        user: data.user,
+      });
       setToken(data.token);
       setUser(data.user);
     } catch (err) {
@@ -68,11 +131,18 @@ export const AuthProvider: React.FC<{ children: React.ReactNode }> = ({
     }
   }, []);
 
-  const logout = useCallback(() => {
-    setUser(null);
-    setToken(null);
+  const logout = useCallback(async () => {
+    // Révocation côté serveur, sinon le refresh token resterait utilisable jusqu'à son expiration
+    if (token) {
+      try {
+        await AuthService.logout(token, getRefreshToken());
+      } catch (err) {
+        console.error("Erreur de déconnexion:", err);
+      }
+    }
+    clearSession();
     setError(null);
-  }, []);
+  }, [token, clearSession]);
 
   const value = useMemo(
     () => ({ user, token, login, logout, isLoading, error }),
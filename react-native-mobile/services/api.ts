@@ -1,16 +1,70 @@
 // Configuration de base pour les appels API
-const API_BASE_URL = "http://10.0.2.2:8080";
+export const API_BASE_URL = "http://10.0.2.2:8080";
+
+type SessionHandlers = {
+  // Nouveau couple de tokens après rotation du refresh token
+  onRefreshed: (token: string, refreshToken: string) => void;
+  // Refresh token refusé : la session est perdue, il faut se reconnecter
+  onExpired: () => void;
+};
+
+let refreshToken: string | null = null;
+let refreshing: Promise<string | null> | null = null;
+let handlers: SessionHandlers | null = null;
+
+export const setRefreshToken = (value: string | null) => {
+  refreshToken = value;
+};
+
+export const getRefreshToken = () => refreshToken;
+
+export const setSessionHandlers = (value: SessionHandlers | null) => {
+  handlers = value;
+};
 
 /**
- * Effectue une requête HTTP avec authentification
+ * Échange le refresh token contre un nouvel access token. Les 401 simultanés partagent le même
+ * appel : le serveur consomme le refresh token à chaque rotation et traite une réutilisation comme
+ * un vol (toute la famille est révoquée).
  */
-export const apiRequest = async (
+export const refreshAccessToken = (): Promise<string | null> => {
+  if (!refreshing) {
+    refreshing = (async () => {
+      if (!refreshToken) return null;
+      try {
+        const response = await fetch(`${API_BASE_URL}/users/refresh`, {
+          method: "POST",
+          headers: { "Content-Type": "application/json" },
+          body: JSON.stringify({ refreshToken }),
+        });
+        if (!response.ok) {
+          refreshToken = null;
+          handlers?.onExpired();
+          return null;
+        }
+        const data = await response.json();
+        refreshToken = data.refreshToken;
+        handlers?.onRefreshed(data.token, data.refreshToken);
+        return data.token as string;
+      } catch (err) {
+        // Erreur réseau : on garde le refresh token pour la prochaine tentative
+        console.error("Erreur de rafraîchissement du token:", err);
+        return null;
+      }
+    })().finally(() => {
+      refreshing = null;
+    });
+  }
+  return refreshing;
+};
+
+const send = (
   endpoint: string,
-  options: RequestInit = {},
+  options: RequestInit,
   token?: string | null
 ): Promise<Response> => {
-  const headers: HeadersInit = {
-    ...options.headers,
+  const headers: Record<string, string> = {
+    ...(options.headers as Record<string, string>),
   };
 
   // Ajouter le token d'authentification si disponible
@@ -23,10 +77,29 @@ export const apiRequest = async (
     headers["Content-Type"] = "application/json";
   }
 
-  const response = await fetch(`${API_BASE_URL}${endpoint}`, {
+  return fetch(`${API_BASE_URL}${endpoint}`, {
     ...options,
     headers,
   });
+};
+
+/**
+ * Effectue une requête HTTP avec authentification. Sur un 401, l'access token (courte durée) est
+ * rafraîchi une fois et la requête rejouée avec le nouveau token.
+ */
+export const apiRequest = async (
+  endpoint: string,
+  options: RequestInit = {},
+  token?: string | null
+): Promise<Response> => {
+  const response = await send(endpoint, options, token);
+  if (response.status !== 401 || !token || !refreshToken) {
+    return response;
+  }
 
-  return response;
+  const refreshed = await refreshAccessToken();
+  if (!refreshed) {
+    return response;
+  }
+  return send(endpoint, options, refreshed);
 };
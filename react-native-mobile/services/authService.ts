@@ -1,3 +1,5 @@
+import * as FileSystem from "expo-file-system/legacy";
+import * as SecureStore from "expo-secure-store";
 import { apiRequest } from "./api";
 
 export interface UserLoginRequest {
@@ -7,6 +9,7 @@ export interface UserLoginRequest {
 
 export interface UserLoginResponse {
   token: string;
+  refreshToken: string;
   user: {
     id: string;
     email: string;
@@ -15,6 +18,21 @@ export interface UserLoginResponse {
   };
 }
 
+export interface StoredSession {
+  refreshToken: string;
+  user: {
+    id: string;
+    email: string;
+    firstName?: string;
+    lastName?: string;
+  };
+}
+
+// Le refresh token survit au redémarrage de l'application, dans le trousseau (Keychain / Keystore) ;
+// le fichier ne garde que l'utilisateur, l'access token reste en mémoire
+const SESSION_FILE = `${FileSystem.documentDirectory}session.json`;
+const REFRESH_TOKEN_KEY = "refreshToken";
+
 /**
  * Service pour gérer l'authentification des utilisateurs
  */
@@ -43,4 +61,52 @@ export const AuthService = {
     console.log("Connexion réussie");
     return data;
   },
+
+  /**
+   * Déconnexion : révoque l'access token et le refresh token côté serveur
+   */
+  logout: async (token: string, refreshToken: string | null): Promise<void> => {
+    const response = await apiRequest(
+      "/users/logout",
+      {
+        method: "POST",
+        body: JSON.stringify({ refreshToken }),
+      },
+      token
+    );
+    if (!response.ok) {
+      console.error("Erreur de déconnexion:", response.status);
+    }
+  },
+
+  loadSession: async (): Promise<StoredSession | null> => {
+    try {
+      const info = await FileSystem.getInfoAsync(SESSION_FILE);
+      if (!info.exists) return null;
+      const stored = JSON.parse(await FileSystem.readAsStringAsync(SESSION_FILE));
+      // Session écrite par une version précédente : le refresh token passe au trousseau
+      if (stored.refreshToken) {
+        await AuthService.saveSession(stored);
+      }
+      const refreshToken = await SecureStore.getItemAsync(REFRESH_TOKEN_KEY);
+      if (!refreshToken) return null;
+      return { refreshToken, user: stored.user };
+    } catch (err) {
+      console.error("Session illisible:", err);
+      return null;
+    }
+  },
+
+  saveSession: async (session: StoredSession): Promise<void> => {
+    await SecureStore.setItemAsync(REFRESH_TOKEN_KEY, session.refreshToken);
+    await FileSystem.writeAsStringAsync(
+      SESSION_FILE,
+      JSON.stringify({ user: session.user })
+    );
+  },
+
+  clearSession: async (): Promise<void> => {
+    await SecureStore.deleteItemAsync(REFRESH_TOKEN_KEY);
+    await FileSystem.deleteAsync(SESSION_FILE, { idempotent: true });
+  },
 };